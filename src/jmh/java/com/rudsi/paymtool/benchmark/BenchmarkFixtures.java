@@ -0,0 +1,73 @@
+package com.rudsi.paymtool.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+
+import javax.crypto.Cipher;
+
+import org.springframework.core.io.ClassPathResource;
+
+import com.rudsi.paymtool.crypto.CryptoEngine;
+import com.rudsi.paymtool.service.RsaEncryptionService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Services and payloads shared by the benchmarks that run the real crypto.
+ * <p>
+ * The services load the application's keys from {@code classpath:keys/}, so
+ * these benchmarks need the same key files as the application (see
+ * {@code KeyGeneratorUtility} and {@code AesKeyGen}).
+ */
+final class BenchmarkFixtures {
+
+    /** Decrypted lookup and persistence payload with a Luhn-valid card number. */
+    static final String PAYLOAD = """
+            {
+                "cardNumber": "4539578763621486",
+                "name": "Rudsi Test User",
+                "mobile": "9876543210",
+                "email": "testuser@rudsi.com"
+            }
+            """;
+
+    private BenchmarkFixtures() {
+    }
+
+    /** Creates the crypto engine with the application's defaults. */
+    static CryptoEngine cryptoEngine(MeterRegistry meterRegistry) {
+        return new CryptoEngine("auto", Duration.ofMillis(25), 0, meterRegistry);
+    }
+
+    /** Creates the RSA service with the application's private key. */
+    static RsaEncryptionService rsaService(CryptoEngine cryptoEngine, MeterRegistry meterRegistry) {
+        return new RsaEncryptionService(new ClassPathResource("keys/private_key.pem"), cryptoEngine, meterRegistry);
+    }
+
+    /**
+     * Encrypts a payload for the server the way a client does.
+     *
+     * @return Base64-encoded RSA-OAEP ciphertext
+     */
+    static String encryptForServer(String payload) throws IOException, GeneralSecurityException {
+        String pem;
+        try (InputStream in = new ClassPathResource("keys/public_key.pem").getInputStream()) {
+            pem = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        byte[] keyBytes = Base64.getMimeDecoder().decode(pem
+                .replace("-----BEGIN PUBLIC KEY-----", "")
+                .replace("-----END PUBLIC KEY-----", ""));
+        PublicKey publicKey = KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(keyBytes));
+
+        Cipher cipher = Cipher.getInstance("RSA/ECB/OAEPWithSHA-256AndMGF1Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, publicKey);
+        return Base64.getEncoder().encodeToString(cipher.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+}
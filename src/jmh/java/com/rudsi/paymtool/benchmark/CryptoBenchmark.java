@@ -0,0 +1,81 @@
+package com.rudsi.paymtool.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rudsi.paymtool.crypto.CryptoEngine;
+import com.rudsi.paymtool.service.AesEncryptionService;
+import com.rudsi.paymtool.service.RsaEncryptionService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Measures the cipher operations of the request paths: RSA decryption of a
+ * request payload, and AES-GCM encryption and decryption of a card number.
+ * <p>
+ * The services run on the same {@link CryptoEngine} as in the application,
+ * with pooled ciphers, and use the application's keys. The profile always runs
+ * with {@code -prof gc}, which shows the allocation per operation:
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="CryptoBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoBenchmark {
+
+    private final String cardNumber = "4539578763621486";
+
+    private RsaEncryptionService rsaService;
+
+    private AesEncryptionService aesService;
+
+    private String rsaCiphertext;
+
+    private byte[] aesCiphertext;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CryptoEngine cryptoEngine = BenchmarkFixtures.cryptoEngine(meterRegistry);
+        rsaService = BenchmarkFixtures.rsaService(cryptoEngine, meterRegistry);
+        aesService = new AesEncryptionService(cryptoEngine, AesEncryptionService.DEFAULT_KEY_ID);
+
+        rsaCiphertext = BenchmarkFixtures.encryptForServer(BenchmarkFixtures.PAYLOAD);
+        aesCiphertext = aesService.encrypt(cardNumber);
+    }
+
+    /** RSA-OAEP decryption of a Base64 request payload. */
+    @Benchmark
+    public String rsaDecrypt() {
+        return rsaService.decrypt(rsaCiphertext);
+    }
+
+    /** AES-GCM encryption of a card number for storage, with a fresh IV. */
+    @Benchmark
+    public byte[] aesEncrypt() {
+        return aesService.encrypt(cardNumber);
+    }
+
+    /** AES-GCM decryption of a stored card number. */
+    @Benchmark
+    public String aesDecrypt() {
+        return aesService.decrypt(aesCiphertext, AesEncryptionService.DEFAULT_KEY_ID);
+    }
+}
@@ -0,0 +1,115 @@
+package com.rudsi.paymtool.benchmark;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import com.rudsi.paymtool.cache.CardIndexFilter;
+import com.rudsi.paymtool.cache.CardIndexSnapshot;
+import com.rudsi.paymtool.cache.CustomerLookupCache;
+import com.rudsi.paymtool.cache.LookupCoalescer;
+import com.rudsi.paymtool.crypto.CpuBulkhead;
+import com.rudsi.paymtool.crypto.CryptoEngine;
+import com.rudsi.paymtool.dto.CustomerContact;
+import com.rudsi.paymtool.dto.CustomerDetailsResponse;
+import com.rudsi.paymtool.monitoring.StageMetrics;
+import com.rudsi.paymtool.repository.CustomerDetailsRepository;
+import com.rudsi.paymtool.service.BlindIndexService;
+import com.rudsi.paymtool.service.CustomerDetailsService;
+import com.rudsi.paymtool.service.RsaEncryptionService;
+import com.rudsi.paymtool.service.SessionKeyService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Measures a whole RSA-encrypted lookup through
+ * {@link CustomerDetailsService#processEncryptedRequest}, with the repository
+ * mocked.
+ * <p>
+ * {@code approved} looks up a stored card, which is served from the lookup
+ * cache after the first call. {@code declined} looks up an unknown card, which
+ * queries the mocked repository every time because misses are not cached and
+ * the card filter is not built. Both include RSA decryption, parsing, Luhn
+ * validation, the blind index and the stage timers. The profile always runs
+ * with {@code -prof gc}, which shows the allocation per lookup:
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="LookupPipelineBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupPipelineBenchmark {
+
+    private CustomerDetailsService service;
+
+    private String storedCardRequest;
+
+    private String unknownCardRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CryptoEngine cryptoEngine = BenchmarkFixtures.cryptoEngine(meterRegistry);
+        RsaEncryptionService rsaService = BenchmarkFixtures.rsaService(cryptoEngine, meterRegistry);
+        CpuBulkhead bulkhead = new CpuBulkhead(false, 0, meterRegistry);
+        BlindIndexService blindIndexService = new BlindIndexService(cryptoEngine);
+
+        // Stub-only mocks do not record invocations, so memory stays flat.
+        CustomerDetailsRepository repo = mock(CustomerDetailsRepository.class, withSettings().stubOnly());
+        byte[] storedIndex = blindIndexService.compute("4539578763621486");
+        CustomerContact contact = new CustomerContact("Rudsi Test User", "9876543210", "testuser@rudsi.com");
+        when(repo.findContactByCardNumberIndex(any())).thenAnswer(invocation ->
+                Arrays.equals(invocation.getArgument(0), storedIndex) ? Optional.of(contact) : Optional.empty());
+
+        service = new CustomerDetailsService(
+                rsaService,
+                new SessionKeyService(rsaService, cryptoEngine, bulkhead, 1000, Duration.ofMinutes(30), meterRegistry),
+                blindIndexService,
+                repo,
+                new CustomerLookupCache(DataSize.ofMegabytes(64), Duration.ofMinutes(10), meterRegistry),
+                new CardIndexSnapshot(repo, false, Path.of("unused.snapshot"), 2, meterRegistry),
+                new CardIndexFilter(repo, true, 0.01, 1.5, Duration.ofSeconds(30), meterRegistry),
+                new LookupCoalescer(true, meterRegistry),
+                bulkhead,
+                new StageMetrics(meterRegistry));
+
+        storedCardRequest = BenchmarkFixtures.encryptForServer(BenchmarkFixtures.PAYLOAD);
+        unknownCardRequest = BenchmarkFixtures.encryptForServer(
+                BenchmarkFixtures.PAYLOAD.replace("4539578763621486", "4111111111111111"));
+    }
+
+    @Benchmark
+    public CustomerDetailsResponse approved() {
+        return service.processEncryptedRequest(null, storedCardRequest);
+    }
+
+    @Benchmark
+    public CustomerDetailsResponse declined() {
+        return service.processEncryptedRequest(null, unknownCardRequest);
+    }
+}
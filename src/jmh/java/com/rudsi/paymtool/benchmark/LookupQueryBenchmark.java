@@ -0,0 +1,143 @@
+package com.rudsi.paymtool.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import com.rudsi.paymtool.dto.CustomerContact;
+import com.rudsi.paymtool.entity.CustomerDetails;
+import com.rudsi.paymtool.repository.CustomerDetailsRepository;
+
+/**
+ * Compares the entity lookup with the read-only projection lookup of
+ * {@link CustomerDetailsRepository}.
+ * <p>
+ * Both benchmarks run against an in-memory H2 database through the real JPA
+ * stack, so the difference is the persistence context work (entity
+ * instantiation, dirty-checking snapshots, flush checks) rather than the
+ * database. The profile always runs with {@code -prof gc}, which shows the
+ * allocation rate per lookup:
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="LookupQueryBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupQueryBenchmark {
+
+    @Param("10000")
+    private int customers;
+
+    private ConfigurableApplicationContext context;
+
+    private CustomerDetailsRepository repo;
+
+    private byte[][] indexes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Passed as arguments so they take precedence over application.properties.
+        context = new SpringApplicationBuilder(BenchmarkConfiguration.class).run(
+                "--spring.main.web-application-type=none",
+                "--spring.main.banner-mode=off",
+                "--spring.devtools.restart.enabled=false",
+                "--spring.flyway.enabled=false",
+                "--spring.datasource.url=jdbc:h2:mem:lookup;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.hikari.data-source-properties.prepareThreshold=",
+                "--spring.datasource.hikari.data-source-properties.preparedStatementCacheQueries=",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--logging.level.root=WARN");
+        repo = context.getBean(CustomerDetailsRepository.class);
+
+        SplittableRandom random = new SplittableRandom(42);
+        indexes = new byte[customers][];
+        List<CustomerDetails> batch = new ArrayList<>();
+        for (int i = 0; i < customers; i++) {
+            indexes[i] = randomBytes(random, 32);
+            CustomerDetails customer = new CustomerDetails();
+            customer.setCardNumberIndex(indexes[i]);
+            customer.setEncryptedCardNumber(randomBytes(random, 44));
+            customer.setCardKeyId(1);
+            customer.setName("Customer " + i);
+            customer.setMobile("98765" + String.format("%05d", i % 100_000));
+            customer.setEmail("customer" + i + "@example.com");
+            batch.add(customer);
+            if (batch.size() == 1000) {
+                repo.saveAll(batch);
+                batch.clear();
+            }
+        }
+        repo.saveAll(batch);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /** Lookup before the change: loads the managed entity and maps it. */
+    @Benchmark
+    public CustomerContact entity(Cursor cursor) {
+        return repo.findByCardNumberIndex(indexes[cursor.next(customers)])
+                .map(customer -> new CustomerContact(customer.getName(), customer.getMobile(), customer.getEmail()))
+                .orElse(null);
+    }
+
+    /** Lookup after the change: record projection in a read-only transaction. */
+    @Benchmark
+    public CustomerContact projection(Cursor cursor) {
+        return repo.findContactByCardNumberIndex(indexes[cursor.next(customers)]).orElse(null);
+    }
+
+    /** Per-thread walk over the stored indexes. */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private final SplittableRandom random = new SplittableRandom();
+
+        int next(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+
+    private static byte[] randomBytes(SplittableRandom random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /** Minimal context with only the JPA stack and the customer repository. */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = CustomerDetails.class)
+    @EnableJpaRepositories(basePackageClasses = CustomerDetailsRepository.class)
+    static class BenchmarkConfiguration {
+    }
+}
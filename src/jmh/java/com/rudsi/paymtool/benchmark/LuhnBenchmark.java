@@ -0,0 +1,130 @@
+package com.rudsi.paymtool.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rudsi.paymtool.util.LunhValidation;
+
+/**
+ * Compares Luhn validation before and after the single-pass validator, and the
+ * scalar and vectorized batch modes.
+ * <p>
+ * {@code regex} is the validation before the change: the {@code \d{12,19}}
+ * pattern is matched twice, then the checksum is computed. The batch
+ * benchmarks validate {@value #BATCH} card numbers per invocation and report
+ * the time per card. {@code batchVector} runs in a fork with
+ * {@code --add-modules jdk.incubator.vector}; {@code batchScalar} runs without
+ * it and falls back to the scalar loop. The profile always runs with
+ * {@code -prof gc}, which shows the allocation per card:
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="LuhnBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LuhnBenchmark {
+
+    private static final int BATCH = 1024;
+
+    private final String cardNumber = "4539578763621486";
+
+    private final byte[] cardBytes = cardNumber.getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] slots;
+
+    private boolean[] results;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        slots = new byte[BATCH * LunhValidation.BATCH_SLOT_WIDTH];
+        results = new boolean[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            StringBuilder digits = new StringBuilder();
+            int length = 12 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                digits.append((char) ('0' + random.nextInt(10)));
+            }
+            LunhValidation.packBatchSlot(digits, slots, i);
+        }
+    }
+
+    /** Validation before the change. */
+    @Benchmark
+    public boolean regex() {
+        return regexValidate(cardNumber);
+    }
+
+    @Benchmark
+    public boolean singlePassString() {
+        return LunhValidation.isValid(cardNumber);
+    }
+
+    /** Throwing variant used by the request paths. */
+    @Benchmark
+    public void singlePassValidate() {
+        LunhValidation.validate(cardNumber);
+    }
+
+    @Benchmark
+    public boolean singlePassBytes() {
+        return LunhValidation.isValid(cardBytes, 0, cardBytes.length);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public boolean[] batchScalar() {
+        LunhValidation.isValidBatch(slots, BATCH, results);
+        return results;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    @Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+    public boolean[] batchVector() {
+        LunhValidation.isValidBatch(slots, BATCH, results);
+        return results;
+    }
+
+    private static boolean regexValidate(String cardNumber) {
+        if (!cardNumber.matches("\\d{12,19}")) {
+            throw new IllegalArgumentException("Card number must be numeric and between 12 and 19 digits");
+        }
+        if (!cardNumber.matches("\\d{12,19}")) {
+            throw new IllegalArgumentException("Card number must contain only digits");
+        }
+        int sum = 0;
+        boolean doubleDigit = false;
+        for (int i = cardNumber.length() - 1; i >= 0; i--) {
+            int digit = cardNumber.charAt(i) - '0';
+            if (doubleDigit) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubleDigit = !doubleDigit;
+        }
+        return sum % 10 == 0;
+    }
+}
@@ -0,0 +1,71 @@
+package com.rudsi.paymtool.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rudsi.paymtool.dto.DecryptedCustomerDetailsRequest;
+import com.rudsi.paymtool.util.PayloadParser;
+
+/**
+ * Compares ways of parsing a decrypted request payload.
+ * <p>
+ * The payload is the plaintext a lookup or persistence request decrypts to.
+ * {@code stringThenMapper} is the parsing before {@link PayloadParser}: the
+ * decrypted bytes are decoded into a {@code String} that an {@link ObjectMapper}
+ * then parses. The profile always runs with {@code -prof gc}, which shows the
+ * allocation per parse:
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="PayloadParseBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadParseBenchmark {
+
+    private final byte[] payload = """
+            {
+                "cardNumber": "4512567890123456",
+                "name": "Rudsi Test User",
+                "mobile": "9876543210",
+                "email": "testuser@rudsi.com"
+            }
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /** Parsing before the change: bytes to {@code String}, then a full bind. */
+    @Benchmark
+    public DecryptedCustomerDetailsRequest stringThenMapper() throws JsonProcessingException {
+        String decryptedJson = new String(payload, StandardCharsets.UTF_8);
+        return mapper.readValue(decryptedJson, DecryptedCustomerDetailsRequest.class);
+    }
+
+    /** Persistence path: full bind straight from the bytes with the shared reader. */
+    @Benchmark
+    public DecryptedCustomerDetailsRequest readerFromBytes() {
+        return PayloadParser.readRequest(payload);
+    }
+
+    /** Lookup path: streaming extraction of the card number only. */
+    @Benchmark
+    public String cardNumberOnly() {
+        return PayloadParser.readCardNumber(payload);
+    }
+}
@@ -0,0 +1,177 @@
+package com.rudsi.paymtool.loadtest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import javax.crypto.Cipher;
+
+import com.rudsi.paymtool.util.TestPayloadGenerator;
+
+/**
+ * Generates a corpus of RSA-encrypted lookup requests for {@link LoadTestRunner}.
+ * <p>
+ * Each corpus line is a {@code /details} request body,
+ * {@code {"encryptedData":"..."}}, so the file can also be posted to
+ * {@code /details/batch}. Requests are encrypted like those of
+ * {@link TestPayloadGenerator}, with the server's public key, and are of three
+ * kinds:
+ * <ul>
+ * <li>hits: a card of the customers file, which is written next to the corpus
+ * and loaded with the {@code import} profile;</li>
+ * <li>misses: a Luhn-valid card that is not stored;</li>
+ * <li>invalid: a card failing the Luhn check, answered with {@code 400}.</li>
+ * </ul>
+ * The mix and the cards depend only on the options and {@code --seed}; the
+ * ciphertexts differ between runs because OAEP padding is randomized.
+ * <p>
+ * Options: {@code --out} (required), {@code --requests} (default 1000000),
+ * {@code --customers} (default 10000), {@code --hit-ratio} (share of valid
+ * requests for a stored card, default 0.8), {@code --invalid-ratio} (default
+ * 0.05), {@code --seed} (default 42) and {@code --customers-file} (default
+ * {@code <out>.customers.csv}).
+ */
+public class LoadCorpusGenerator {
+
+    /** Requests generated, encrypted and written together. */
+    private static final int BLOCK = 10_000;
+
+    private static final int CARD_LENGTH = 16;
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Path out = Path.of(options.required("out"));
+        long requests = options.longValue("requests", 1_000_000);
+        int customers = options.intValue("customers", 10_000);
+        double hitRatio = options.doubleValue("hit-ratio", 0.8);
+        double invalidRatio = options.doubleValue("invalid-ratio", 0.05);
+        Path customersFile = Path.of(options.string("customers-file", out + ".customers.csv"));
+        SplittableRandom random = new SplittableRandom(options.longValue("seed", 42));
+
+        if (customers < 1 || hitRatio < 0 || hitRatio > 1 || invalidRatio < 0 || invalidRatio > 1) {
+            throw new IllegalArgumentException("Need --customers >= 1 and ratios between 0 and 1");
+        }
+
+        // Stored cards start with 4 and unknown cards with 5, so they never overlap.
+        List<String> stored = storedCards(random, customers);
+        writeCustomers(customersFile, stored);
+
+        PublicKey publicKey = TestPayloadGenerator.loadPublicKey();
+        ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(() -> {
+            try {
+                return TestPayloadGenerator.newCipher(publicKey);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot create RSA cipher", e);
+            }
+        });
+
+        long start = System.nanoTime();
+        long hits = 0;
+        long misses = 0;
+        long invalid = 0;
+        String[] payloads = new String[BLOCK];
+        String[] lines = new String[BLOCK];
+        try (BufferedWriter writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            for (long done = 0; done < requests; ) {
+                int count = (int) Math.min(BLOCK, requests - done);
+                // Cards are drawn in order so the corpus only depends on the seed;
+                // encryption, the expensive part, runs in parallel.
+                for (int i = 0; i < count; i++) {
+                    String cardNumber;
+                    if (random.nextDouble() < invalidRatio) {
+                        cardNumber = breakCheckDigit(randomCard(random, '5'));
+                        invalid++;
+                    } else if (random.nextDouble() < hitRatio) {
+                        cardNumber = stored.get(random.nextInt(stored.size()));
+                        hits++;
+                    } else {
+                        cardNumber = randomCard(random, '5');
+                        misses++;
+                    }
+                    payloads[i] = "{\"cardNumber\":\"" + cardNumber + "\"}";
+                }
+                IntStream.range(0, count).parallel().forEach(i -> lines[i] = requestLine(ciphers.get(), payloads[i]));
+                for (int i = 0; i < count; i++) {
+                    writer.write(lines[i]);
+                    writer.newLine();
+                }
+                done += count;
+                if (done % (10 * BLOCK) == 0 || done == requests) {
+                    System.out.printf("%d/%d requests written%n", done, requests);
+                }
+            }
+        }
+
+        System.out.printf("Wrote %d requests to %s in %.1f s: %d hits, %d misses, %d invalid%n",
+                requests, out, (System.nanoTime() - start) / 1e9, hits, misses, invalid);
+        System.out.printf("Wrote %d stored customers to %s; load them with%n"
+                + "  java -jar paymtool.jar --spring.profiles.active=import --app.import.file=%s%n",
+                stored.size(), customersFile, customersFile);
+    }
+
+    private static List<String> storedCards(SplittableRandom random, int customers) {
+        LinkedHashSet<String> cards = new LinkedHashSet<>();
+        while (cards.size() < customers) {
+            cards.add(randomCard(random, '4'));
+        }
+        return List.copyOf(cards);
+    }
+
+    private static void writeCustomers(Path file, List<String> cards) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("cardNumber,name,mobile,email");
+            writer.newLine();
+            for (int i = 0; i < cards.size(); i++) {
+                writer.write(cards.get(i) + ",Load Test " + i + "," + (9_000_000_000L + i) + ",load" + i + "@example.com");
+                writer.newLine();
+            }
+        }
+    }
+
+    /** Returns a random Luhn-valid card number with the given first digit. */
+    private static String randomCard(SplittableRandom random, char firstDigit) {
+        char[] digits = new char[CARD_LENGTH];
+        digits[0] = firstDigit;
+        for (int i = 1; i < CARD_LENGTH - 1; i++) {
+            digits[i] = (char) ('0' + random.nextInt(10));
+        }
+        int sum = 0;
+        // Sum from the right, doubling every second digit starting with the one
+        // left of the check digit.
+        for (int i = CARD_LENGTH - 2, position = 1; i >= 0; i--, position++) {
+            int digit = digits[i] - '0';
+            if (position % 2 == 1) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        digits[CARD_LENGTH - 1] = (char) ('0' + (10 - sum % 10) % 10);
+        return new String(digits);
+    }
+
+    private static String breakCheckDigit(String cardNumber) {
+        char check = cardNumber.charAt(CARD_LENGTH - 1);
+        return cardNumber.substring(0, CARD_LENGTH - 1) + (char) ('0' + (check - '0' + 1) % 10);
+    }
+
+    private static String requestLine(Cipher cipher, String payload) {
+        try {
+            byte[] ciphertext = cipher.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            return "{\"encryptedData\":\"" + Base64.getEncoder().encodeToString(ciphertext) + "\"}";
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot encrypt request payload", e);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.rudsi.paymtool.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Replays a corpus written by {@link LoadCorpusGenerator} against a running
+ * application at a fixed arrival rate and reports latency percentiles and
+ * throughput.
+ * <p>
+ * Request {@code i} is due at {@code start + i / rate}, whether or not earlier
+ * requests have been answered, and its latency is measured from that due time
+ * rather than from when it was actually sent. A stalled server therefore shows
+ * up as latency for every request that should have been sent during the stall,
+ * instead of being hidden by the client waiting with it (coordinated
+ * omission). Latencies are recorded in an HdrHistogram with three significant
+ * digits. The corpus is read as it is replayed, and from the start again when
+ * it runs out.
+ * <p>
+ * Options: {@code --corpus} (required), {@code --url} (default
+ * {@code https://localhost:8443/api/v1/customer/details}), {@code --rate} in
+ * requests per second (default 100), {@code --duration} (default 60s),
+ * {@code --warmup} (default 10s, not recorded), {@code --max-in-flight}
+ * (default 10000), {@code --histogram-file} (percentile distribution in
+ * HdrHistogram's {@code .hgrm} format, in milliseconds) and {@code --insecure}
+ * (trust any server certificate, for the self-signed certificate of a local
+ * instance).
+ */
+public class LoadTestRunner {
+
+    /** Highest latency recorded, in microseconds; longer ones are clamped. */
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final HttpClient client;
+
+    private final URI uri;
+
+    private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    private final LongAdder completed = new LongAdder();
+
+    private LoadTestRunner(HttpClient client, URI uri) {
+        this.client = client;
+        this.uri = uri;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Path corpus = Path.of(options.required("corpus"));
+        URI uri = URI.create(options.string("url", "https://localhost:8443/api/v1/customer/details"));
+        double rate = options.doubleValue("rate", 100);
+        Duration duration = options.duration("duration", Duration.ofSeconds(60));
+        Duration warmup = options.duration("warmup", Duration.ofSeconds(10));
+        int maxInFlight = options.intValue("max-in-flight", 10_000);
+        String histogramFile = options.string("histogram-file", null);
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10));
+        if (options.flag("insecure")) {
+            System.setProperty("jdk.internal.httpclient.disableHostnameVerification", "true");
+            builder.sslContext(trustAll());
+        }
+
+        LoadTestRunner runner = new LoadTestRunner(builder.build(), uri);
+        runner.run(corpus, rate, warmup, duration, maxInFlight);
+        runner.report(System.out, rate, duration);
+        if (histogramFile != null) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(Path.of(histogramFile)), true,
+                    StandardCharsets.UTF_8)) {
+                runner.latencies.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    /**
+     * Sends the warm-up and the measured requests on schedule and waits for
+     * the outstanding responses.
+     */
+    private void run(Path corpus, double rate, Duration warmup, Duration duration, int maxInFlight)
+            throws IOException, InterruptedException {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long maxLag = 0;
+
+        System.out.printf("Replaying %s against %s at %.0f requests/s for %s after a %s warm-up%n",
+                corpus, uri, rate, duration, warmup);
+        BufferedReader reader = Files.newBufferedReader(corpus, StandardCharsets.UTF_8);
+        try {
+            for (long i = 0; ; i++) {
+                long due = start + i * interval;
+                if (due >= end) {
+                    break;
+                }
+                String body = reader.readLine();
+                if (body == null) {
+                    reader.close();
+                    reader = Files.newBufferedReader(corpus, StandardCharsets.UTF_8);
+                    body = reader.readLine();
+                    if (body == null) {
+                        throw new IllegalArgumentException("Corpus is empty: " + corpus);
+                    }
+                }
+
+                for (long now = System.nanoTime(); now < due; now = System.nanoTime()) {
+                    LockSupport.parkNanos(due - now);
+                }
+                // Waiting for a slot delays the send but not the due time, so the
+                // wait is part of the measured latency.
+                inFlight.acquire();
+                maxLag = Math.max(maxLag, System.nanoTime() - due);
+                send(body, due, due >= measureFrom, inFlight);
+            }
+            if (!inFlight.tryAcquire(maxInFlight, 60, TimeUnit.SECONDS)) {
+                System.out.println("Gave up waiting for responses after 60 s");
+            }
+        } finally {
+            reader.close();
+        }
+        if (maxLag > TimeUnit.MILLISECONDS.toNanos(10)) {
+            System.out.printf("Sends fell up to %.1f ms behind schedule; latencies include the delay%n",
+                    maxLag / 1e6);
+        }
+    }
+
+    private void send(String body, long due, boolean recorded, Semaphore inFlight) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, failure) -> {
+            long latency = System.nanoTime() - due;
+            if (recorded) {
+                latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latency), MAX_LATENCY_MICROS));
+                completed.increment();
+                outcomes.computeIfAbsent(outcome(response, failure), o -> new LongAdder()).increment();
+            }
+            // Released last, so the report sees every response once all slots are free.
+            inFlight.release();
+        });
+    }
+
+    /** Classifies a response by its lookup status, or by HTTP status if it failed. */
+    private static String outcome(HttpResponse<String> response, Throwable failure) {
+        if (failure != null) {
+            return failure.getClass().getSimpleName();
+        }
+        if (response.statusCode() == 200) {
+            String body = response.body();
+            if (body.contains("\"status\":\"APPROVED\"")) {
+                return "APPROVED";
+            }
+            if (body.contains("\"status\":\"DECLINED\"")) {
+                return "DECLINED";
+            }
+        }
+        return "HTTP " + response.statusCode();
+    }
+
+    private void report(PrintStream out, double rate, Duration duration) {
+        double seconds = duration.toNanos() / 1e9;
+        out.printf("%nRequests: %d in %.0f s, %.1f/s completed (target %.0f/s)%n",
+                completed.sum(), seconds, completed.sum() / seconds, rate);
+        Map<String, Long> counts = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+        counts.forEach((outcome, count) -> out.printf("  %-20s %d%n", outcome, count));
+
+        out.println("Latency from scheduled send time (ms):");
+        String[] labels = { "p50", "p90", "p99", "p99.9", "p99.99" };
+        double[] percentiles = { 50, 90, 99, 99.9, 99.99 };
+        for (int i = 0; i < labels.length; i++) {
+            out.printf("  %-8s %10.2f%n", labels[i], latencies.getValueAtPercentile(percentiles[i]) / 1000.0);
+        }
+        out.printf("  %-8s %10.2f%n", "max", latencies.getMaxValue() / 1000.0);
+    }
+
+    /** An SSL context accepting any server certificate, for local test instances only. */
+    private static SSLContext trustAll() throws GeneralSecurityException {
+        TrustManager trustAll = new X509TrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        };
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, new TrustManager[] { trustAll }, new SecureRandom());
+        return context;
+    }
+}
@@ -0,0 +1,249 @@
+package com.rudsi.paymtool.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.rudsi.paymtool.dto.CardIndexEntry;
+import com.rudsi.paymtool.repository.CustomerDetailsRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Negative-lookup filter over the blind indexes of all stored cards.
+ * <p>
+ * A Bloom filter answers "definitely not stored" without a database round trip,
+ * so lookups for unknown cards can be declined immediately. The filter is built
+ * from {@link CustomerDetailsRepository} shortly after startup, receives every
+ * newly persisted card, and is rebuilt in the background at a fixed interval so
+ * that its false-positive rate does not drift as the table grows. Until the
+ * first build completes, every card is reported as possibly stored.
+ * <p>
+ * Cards written by other application instances or by a bulk import are picked
+ * up by a catch-up that runs every few seconds ({@code app.filter.catch-up-interval})
+ * and adds the customers created since the previous catch-up. It goes by
+ * {@code created_at} rather than by id: ids come from a sequence in pooled
+ * blocks, so a card stored by another instance can get an id far below ones
+ * already seen. Each catch-up reaches back {@code app.filter.catch-up-overlap}
+ * before the previous one, to cover clock skew between instances and
+ * transactions that commit after the row's creation time.
+ * <p>
+ * Published metrics: {@code paymtool.filter.skipped} (lookups answered without a
+ * query), {@code paymtool.filter.false.positives} (queries the filter let through
+ * that found nothing), {@code paymtool.filter.expected.fpp} and
+ * {@code paymtool.filter.memory}.
+ */
+@Component
+public class CardIndexFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardIndexFilter.class);
+
+    /** Number of blind indexes read per query while building the filter. */
+    private static final int BUILD_CHUNK_SIZE = 10_000;
+
+    /** Lower bound of the filter capacity, so small tables still leave room to grow. */
+    private static final long MIN_CAPACITY = 100_000;
+
+    private final CustomerDetailsRepository repo;
+
+    private final boolean enabled;
+
+    private final double falsePositiveRate;
+
+    private final double growthFactor;
+
+    private final Duration catchUpOverlap;
+
+    private final Counter skipped;
+
+    private final Counter falsePositives;
+
+    /** Filter answering queries; {@code null} until the first build completes. */
+    private volatile BloomFilter current;
+
+    /** Filter being built; receives concurrent adds so none are lost on swap. */
+    private volatile BloomFilter building;
+
+    /**
+     * Time from which every created customer is known to be in the filter, before
+     * the overlap is applied; {@code null} until the first build completes.
+     */
+    private final AtomicReference<Instant> caughtUpTo = new AtomicReference<>();
+
+    /**
+     * Creates the filter component.
+     *
+     * @param repo              repository the filter is built from
+     * @param enabled           whether lookups consult the filter
+     * @param falsePositiveRate target false-positive probability at capacity
+     * @param growthFactor      capacity headroom relative to the current row count
+     * @param catchUpOverlap    how far each catch-up reaches back before the previous one
+     * @param meterRegistry     registry used to publish filter metrics
+     */
+    public CardIndexFilter(
+            CustomerDetailsRepository repo,
+            @Value("${app.filter.enabled:true}") boolean enabled,
+            @Value("${app.filter.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${app.filter.growth-factor:1.5}") double growthFactor,
+            @Value("${app.filter.catch-up-overlap:30s}") Duration catchUpOverlap,
+            MeterRegistry meterRegistry) {
+        this.repo = repo;
+        this.enabled = enabled;
+        this.falsePositiveRate = falsePositiveRate;
+        this.growthFactor = growthFactor;
+        this.catchUpOverlap = catchUpOverlap;
+        this.skipped = Counter.builder("paymtool.filter.skipped")
+                .description("Lookups declined by the card filter without a database query")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("paymtool.filter.false.positives")
+                .description("Lookups passed by the card filter that found no customer")
+                .register(meterRegistry);
+        Gauge.builder("paymtool.filter.expected.fpp", this,
+                f -> f.current != null ? f.current.expectedFalsePositiveRate() : 1.0)
+                .description("Expected false-positive probability of the card filter")
+                .register(meterRegistry);
+        Gauge.builder("paymtool.filter.memory", this,
+                f -> f.current != null ? f.current.sizeInBytes() : 0)
+                .description("Memory held by the card filter")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reports whether a card may be stored.
+     * <p>
+     * A {@code false} result is definite and is counted as a skipped query.
+     *
+     * @param cardNumberIndex blind index of the card number
+     * @return {@code false} if the card is definitely not stored
+     */
+    public boolean mightContain(byte[] cardNumberIndex) {
+        BloomFilter filter = current;
+        if (!enabled || filter == null || filter.mightContain(cardNumberIndex)) {
+            return true;
+        }
+        skipped.increment();
+        return false;
+    }
+
+    /**
+     * Records that a lookup let through by the filter found no customer.
+     */
+    public void recordFalsePositive() {
+        if (enabled && current != null) {
+            falsePositives.increment();
+        }
+    }
+
+    /**
+     * Adds a newly stored card to the filter.
+     *
+     * @param cardNumberIndex blind index of the card number
+     */
+    public void add(byte[] cardNumberIndex) {
+        // Read the filter being built first: a concurrent swap publishes it as
+        // current before clearing it, so the add always reaches the new filter.
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(cardNumberIndex);
+        }
+        BloomFilter filter = current;
+        if (filter != null && filter != next) {
+            filter.put(cardNumberIndex);
+        }
+    }
+
+    /**
+     * Rebuilds the filter from the repository and swaps it in.
+     * <p>
+     * Runs once right after startup and then at {@code app.filter.rebuild-interval}.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.filter.rebuild-interval:PT1H}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        Instant startedAt = Instant.now();
+        long capacity = Math.max(MIN_CAPACITY, (long) (repo.count() * growthFactor));
+        BloomFilter next = BloomFilter.create(capacity, falsePositiveRate);
+        building = next;
+        try {
+            long afterId = 0;
+            List<CardIndexEntry> chunk;
+            do {
+                chunk = repo.findCardIndexesAfter(afterId, Limit.of(BUILD_CHUNK_SIZE));
+                for (CardIndexEntry entry : chunk) {
+                    next.put(entry.cardNumberIndex());
+                }
+                if (!chunk.isEmpty()) {
+                    afterId = chunk.get(chunk.size() - 1).id();
+                }
+            } while (chunk.size() == BUILD_CHUNK_SIZE);
+
+            current = next;
+            advanceCaughtUpTo(startedAt);
+            logger.info("Rebuilt card filter with {} entries ({} bytes, expected fpp {}) in {} ms",
+                    next.insertions(), next.sizeInBytes(), String.format("%.5f", next.expectedFalsePositiveRate()),
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            logger.error("Failed to rebuild card filter, keeping the previous one", e);
+        } finally {
+            building = null;
+        }
+    }
+
+    /**
+     * Adds the customers created since the previous catch-up or build, less the
+     * overlap, so that cards stored by other instances are not declined until the
+     * next rebuild.
+     * <p>
+     * Runs every {@code app.filter.catch-up-interval} once the first build has
+     * completed. A failed catch-up is retried from the same time.
+     */
+    @Scheduled(initialDelayString = "${app.filter.catch-up-interval:PT5S}",
+            fixedDelayString = "${app.filter.catch-up-interval:PT5S}")
+    public void catchUp() {
+        Instant from = caughtUpTo.get();
+        if (!enabled || from == null) {
+            return;
+        }
+        Instant startedAt = Instant.now();
+        Instant since = from.minus(catchUpOverlap);
+        try {
+            long afterId = 0;
+            long read = 0;
+            List<CardIndexEntry> chunk;
+            do {
+                chunk = repo.findCardIndexesCreatedSince(since, afterId, Limit.of(BUILD_CHUNK_SIZE));
+                for (CardIndexEntry entry : chunk) {
+                    add(entry.cardNumberIndex());
+                }
+                if (!chunk.isEmpty()) {
+                    afterId = chunk.get(chunk.size() - 1).id();
+                }
+                read += chunk.size();
+            } while (chunk.size() == BUILD_CHUNK_SIZE);
+
+            advanceCaughtUpTo(startedAt);
+            logger.debug("Card filter caught up on {} customers created since {}", read, since);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to catch up card filter from {}, retrying at the next interval", since, e);
+        }
+    }
+
+    private void advanceCaughtUpTo(Instant time) {
+        caughtUpTo.accumulateAndGet(time,
+                (previous, next) -> previous == null || next.isAfter(previous) ? next : previous);
+    }
+}
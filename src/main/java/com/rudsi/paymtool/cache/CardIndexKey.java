@@ -0,0 +1,36 @@
+package com.rudsi.paymtool.cache;
+
+import java.util.Arrays;
+
+/**
+ * Hash key wrapping a card number blind index.
+ * <p>
+ * Blind indexes are HMAC outputs and therefore uniformly distributed, so the
+ * first four bytes serve directly as the hash code without hashing the whole
+ * array. The wrapped array must not be modified after construction.
+ */
+public final class CardIndexKey {
+
+    private final byte[] index;
+
+    private final int hash;
+
+    public CardIndexKey(byte[] index) {
+        this.index = index;
+        this.hash = (index[0] << 24) | ((index[1] & 0xff) << 16) | ((index[2] & 0xff) << 8) | (index[3] & 0xff);
+    }
+
+    public byte[] index() {
+        return index;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof CardIndexKey key && hash == key.hash && Arrays.equals(index, key.index);
+    }
+}
@@ -0,0 +1,261 @@
+package com.rudsi.paymtool.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.rudsi.paymtool.dto.CardSnapshotEntry;
+import com.rudsi.paymtool.dto.CustomerContact;
+import com.rudsi.paymtool.repository.CustomerDetailsRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Memory-mapped snapshot of every stored card's blind index and contact details,
+ * answering lookups off-heap without a database round trip.
+ * <p>
+ * The snapshot is an open-addressing hash file (see {@link SnapshotFile})
+ * exported from {@link CustomerDetailsRepository} by a background job. Each
+ * refresh writes a new file next to the current one, moves it into place
+ * atomically and swaps the mapped view in, so lookups never see a partially
+ * written table. A snapshot left on disk by a previous run is mapped at startup,
+ * which keeps lookups working before the first refresh and while the database
+ * is slow or unavailable.
+ * <p>
+ * The database stays the source of truth. Cards persisted since the last refresh
+ * are not in the snapshot, so a snapshot miss falls back to the regular lookup
+ * path; contact changes become visible here after the next refresh.
+ * <p>
+ * A replaced snapshot is unmapped as soon as the lookups still reading it have
+ * finished, so its deleted file stops occupying disk and page cache. Should
+ * lookups hold more than {@code app.lookup.snapshot.max-retired} replaced
+ * snapshots, refreshes are skipped until they are released.
+ * <p>
+ * Disabled by default ({@code app.lookup.snapshot.enabled}). Published metrics:
+ * {@code paymtool.snapshot.lookups} (tagged {@code result=hit|miss}),
+ * {@code paymtool.snapshot.entries}, {@code paymtool.snapshot.size},
+ * {@code paymtool.snapshot.retired} and {@code paymtool.snapshot.age}.
+ */
+@Component
+public class CardIndexSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardIndexSnapshot.class);
+
+    /** Number of customers read per query while exporting the snapshot. */
+    private static final int EXPORT_CHUNK_SIZE = 10_000;
+
+    /** Capacity headroom over the row count, absorbing rows inserted during an export. */
+    private static final double CAPACITY_HEADROOM = 1.25;
+
+    private final CustomerDetailsRepository repo;
+
+    private final boolean enabled;
+
+    private final Path path;
+
+    private final int maxRetired;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    /** Mapped snapshot answering lookups; {@code null} until one is available. */
+    private volatile SnapshotFile.Reader current;
+
+    /** Replaced snapshots that may still be mapped for lookups in progress. */
+    private final Set<SnapshotFile.Reader> retired = ConcurrentHashMap.newKeySet();
+
+    /** Time the current snapshot was written. */
+    private volatile Instant writtenAt;
+
+    /**
+     * Creates the snapshot component and maps a snapshot left by a previous run.
+     *
+     * @param repo          repository the snapshot is exported from
+     * @param enabled       whether lookups consult the snapshot
+     * @param path          location of the snapshot file
+     * @param maxRetired    replaced snapshots lookups may hold mapped before
+     *                      refreshes are skipped
+     * @param meterRegistry registry used to publish snapshot metrics
+     */
+    public CardIndexSnapshot(
+            CustomerDetailsRepository repo,
+            @Value("${app.lookup.snapshot.enabled:false}") boolean enabled,
+            @Value("${app.lookup.snapshot.path:data/card-index.snapshot}") Path path,
+            @Value("${app.lookup.snapshot.max-retired:2}") int maxRetired,
+            MeterRegistry meterRegistry) {
+        this.repo = repo;
+        this.enabled = enabled;
+        this.path = path;
+        this.maxRetired = maxRetired;
+        this.hits = lookupCounter(meterRegistry, "hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+        Gauge.builder("paymtool.snapshot.entries", this,
+                s -> s.current != null ? s.current.entryCount() : 0)
+                .description("Cards held by the card index snapshot")
+                .register(meterRegistry);
+        Gauge.builder("paymtool.snapshot.size", this,
+                s -> s.current != null ? s.current.sizeInBytes() : 0)
+                .description("Size of the mapped card index snapshot")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("paymtool.snapshot.retired", this, CardIndexSnapshot::retiredBytes)
+                .description("Size of replaced card index snapshots still mapped for lookups in progress")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("paymtool.snapshot.age", this,
+                s -> s.writtenAt != null ? Duration.between(s.writtenAt, Instant.now()).toSeconds() : -1)
+                .description("Age of the card index snapshot")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+
+        if (enabled && Files.exists(path)) {
+            try {
+                current = SnapshotFile.open(path);
+                writtenAt = Files.getLastModifiedTime(path).toInstant();
+                logger.info("Mapped existing card index snapshot with {} entries from {}",
+                        current.entryCount(), path);
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable card index snapshot {}", path, e);
+            }
+        }
+    }
+
+    /**
+     * Looks up a card in the snapshot.
+     *
+     * @param cardNumberIndex blind index of the card number
+     * @return stored contact, or {@code null} if the snapshot is disabled,
+     *         unavailable or does not hold the card
+     */
+    public CustomerContact find(byte[] cardNumberIndex) {
+        if (!enabled) {
+            return null;
+        }
+        SnapshotFile.Reader snapshot;
+        do {
+            snapshot = current;
+            if (snapshot == null) {
+                return null;
+            }
+            // Fails only if a refresh replaced and unmapped it since it was read; retry the new one.
+        } while (!snapshot.acquire());
+        CustomerContact contact;
+        try {
+            contact = snapshot.find(cardNumberIndex);
+        } finally {
+            snapshot.release();
+        }
+        (contact != null ? hits : misses).increment();
+        return contact;
+    }
+
+    /**
+     * Exports a new snapshot from the repository and swaps it in.
+     * <p>
+     * Runs right after startup and then at {@code app.lookup.snapshot.refresh-interval}.
+     * A failed export keeps serving the previous snapshot.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.lookup.snapshot.refresh-interval:PT5M}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        retired.removeIf(SnapshotFile.Reader::isClosed);
+        if (retired.size() >= maxRetired) {
+            logger.warn("Skipping card index snapshot refresh: {} replaced snapshots ({} bytes) are still in use",
+                    retired.size(), retiredBytes());
+            return;
+        }
+        long started = System.nanoTime();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            long capacity = (long) (repo.count() * CAPACITY_HEADROOM);
+            Instant exportStarted = Instant.now();
+            try (SnapshotFile.Writer writer = SnapshotFile.create(temp, capacity)) {
+                long afterId = 0;
+                List<CardSnapshotEntry> chunk;
+                do {
+                    chunk = repo.findSnapshotEntriesAfter(afterId, Limit.of(EXPORT_CHUNK_SIZE));
+                    for (CardSnapshotEntry entry : chunk) {
+                        writer.add(entry.cardNumberIndex(), entry.name(), entry.mobile(), entry.email());
+                    }
+                    if (!chunk.isEmpty()) {
+                        afterId = chunk.get(chunk.size() - 1).id();
+                    }
+                } while (chunk.size() == EXPORT_CHUNK_SIZE);
+                writer.finish();
+            }
+
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            SnapshotFile.Reader next = SnapshotFile.open(path);
+            retire(current);
+            current = next;
+            writtenAt = exportStarted;
+            logger.info("Refreshed card index snapshot with {} entries ({} bytes) in {} ms",
+                    next.entryCount(), next.sizeInBytes(), (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to refresh card index snapshot, keeping the previous one", e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+        }
+    }
+
+    /** Unmaps the snapshot when the application context shuts down. */
+    @PreDestroy
+    public void close() {
+        SnapshotFile.Reader snapshot = current;
+        current = null;
+        retire(snapshot);
+    }
+
+    /** Gives up the owner's reference; the reader is unmapped once its last lookup finishes. */
+    private void retire(SnapshotFile.Reader snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        retired.add(snapshot);
+        snapshot.release();
+        retired.removeIf(SnapshotFile.Reader::isClosed);
+    }
+
+    private long retiredBytes() {
+        long bytes = 0;
+        for (SnapshotFile.Reader snapshot : retired) {
+            if (!snapshot.isClosed()) {
+                bytes += snapshot.sizeInBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("paymtool.snapshot.lookups")
+                .description("Lookups answered from the card index snapshot")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,123 @@
+package com.rudsi.paymtool.cache;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rudsi.paymtool.dto.CustomerContact;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * In-process read-through cache of customer lookups keyed by card number blind
+ * index.
+ * <p>
+ * Only the {@link CustomerContact} projection is held, never card data. The
+ * cache is bounded by an estimate of its memory footprint
+ * ({@code app.cache.customer.max-size}) and entries expire a fixed time after
+ * being written ({@code app.cache.customer.ttl}). Writers keep it consistent by
+ * putting the new projection after a successful persist. Read-through loads
+ * only fill a missing entry, so a lookup that read a row before a concurrent
+ * write cannot replace the projection the writer put.
+ * <p>
+ * Hit/miss counts, evictions and size are published under the cache name
+ * {@code customerLookup}; the hit ratio and estimated footprint are published as
+ * {@code paymtool.cache.customer.hit.ratio} and
+ * {@code paymtool.cache.customer.memory}.
+ */
+@Component
+public class CustomerLookupCache {
+
+    /** Approximate per-entry overhead of the cache node, key and record headers. */
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    /** Approximate overhead of a {@link String} instance and its backing array. */
+    private static final int STRING_OVERHEAD_BYTES = 40;
+
+    private final Cache<CardIndexKey, CustomerContact> cache;
+
+    /**
+     * Creates the cache.
+     *
+     * @param maxSize       upper bound of the estimated memory footprint
+     * @param ttl           time after which an entry expires once written
+     * @param meterRegistry registry used to publish cache metrics
+     */
+    public CustomerLookupCache(
+            @Value("${app.cache.customer.max-size:64MB}") DataSize maxSize,
+            @Value("${app.cache.customer.ttl:10m}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((CardIndexKey key, CustomerContact contact) -> weigh(key, contact))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "customerLookup");
+        Gauge.builder("paymtool.cache.customer.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Ratio of customer lookups served from the cache")
+                .register(meterRegistry);
+        Gauge.builder("paymtool.cache.customer.memory", cache,
+                c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                .description("Estimated memory held by cached customer lookups")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached projection for a card, if present.
+     *
+     * @param cardNumberIndex blind index of the card number
+     * @return the cached projection, or {@code null} on a miss
+     */
+    public CustomerContact get(byte[] cardNumberIndex) {
+        return cache.getIfPresent(new CardIndexKey(cardNumberIndex));
+    }
+
+    /**
+     * Stores or replaces the projection for a card.
+     *
+     * @param cardNumberIndex blind index of the card number
+     * @param contact         projection to cache
+     */
+    public void put(byte[] cardNumberIndex, CustomerContact contact) {
+        cache.put(new CardIndexKey(cardNumberIndex), contact);
+    }
+
+    /**
+     * Stores the projection for a card loaded from the database, unless the card
+     * is already cached. An entry present by then was put by a writer after the
+     * load read the row, and is at least as recent.
+     *
+     * @param cardNumberIndex blind index of the card number
+     * @param contact         projection read from the database
+     */
+    public void putIfAbsent(byte[] cardNumberIndex, CustomerContact contact) {
+        cache.asMap().putIfAbsent(new CardIndexKey(cardNumberIndex), contact);
+    }
+
+    /**
+     * Removes the projection for a card.
+     *
+     * @param cardNumberIndex blind index of the card number
+     */
+    public void invalidate(byte[] cardNumberIndex) {
+        cache.invalidate(new CardIndexKey(cardNumberIndex));
+    }
+
+    private static int weigh(CardIndexKey key, CustomerContact contact) {
+        return ENTRY_OVERHEAD_BYTES + key.index().length
+                + weigh(contact.name()) + weigh(contact.mobile()) + weigh(contact.email());
+    }
+
+    private static int weigh(String value) {
+        return value == null ? 0 : STRING_OVERHEAD_BYTES + value.length();
+    }
+}
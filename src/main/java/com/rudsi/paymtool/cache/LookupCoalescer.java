@@ -0,0 +1,111 @@
+package com.rudsi.paymtool.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.rudsi.paymtool.dto.CustomerContact;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Coalesces concurrent database lookups of the same card into one query.
+ * <p>
+ * During retry storms many requests for the same card miss the cache at the
+ * same time. The first of them registers its query in a
+ * {@link ConcurrentHashMap} keyed by blind index and runs it; requests arriving
+ * while it is in flight wait for its result instead of querying themselves. The
+ * map locks only the bin of the key being registered, so lookups of different
+ * cards do not contend. The entry is removed once the query completes, after
+ * the caller's loader has cached the result.
+ * <p>
+ * Disabled with {@code app.lookup.coalescing.enabled=false}. Published metrics:
+ * {@code paymtool.lookup.queries} (tag {@code result=executed|coalesced}) and
+ * {@code paymtool.lookup.inflight}.
+ */
+@Component
+public class LookupCoalescer {
+
+    private final boolean enabled;
+
+    private final ConcurrentHashMap<CardIndexKey, CompletableFuture<CustomerContact>> inFlight =
+            new ConcurrentHashMap<>();
+
+    private final Counter executed;
+
+    private final Counter coalesced;
+
+    /**
+     * Creates the coalescer.
+     *
+     * @param enabled       whether concurrent lookups of a card share one query
+     * @param meterRegistry registry used to publish coalescing metrics
+     */
+    public LookupCoalescer(
+            @Value("${app.lookup.coalescing.enabled:true}") boolean enabled,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.executed = queryCounter(meterRegistry, "executed");
+        this.coalesced = queryCounter(meterRegistry, "coalesced");
+        Gauge.builder("paymtool.lookup.inflight", inFlight, ConcurrentHashMap::size)
+                .description("Card lookups currently running against the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads a card through the given query, or waits for the query of a
+     * concurrent lookup of the same card.
+     *
+     * @param cardNumberIndex blind index of the card
+     * @param loader          query loading the card, run only if no lookup of the
+     *                        card is in flight; exceptions it throws propagate to
+     *                        every waiting caller
+     * @return the customer's contact details, or {@code null} if not found
+     */
+    public CustomerContact load(byte[] cardNumberIndex, Supplier<CustomerContact> loader) {
+        if (!enabled) {
+            executed.increment();
+            return loader.get();
+        }
+
+        CardIndexKey key = new CardIndexKey(cardNumberIndex);
+        CompletableFuture<CustomerContact> call = new CompletableFuture<>();
+        CompletableFuture<CustomerContact> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        executed.increment();
+        try {
+            CustomerContact contact = loader.get();
+            call.complete(contact);
+            return contact;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private static Counter queryCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("paymtool.lookup.queries")
+                .description("Database card lookups, executed or coalesced into a concurrent one")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,380 @@
+package com.rudsi.paymtool.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rudsi.paymtool.dto.CustomerContact;
+
+/**
+ * On-disk format of the card index snapshot: an open-addressing hash table keyed
+ * by 32-byte blind indexes, followed by the contact records it points to.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * header  magic:int version:int slotCount:long entryCount:long dataStart:long
+ * slots   slotCount x (index:32 bytes, recordOffset:long), offset 0 = empty
+ * data    records of name, mobile, email, each as length:ushort + UTF-8 bytes
+ *         (length 0xFFFF = null)
+ * </pre>
+ * The slot count is a power of two and slots are probed linearly starting from
+ * the first eight bytes of the index, which are uniformly distributed because
+ * the index is an HMAC. Files are mapped in chunks of at most 1 GiB that
+ * overlap by {@link #CHUNK_OVERLAP} bytes, so a slot or record never straddles
+ * two chunks and tables larger than a single {@link MappedByteBuffer} work.
+ * <p>
+ * Mappings are released explicitly rather than left to the garbage collector,
+ * which may keep a replaced, already deleted file mapped for hours: a
+ * {@link Reader} counts the lookups using it and is unmapped once it has been
+ * released and the last of them has finished.
+ */
+final class SnapshotFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotFile.class);
+
+    /** Used to unmap buffers; {@code null} if unavailable, leaving them to the GC. */
+    private static final sun.misc.Unsafe UNSAFE = loadUnsafe();
+
+    private static final int MAGIC = 0x50594958;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+
+    private static final int INDEX_LENGTH = 32;
+
+    private static final int SLOT_SIZE = INDEX_LENGTH + Long.BYTES;
+
+    private static final int NULL_LENGTH = 0xFFFF;
+
+    private static final int CHUNK_SHIFT = 30;
+
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+
+    /** Upper bound of a slot or record; every chunk maps this much past its end. */
+    private static final int CHUNK_OVERLAP = 64 * 1024;
+
+    private static final int MIN_SLOTS = 1024;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Creates a snapshot file sized for the given number of entries.
+     *
+     * @param path     file to create or truncate
+     * @param capacity number of entries the table must hold; the table is kept
+     *                 at most three quarters full
+     * @return writer adding entries to the file
+     * @throws IOException if the file cannot be created
+     */
+    static Writer create(Path path, long capacity) throws IOException {
+        long slotCount = Long.highestOneBit(Math.max(MIN_SLOTS, capacity * 2) - 1) << 1;
+        return new Writer(path, slotCount);
+    }
+
+    /**
+     * Maps an existing snapshot file read-only.
+     *
+     * @param path snapshot file
+     * @return reader over the mapped file
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    static Reader open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Snapshot file is truncated: " + path);
+            }
+            MappedByteBuffer[] chunks = map(channel, MapMode.READ_ONLY, size);
+            ByteBuffer header = chunks[0];
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a card index snapshot: " + path);
+            }
+            long slotCount = header.getLong(8);
+            long entryCount = header.getLong(16);
+            long dataStart = header.getLong(24);
+            if (Long.bitCount(slotCount) != 1 || dataStart != HEADER_SIZE + slotCount * SLOT_SIZE || dataStart > size) {
+                throw new IOException("Corrupt card index snapshot: " + path);
+            }
+            return new Reader(chunks, slotCount, entryCount, size);
+        }
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, MapMode mode, long size) throws IOException {
+        int count = (int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+        MappedByteBuffer[] chunks = new MappedByteBuffer[Math.max(1, count)];
+        for (int i = 0; i < chunks.length; i++) {
+            long start = (long) i << CHUNK_SHIFT;
+            long length = Math.min(size - start, CHUNK_SIZE + CHUNK_OVERLAP);
+            chunks[i] = channel.map(mode, start, length);
+        }
+        return chunks;
+    }
+
+    private static long slotPosition(long slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static void unmap(MappedByteBuffer[] chunks) {
+        if (UNSAFE == null) {
+            return;
+        }
+        for (MappedByteBuffer chunk : chunks) {
+            UNSAFE.invokeCleaner(chunk);
+        }
+    }
+
+    private static sun.misc.Unsafe loadUnsafe() {
+        try {
+            Field field = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return (sun.misc.Unsafe) field.get(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.warn("Cannot unmap card index snapshots explicitly; replaced snapshots stay mapped until collected", e);
+            return null;
+        }
+    }
+
+    /**
+     * Read-only view of a mapped snapshot; safe for concurrent lookups.
+     * <p>
+     * Lookups must be bracketed by {@link #acquire()} and {@link #release()}. The
+     * owner holds one reference from {@link #open} and gives it up with
+     * {@link #release()} when it stops handing the reader out; the file is
+     * unmapped when the last reference is released, after which
+     * {@link #acquire()} fails.
+     */
+    static final class Reader {
+
+        private final MappedByteBuffer[] chunks;
+
+        /** References held by the owner and by lookups in progress; 0 once unmapped. */
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private final long mask;
+
+        private final long entryCount;
+
+        private final long sizeInBytes;
+
+        private Reader(MappedByteBuffer[] chunks, long slotCount, long entryCount, long sizeInBytes) {
+            this.chunks = chunks;
+            this.mask = slotCount - 1;
+            this.entryCount = entryCount;
+            this.sizeInBytes = sizeInBytes;
+        }
+
+        /**
+         * Takes a reference for a lookup.
+         *
+         * @return {@code false} if the reader has been unmapped and must not be used
+         */
+        boolean acquire() {
+            while (true) {
+                int count = references.get();
+                if (count == 0) {
+                    return false;
+                }
+                if (references.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /** Gives up a reference, unmapping the file if it was the last one. */
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                unmap(chunks);
+            }
+        }
+
+        /** Reports whether the file has been unmapped. */
+        boolean isClosed() {
+            return references.get() == 0;
+        }
+
+        /**
+         * Looks up the contact stored for a blind index. The caller must hold a
+         * reference.
+         *
+         * @param index 32-byte blind index
+         * @return stored contact, or {@code null} if the index is not in the snapshot
+         */
+        CustomerContact find(byte[] index) {
+            ByteBuffer key = ByteBuffer.wrap(index);
+            long k0 = key.getLong(0);
+            long k1 = key.getLong(8);
+            long k2 = key.getLong(16);
+            long k3 = key.getLong(24);
+
+            long slot = k0 & mask;
+            for (long probes = 0; probes <= mask; probes++) {
+                long position = slotPosition(slot);
+                ByteBuffer chunk = chunks[(int) (position >>> CHUNK_SHIFT)];
+                int offset = (int) (position & (CHUNK_SIZE - 1));
+                long recordOffset = chunk.getLong(offset + INDEX_LENGTH);
+                if (recordOffset == 0) {
+                    return null;
+                }
+                if (chunk.getLong(offset) == k0 && chunk.getLong(offset + 8) == k1
+                        && chunk.getLong(offset + 16) == k2 && chunk.getLong(offset + 24) == k3) {
+                    return readContact(recordOffset);
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        long entryCount() {
+            return entryCount;
+        }
+
+        long sizeInBytes() {
+            return sizeInBytes;
+        }
+
+        private CustomerContact readContact(long position) {
+            ByteBuffer chunk = chunks[(int) (position >>> CHUNK_SHIFT)];
+            int[] offset = { (int) (position & (CHUNK_SIZE - 1)) };
+            String name = readString(chunk, offset);
+            String mobile = readString(chunk, offset);
+            String email = readString(chunk, offset);
+            return new CustomerContact(name, mobile, email);
+        }
+
+        private static String readString(ByteBuffer chunk, int[] offset) {
+            int length = Short.toUnsignedInt(chunk.getShort(offset[0]));
+            offset[0] += Short.BYTES;
+            if (length == NULL_LENGTH) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            chunk.get(offset[0], bytes);
+            offset[0] += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Single-threaded writer filling a new snapshot file. */
+    static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+
+        private final MappedByteBuffer[] slotChunks;
+
+        private final DataOutputStream data;
+
+        private final long slotCount;
+
+        private final long mask;
+
+        private final long maxEntries;
+
+        private final long dataStart;
+
+        private long dataPosition;
+
+        private long entryCount;
+
+        private Writer(Path path, long slotCount) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.slotCount = slotCount;
+            this.mask = slotCount - 1;
+            this.maxEntries = slotCount / 4 * 3;
+            this.dataStart = slotPosition(slotCount);
+            this.dataPosition = dataStart;
+            this.slotChunks = map(channel, MapMode.READ_WRITE, dataStart);
+            channel.position(dataStart);
+            this.data = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+        }
+
+        /**
+         * Adds an entry; an index that is already present keeps its first record.
+         *
+         * @throws IllegalStateException if the table is full
+         */
+        void add(byte[] index, String name, String mobile, String email) throws IOException {
+            if (index.length != INDEX_LENGTH) {
+                throw new IllegalArgumentException("Blind index must be " + INDEX_LENGTH + " bytes");
+            }
+            if (entryCount >= maxEntries) {
+                throw new IllegalStateException("Snapshot capacity of " + maxEntries + " entries exceeded");
+            }
+            long slot = ByteBuffer.wrap(index).getLong(0) & mask;
+            while (true) {
+                long position = slotPosition(slot);
+                ByteBuffer chunk = slotChunks[(int) (position >>> CHUNK_SHIFT)];
+                int offset = (int) (position & (CHUNK_SIZE - 1));
+                if (chunk.getLong(offset + INDEX_LENGTH) == 0) {
+                    chunk.put(offset, index);
+                    chunk.putLong(offset + INDEX_LENGTH, dataPosition);
+                    break;
+                }
+                if (chunk.slice(offset, INDEX_LENGTH).equals(ByteBuffer.wrap(index))) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            dataPosition += writeString(name) + writeString(mobile) + writeString(email);
+            entryCount++;
+        }
+
+        /** Writes the header and forces the file to disk. */
+        void finish() throws IOException {
+            data.flush();
+            ByteBuffer header = slotChunks[0];
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putLong(8, slotCount);
+            header.putLong(16, entryCount);
+            header.putLong(24, dataStart);
+            for (MappedByteBuffer chunk : slotChunks) {
+                chunk.force();
+            }
+            channel.force(true);
+        }
+
+        long entryCount() {
+            return entryCount;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (channel) {
+                data.flush();
+            } finally {
+                unmap(slotChunks);
+            }
+        }
+
+        private int writeString(String value) throws IOException {
+            if (value == null) {
+                data.writeShort(NULL_LENGTH);
+                return Short.BYTES;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length >= NULL_LENGTH || bytes.length > CHUNK_OVERLAP / 4) {
+                throw new IllegalArgumentException("Snapshot field too long: " + bytes.length + " bytes");
+            }
+            data.writeShort(bytes.length);
+            data.write(bytes);
+            return Short.BYTES + bytes.length;
+        }
+    }
+}
@@ -1,20 +1,37 @@
 package com.rudsi.paymtool.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.rudsi.paymtool.dto.CustomerDetailsResponse;
+import com.rudsi.paymtool.dto.CustomerPersistanceBatchRequest;
+import com.rudsi.paymtool.dto.CustomerPersistanceBatchResponse;
 import com.rudsi.paymtool.dto.CustomerPersistanceRequest;
 import com.rudsi.paymtool.dto.CustomerPersistanceResponse;
 import com.rudsi.paymtool.dto.EncryptedCustomerDetailsRequest;
+import com.rudsi.paymtool.dto.PersistMode;
+import com.rudsi.paymtool.dto.SessionEstablishRequest;
+import com.rudsi.paymtool.dto.SessionEstablishResponse;
+import com.rudsi.paymtool.service.CustomerBatchLookupService;
 import com.rudsi.paymtool.service.CustomerDetailsService;
 import com.rudsi.paymtool.service.CustomerPersistanceService;
+import com.rudsi.paymtool.service.SessionKeyService;
+
+import jakarta.servlet.http.HttpServletResponse;
 
 /**
  * REST controller exposing APIs related to customer information.
@@ -22,36 +39,75 @@ import com.rudsi.paymtool.service.CustomerPersistanceService;
  * Endpoints provided by this controller are versioned under
  * {@code /api/v1/customer}. It delegates all business logic to the underlying
  * service layer and focuses purely on HTTP request/response handling.
+ * <p>
+ * Active when the application runs on the servlet stack, the default; the
+ * {@code reactive} profile replaces it with {@link ReactiveCustomerController}.
  */
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 @RequestMapping("/api/v1/customer")
 public class CustomerController {
 
     private static final Logger logger = LoggerFactory.getLogger(CustomerController.class);
 
+    /** Header carrying the session id of binary wire format requests. */
+    static final String SESSION_ID_HEADER = "X-Session-Id";
+
     /** Service for handling encrypted customer detail lookup requests. */
     private final CustomerDetailsService customerDetailsService;
 
+    /** Service for streaming batch lookups. */
+    private final CustomerBatchLookupService customerBatchLookupService;
+
     /** Service for persisting customer information. */
     private final CustomerPersistanceService customerPersistanceService;
 
+    /** Service for establishing symmetric sessions. */
+    private final SessionKeyService sessionKeyService;
+
     /**
      * Constructs a new {@code CustomerController} with the required services.
      *
      * @param customerDetailsService     service used for customer detail retrieval
+     * @param customerBatchLookupService service used for streaming batch lookups
      * @param customerPersistanceService service used for customer persistence
+     * @param sessionKeyService          service used for session establishment
      */
     public CustomerController(CustomerDetailsService customerDetailsService,
-            CustomerPersistanceService customerPersistanceService) {
+            CustomerBatchLookupService customerBatchLookupService,
+            CustomerPersistanceService customerPersistanceService,
+            SessionKeyService sessionKeyService) {
         this.customerDetailsService = customerDetailsService;
+        this.customerBatchLookupService = customerBatchLookupService;
         this.customerPersistanceService = customerPersistanceService;
+        this.sessionKeyService = sessionKeyService;
+    }
+
+    /**
+     * Establishes a symmetric session from an RSA-wrapped AES-256 key.
+     * <p>
+     * The returned session id can be sent with subsequent lookup and persistence
+     * requests, whose payloads are then AES-GCM encrypted with the session key.
+     * This replaces the per-request RSA decryption with a single AES-GCM
+     * decryption until the session expires.
+     *
+     * @param request request containing the RSA-encrypted session key
+     * @return HTTP 200 response containing the session id and its lifetime
+     */
+    @PostMapping("/session")
+    public ResponseEntity<SessionEstablishResponse> establishSession(
+            @RequestBody @Validated SessionEstablishRequest request) {
+        logger.info("Received session establishment request");
+        SessionEstablishResponse response = sessionKeyService.establish(request.encryptedKey());
+        return ResponseEntity.ok(response);
     }
 
     /**
      * Retrieves customer details from an encrypted request.
      * <p>
      * The body must contain an {@link EncryptedCustomerDetailsRequest} where the field
-     * {@code encryptedData} holds an RSA-encrypted JSON payload. The decryption,
+     * {@code encryptedData} holds an RSA-encrypted JSON payload, or an AES-GCM
+     * payload when {@code sessionId} refers to an established session. The decryption,
      * validation, and lookup are delegated to {@link CustomerDetailsService}.
      *
      * @param request encrypted request containing customer lookup information
@@ -61,30 +117,107 @@ public class CustomerController {
     @PostMapping("/details")
     public ResponseEntity<CustomerDetailsResponse> getCustomerDetails(@RequestBody @Validated EncryptedCustomerDetailsRequest request) {
         logger.info("Received customer details lookup request");
-        CustomerDetailsResponse response = customerDetailsService.processEncryptedRequest(request.encryptedData());
+        CustomerDetailsResponse response = customerDetailsService.processEncryptedRequest(
+                request.sessionId(), request.encryptedData());
         logger.debug("Customer details lookup completed with status: {}", response.status());
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Retrieves customer details from a request in the binary wire format.
+     * <p>
+     * Selected for {@code Content-Type: application/octet-stream}. The body is the
+     * raw ciphertext: the RSA-encrypted payload, or IV followed by the AES-GCM
+     * ciphertext and tag when the {@value #SESSION_ID_HEADER} header refers to an
+     * established session. The payload decrypts to a CBOR map with the same
+     * fields as the JSON payload. The response is negotiated through
+     * {@code Accept}; {@code application/cbor} returns it as CBOR.
+     *
+     * @param sessionId  optional id of an established session
+     * @param ciphertext raw encrypted CBOR payload
+     * @return HTTP 200 response containing a {@link CustomerDetailsResponse} with the
+     *         customer data or error information
+     */
+    @PostMapping(path = "/details", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<CustomerDetailsResponse> getCustomerDetailsBinary(
+            @RequestHeader(name = SESSION_ID_HEADER, required = false) String sessionId,
+            @RequestBody byte[] ciphertext) {
+        logger.info("Received binary customer details lookup request");
+        CustomerDetailsResponse response = customerDetailsService.processBinaryRequest(sessionId, ciphertext);
+        logger.debug("Customer details lookup completed with status: {}", response.status());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Retrieves customer details for a stream of encrypted requests.
+     * <p>
+     * The body is NDJSON, one {@link EncryptedCustomerDetailsRequest} per line.
+     * The response is NDJSON as well, one {@link CustomerDetailsResponse} per
+     * request line in the same order, and is streamed while the body is still
+     * being read. A line that cannot be decrypted or validated is answered with
+     * status {@code FAILED} without affecting the others.
+     *
+     * @param body     NDJSON request lines
+     * @param response response the NDJSON result lines are written to
+     * @throws IOException if reading the body or writing the response fails
+     */
+    @PostMapping(path = "/details/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public void getCustomerDetailsBatch(InputStream body, HttpServletResponse response) throws IOException {
+        logger.info("Received streaming customer details batch request");
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        long lines = customerBatchLookupService.lookupStream(body, response.getOutputStream());
+        logger.debug("Customer details batch completed with {} lookups", lines);
+    }
+
     /**
      * Persists customer data from an encrypted request payload.
      * <p>
      * This endpoint expects a {@link CustomerPersistanceRequest} containing an
      * RSA-encrypted JSON payload. The service layer handles decryption, validation,
      * and encryption of sensitive data before persistence.
+     * <p>
+     * With {@code mode=UPSERT} an already stored card has its contact details
+     * updated instead of failing, and the response reports whether the customer
+     * was {@code CREATED} or {@code UPDATED}. With {@code mode=WRITE_BEHIND} the
+     * customer is acknowledged as {@code QUEUED} once durably journaled and is
+     * written to the database in the background.
      *
      * @param request request payload containing RSA-encrypted customer information
+     * @param mode    {@code CREATE} (default), {@code UPSERT} or {@code WRITE_BEHIND}
      * @return HTTP 200 response containing a {@link CustomerPersistanceResponse}
      *         describing the outcome of the persistence operation
      */
     @PostMapping("/persist")
     public ResponseEntity<CustomerPersistanceResponse> persistCustomerData(
-            @RequestBody @Validated CustomerPersistanceRequest request) {
+            @RequestBody @Validated CustomerPersistanceRequest request,
+            @RequestParam(defaultValue = "CREATE") PersistMode mode) {
         logger.info("Received customer persistence request");
         CustomerPersistanceResponse response = customerPersistanceService.persistCustomerData(
-                request.encryptedData());
+                request.sessionId(), request.encryptedData(), mode);
         logger.debug("Customer persistence completed with status: {}", response.status());
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Persists a batch of customers from encrypted record payloads.
+     * <p>
+     * Each record is encrypted like the payload of {@code /persist}. Records are
+     * validated in parallel and inserted together; invalid or duplicate records
+     * are rejected individually without failing the rest of the batch.
+     *
+     * @param request request containing the encrypted records
+     * @return HTTP 200 response containing a {@link CustomerPersistanceBatchResponse}
+     *         with one result per record
+     */
+    @PostMapping("/persist/batch")
+    public ResponseEntity<CustomerPersistanceBatchResponse> persistCustomerBatch(
+            @RequestBody @Validated CustomerPersistanceBatchRequest request) {
+        logger.info("Received customer batch persistence request");
+        CustomerPersistanceBatchResponse response = customerPersistanceService.persistCustomerBatch(
+                request.sessionId(), request.records());
+        logger.debug("Customer batch persistence completed: {} succeeded, {} failed",
+                response.succeeded(), response.failed());
+        return ResponseEntity.ok(response);
+    }
+
 }
@@ -0,0 +1,93 @@
+package com.rudsi.paymtool.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.rudsi.paymtool.dto.CustomerDetailsResponse;
+import com.rudsi.paymtool.dto.EncryptedCustomerDetailsRequest;
+import com.rudsi.paymtool.dto.SessionEstablishRequest;
+import com.rudsi.paymtool.dto.SessionEstablishResponse;
+import com.rudsi.paymtool.service.ReactiveCustomerDetailsService;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive REST controller serving customer lookups on the WebFlux stack.
+ * <p>
+ * Active instead of {@link CustomerController} when the application runs as a
+ * reactive web application (profile {@code reactive}). It exposes the lookup
+ * tier only: {@code /details}, and {@code /session} so that clients can use
+ * session-encrypted lookups against the same instance. The request and
+ * response formats are identical to the blocking endpoints.
+ */
+@RestController
+@RequestMapping("/api/v1/customer")
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveCustomerController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveCustomerController.class);
+
+    /** Service handling encrypted customer lookups without blocking. */
+    private final ReactiveCustomerDetailsService detailsService;
+
+    /**
+     * Constructs a new {@code ReactiveCustomerController}.
+     *
+     * @param detailsService service used for customer lookups and sessions
+     */
+    public ReactiveCustomerController(ReactiveCustomerDetailsService detailsService) {
+        this.detailsService = detailsService;
+    }
+
+    /**
+     * Establishes a symmetric session from an RSA-wrapped AES-256 key.
+     *
+     * @param request request containing the RSA-encrypted session key
+     * @return the session id and its lifetime
+     * @see CustomerController#establishSession(SessionEstablishRequest)
+     */
+    @PostMapping("/session")
+    public Mono<SessionEstablishResponse> establishSession(@RequestBody @Validated SessionEstablishRequest request) {
+        logger.debug("Received session establishment request");
+        return detailsService.establishSession(request.encryptedKey());
+    }
+
+    /**
+     * Retrieves customer details from an encrypted request.
+     *
+     * @param request encrypted request containing customer lookup information
+     * @return the customer data or decline information
+     * @see CustomerController#getCustomerDetails(EncryptedCustomerDetailsRequest)
+     */
+    @PostMapping("/details")
+    public Mono<CustomerDetailsResponse> getCustomerDetails(
+            @RequestBody @Validated EncryptedCustomerDetailsRequest request) {
+        logger.debug("Received customer details lookup request");
+        return detailsService.processEncryptedRequest(request.sessionId(), request.encryptedData());
+    }
+
+    /**
+     * Retrieves customer details from a request in the binary wire format.
+     *
+     * @param sessionId  optional id of an established session
+     * @param ciphertext raw encrypted CBOR payload
+     * @return the customer data or decline information
+     * @see CustomerController#getCustomerDetailsBinary(String, byte[])
+     */
+    @PostMapping(path = "/details", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Mono<CustomerDetailsResponse> getCustomerDetailsBinary(
+            @RequestHeader(name = CustomerController.SESSION_ID_HEADER, required = false) String sessionId,
+            @RequestBody byte[] ciphertext) {
+        logger.debug("Received binary customer details lookup request");
+        return detailsService.processBinaryRequest(sessionId, ciphertext);
+    }
+}
@@ -0,0 +1,36 @@
+package com.rudsi.paymtool.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+
+/**
+ * Runs the reactive web tier on Reactor Netty.
+ * <p>
+ * Tomcat stays on the classpath for the servlet tier, and Spring Boot prefers
+ * it over Netty as reactive server as well. Tomcat's reactive adapter still
+ * uses its servlet connector, so the server is selected explicitly here; the
+ * {@code server.*} settings, port and SSL included, apply unchanged.
+ * <p>
+ * Unlike Spring MVC, WebFlux does not register a Jackson CBOR codec by default;
+ * it is added so that binary wire format clients can accept
+ * {@code application/cbor} responses on this tier as well.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+class ReactiveServerConfiguration {
+
+    @Bean
+    NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    CodecCustomizer cborCodecCustomizer() {
+        return configurer -> configurer.customCodecs().register(new Jackson2CborEncoder());
+    }
+}
@@ -0,0 +1,93 @@
+package com.rudsi.paymtool.crypto;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Bounds the number of requests running CPU-bound work (RSA and AES
+ * operations, JSON parsing) at the same time.
+ * <p>
+ * With platform threads the Tomcat pool size already bounds concurrency. With
+ * virtual threads every waiting request gets its own thread, and thousands of
+ * them competing for the cores in CPU-bound sections only add scheduling and
+ * cache overhead. The bulkhead admits as many callers as there are carrier
+ * threads; the rest park cheaply until a permit is free. Blocking I/O such as
+ * database calls must stay outside {@link #call}, so that parked permits do not
+ * idle the cores.
+ * <p>
+ * Enabled by default when {@code spring.threads.virtual.enabled} is set; see
+ * {@code app.bulkhead.*}. Calls are not reentrant: a task must not itself go
+ * through the bulkhead. Published metrics: {@code paymtool.bulkhead.active},
+ * {@code paymtool.bulkhead.waiting} and {@code paymtool.bulkhead.wait}.
+ */
+@Component
+public class CpuBulkhead {
+
+    private final boolean enabled;
+
+    private final int permits;
+
+    private final Semaphore semaphore;
+
+    private final Timer waitTimer;
+
+    /**
+     * Creates the bulkhead.
+     *
+     * @param enabled       whether calls are bounded
+     * @param permits       maximum number of concurrent calls; non-positive values
+     *                      use one per available processor, the default number of
+     *                      virtual thread carriers
+     * @param meterRegistry registry used to publish bulkhead metrics
+     */
+    public CpuBulkhead(
+            @Value("${app.bulkhead.enabled:${spring.threads.virtual.enabled:false}}") boolean enabled,
+            @Value("${app.bulkhead.permits:0}") int permits,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.permits = permits > 0 ? permits : Runtime.getRuntime().availableProcessors();
+        this.semaphore = new Semaphore(this.permits, true);
+
+        Gauge.builder("paymtool.bulkhead.active", this, b -> b.permits - b.semaphore.availablePermits())
+                .description("Calls running inside the CPU bulkhead")
+                .register(meterRegistry);
+        Gauge.builder("paymtool.bulkhead.waiting", semaphore, Semaphore::getQueueLength)
+                .description("Calls waiting to enter the CPU bulkhead")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("paymtool.bulkhead.wait")
+                .description("Time spent waiting to enter the CPU bulkhead")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a CPU-bound task once a permit is available.
+     *
+     * @param task task to run; exceptions it throws propagate unchanged
+     * @return the task's result
+     */
+    public <T> T call(Supplier<T> task) {
+        if (!enabled) {
+            return task.get();
+        }
+        if (!semaphore.tryAcquire()) {
+            long start = System.nanoTime();
+            semaphore.acquireUninterruptibly();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } else {
+            waitTimer.record(0, TimeUnit.NANOSECONDS);
+        }
+        try {
+            return task.get();
+        } finally {
+            semaphore.release();
+        }
+    }
+}
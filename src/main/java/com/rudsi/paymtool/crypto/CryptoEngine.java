@@ -0,0 +1,262 @@
+package com.rudsi.paymtool.crypto;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.Provider;
+import java.security.Security;
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.MGF1ParameterSpec;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.OAEPParameterSpec;
+import javax.crypto.spec.PSource;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Shared engine performing all cipher and MAC operations of the application on
+ * pooled, pre-initialized {@link Cipher} and {@link Mac} instances.
+ * <p>
+ * {@code Cipher.getInstance} walks the provider list on every call and
+ * {@code Cipher.init} recomputes the key schedule, so both are paid only when a
+ * pool entry is created or its key changes. Pools are lock-free and bounded per
+ * transformation (see {@link CryptoPool}), which keeps them safe and cheap on
+ * virtual threads where per-thread caches would grow with the number of
+ * threads.
+ * <p>
+ * The provider for each transformation (SunJCE or BouncyCastle) is chosen once
+ * at startup by a short micro-benchmark, or fixed via {@code app.crypto.provider}.
+ * Pool hits and misses are published as {@code paymtool.crypto.cipher.pool}.
+ */
+@Component
+public class CryptoEngine {
+
+    /** Deterministic AES transformation of legacy card number ciphertexts. */
+    public static final String AES_ECB = "AES/ECB/PKCS5Padding";
+
+    /** Authenticated AES transformation used for card number storage and session payloads. */
+    public static final String AES_GCM = "AES/GCM/NoPadding";
+
+    /** RSA transformation used for request payloads; always used with {@link #OAEP_SHA256}. */
+    public static final String RSA_OAEP = "RSA/ECB/OAEPPadding";
+
+    /**
+     * OAEP parameters matching the JDK's {@code OAEPWithSHA-256AndMGF1Padding}
+     * (SHA-256 digest, MGF1 with SHA-1). Spelled out explicitly so that every
+     * provider decrypts payloads produced by existing clients identically.
+     */
+    public static final OAEPParameterSpec OAEP_SHA256 = new OAEPParameterSpec(
+            "SHA-256", "MGF1", MGF1ParameterSpec.SHA1, PSource.PSpecified.DEFAULT);
+
+    /** MAC algorithm used for card number blind indexes. */
+    public static final String HMAC_SHA256 = "HmacSHA256";
+
+    private final Map<String, CryptoPool<PooledCipher>> pools = new ConcurrentHashMap<>();
+
+    private final Map<String, CryptoPool<PooledMac>> macPools = new ConcurrentHashMap<>();
+
+    private final Map<String, Provider> providers;
+
+    private final int poolCapacity;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Creates the engine and selects a provider per transformation.
+     *
+     * @param providerMode    {@code auto} to benchmark providers, or a provider name
+     *                        ({@code SunJCE}, {@code BC})
+     * @param benchmarkBudget time each provider is benchmarked per transformation
+     * @param poolCapacity    maximum number of idle ciphers kept per transformation;
+     *                        non-positive values size the pool to twice the number
+     *                        of available processors
+     * @param meterRegistry   registry used to publish pool metrics
+     */
+    public CryptoEngine(
+            @Value("${app.crypto.provider:auto}") String providerMode,
+            @Value("${app.crypto.benchmark-budget:25ms}") Duration benchmarkBudget,
+            @Value("${app.crypto.pool-capacity:0}") int poolCapacity,
+            MeterRegistry meterRegistry) {
+        this.poolCapacity = poolCapacity > 0 ? poolCapacity : 2 * Runtime.getRuntime().availableProcessors();
+        this.meterRegistry = meterRegistry;
+
+        List<Provider> candidates = new ArrayList<>();
+        Provider sunJce = Security.getProvider("SunJCE");
+        if (sunJce != null) {
+            candidates.add(sunJce);
+        }
+        candidates.add(new BouncyCastleProvider());
+
+        this.providers = new ProviderSelector(candidates, benchmarkBudget)
+                .select(List.of(AES_ECB, AES_GCM, RSA_OAEP), providerMode);
+    }
+
+    /**
+     * Runs a single-part cipher operation on a pooled cipher.
+     *
+     * @param transformation cipher transformation, e.g. {@link #AES_ECB}
+     * @param opmode         {@link Cipher#ENCRYPT_MODE} or {@link Cipher#DECRYPT_MODE}
+     * @param key            key to use; reusing the same key instance lets pooled
+     *                       ciphers skip re-initialization
+     * @param params         algorithm parameters, or {@code null}. Ciphers are
+     *                       re-initialized whenever a different parameter instance
+     *                       is passed, so per-call values such as GCM IVs must be
+     *                       fresh objects while constants may be shared
+     * @param aad            additional authenticated data, or {@code null}
+     * @param input          input buffer
+     * @param offset         offset of the data in {@code input}
+     * @param length         length of the data in {@code input}
+     * @return result of the operation
+     * @throws GeneralSecurityException if the operation fails
+     */
+    public byte[] doFinal(String transformation, int opmode, Key key, AlgorithmParameterSpec params,
+            byte[] aad, byte[] input, int offset, int length) throws GeneralSecurityException {
+        CryptoPool<PooledCipher> pool = pool(transformation);
+        PooledCipher pooled = pool.borrow();
+        // A cipher that failed mid-operation is in an unknown state and is dropped.
+        byte[] result = pooled.doFinal(opmode, key, params, aad, input, offset, length);
+        pool.release(pooled);
+        return result;
+    }
+
+    /**
+     * Runs a single-part cipher operation over the whole input buffer.
+     *
+     * @see #doFinal(String, int, Key, AlgorithmParameterSpec, byte[], byte[], int, int)
+     */
+    public byte[] doFinal(String transformation, int opmode, Key key, AlgorithmParameterSpec params,
+            byte[] input) throws GeneralSecurityException {
+        return doFinal(transformation, opmode, key, params, null, input, 0, input.length);
+    }
+
+    /**
+     * Computes a MAC on a pooled {@link Mac} instance.
+     *
+     * @param algorithm MAC algorithm, e.g. {@link #HMAC_SHA256}
+     * @param key       key to use; reusing the same key instance lets pooled
+     *                  instances skip re-initialization
+     * @param input     input buffer
+     * @param offset    offset of the data in {@code input}
+     * @param length    length of the data in {@code input}
+     * @return the MAC
+     * @throws GeneralSecurityException if the operation fails
+     */
+    public byte[] mac(String algorithm, Key key, byte[] input, int offset, int length)
+            throws GeneralSecurityException {
+        CryptoPool<PooledMac> pool = macPools.get(algorithm);
+        if (pool == null) {
+            pool = macPools.computeIfAbsent(algorithm, this::createMacPool);
+        }
+        PooledMac pooled = pool.borrow();
+        byte[] result = pooled.doFinal(key, input, offset, length);
+        pool.release(pooled);
+        return result;
+    }
+
+    private CryptoPool<PooledCipher> pool(String transformation) {
+        CryptoPool<PooledCipher> pool = pools.get(transformation);
+        return pool != null ? pool : pools.computeIfAbsent(transformation, this::createPool);
+    }
+
+    private CryptoPool<PooledCipher> createPool(String transformation) {
+        Provider provider = providers.get(transformation);
+        Gauge.builder("paymtool.crypto.provider", () -> 1)
+                .description("JCE provider selected for a transformation")
+                .tag("transformation", transformation)
+                .tag("provider", provider != null ? provider.getName() : "default")
+                .register(meterRegistry);
+        return new CryptoPool<>(poolCapacity,
+                () -> new PooledCipher(provider != null
+                        ? Cipher.getInstance(transformation, provider)
+                        : Cipher.getInstance(transformation)),
+                poolCounter(transformation, "hit"),
+                poolCounter(transformation, "miss"));
+    }
+
+    private CryptoPool<PooledMac> createMacPool(String algorithm) {
+        return new CryptoPool<>(poolCapacity,
+                () -> new PooledMac(Mac.getInstance(algorithm)),
+                poolCounter(algorithm, "hit"),
+                poolCounter(algorithm, "miss"));
+    }
+
+    private Counter poolCounter(String transformation, String result) {
+        return Counter.builder("paymtool.crypto.cipher.pool")
+                .description("Cipher pool lookups")
+                .tag("transformation", transformation)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * A pooled cipher remembering how it was last initialized, so that repeated
+     * operations with the same mode, key and parameters skip {@code init}.
+     */
+    private static final class PooledCipher {
+
+        private final Cipher cipher;
+
+        private int mode;
+
+        private Key key;
+
+        private AlgorithmParameterSpec params;
+
+        PooledCipher(Cipher cipher) {
+            this.cipher = cipher;
+        }
+
+        byte[] doFinal(int opmode, Key key, AlgorithmParameterSpec params, byte[] aad,
+                byte[] input, int offset, int length) throws GeneralSecurityException {
+            if (opmode != this.mode || key != this.key || params != this.params) {
+                this.key = null;
+                if (params != null) {
+                    cipher.init(opmode, key, params);
+                } else {
+                    cipher.init(opmode, key);
+                }
+                this.mode = opmode;
+                this.key = key;
+                this.params = params;
+            }
+            if (aad != null) {
+                cipher.updateAAD(aad);
+            }
+            return cipher.doFinal(input, offset, length);
+        }
+    }
+
+    /** A pooled MAC remembering the key it was last initialized with. */
+    private static final class PooledMac {
+
+        private final Mac mac;
+
+        private Key key;
+
+        PooledMac(Mac mac) {
+            this.mac = mac;
+        }
+
+        byte[] doFinal(Key key, byte[] input, int offset, int length) throws GeneralSecurityException {
+            if (key != this.key) {
+                this.key = null;
+                mac.init(key);
+                this.key = key;
+            }
+            mac.update(input, offset, length);
+            return mac.doFinal();
+        }
+    }
+}
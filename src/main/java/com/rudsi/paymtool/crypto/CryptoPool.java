@@ -0,0 +1,86 @@
+package com.rudsi.paymtool.crypto;
+
+import java.security.GeneralSecurityException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.micrometer.core.instrument.Counter;
+
+/**
+ * Bounded, lock-free pool of reusable cryptographic primitives.
+ * <p>
+ * Idle instances are kept in a fixed array of slots that is claimed and released
+ * with compare-and-set operations only. The pool never blocks and never pins a
+ * virtual thread: a borrower that finds no idle instance simply creates a new
+ * one, and an instance released into a full pool is dropped.
+ *
+ * @param <T> type of the pooled primitive
+ */
+final class CryptoPool<T> {
+
+    /**
+     * Factory creating new pool entries on a miss.
+     *
+     * @param <T> type of the pooled primitive
+     */
+    @FunctionalInterface
+    interface Factory<T> {
+        T create() throws GeneralSecurityException;
+    }
+
+    private final AtomicReferenceArray<T> slots;
+
+    private final Factory<T> factory;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    CryptoPool(int capacity, Factory<T> factory, Counter hits, Counter misses) {
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.factory = factory;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * Takes an idle instance from the pool or creates a new one.
+     *
+     * @return an instance owned exclusively by the caller until released
+     * @throws GeneralSecurityException if a new instance cannot be created
+     */
+    T borrow() throws GeneralSecurityException {
+        int length = slots.length();
+        int start = home(length);
+        for (int i = 0; i < length; i++) {
+            int index = (start + i) % length;
+            T candidate = slots.get(index);
+            if (candidate != null && slots.compareAndSet(index, candidate, null)) {
+                hits.increment();
+                return candidate;
+            }
+        }
+        misses.increment();
+        return factory.create();
+    }
+
+    /**
+     * Returns an instance to the pool, dropping it if every slot is occupied.
+     *
+     * @param instance instance previously obtained from {@link #borrow()}
+     */
+    void release(T instance) {
+        int length = slots.length();
+        int start = home(length);
+        for (int i = 0; i < length; i++) {
+            int index = (start + i) % length;
+            if (slots.get(index) == null && slots.compareAndSet(index, null, instance)) {
+                return;
+            }
+        }
+    }
+
+    /** Spreads threads across slots so they rarely contend on the same entry. */
+    private static int home(int length) {
+        return (int) Math.floorMod(Thread.currentThread().threadId(), (long) length);
+    }
+}
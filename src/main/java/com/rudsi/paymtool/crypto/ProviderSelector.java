@@ -0,0 +1,169 @@
+package com.rudsi.paymtool.crypto;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chooses the JCE provider used for each transformation of the
+ * {@link CryptoEngine}.
+ * <p>
+ * In {@code auto} mode, every candidate provider runs a short, time-boxed
+ * micro-benchmark of the operation the application actually performs with that
+ * transformation (AES block encryption, AES-GCM encryption with a fresh IV and
+ * RSA-OAEP private-key decryption). The provider completing the most operations
+ * wins. Any other mode names a provider that is used whenever it supports the
+ * transformation.
+ */
+final class ProviderSelector {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderSelector.class);
+
+    private final List<Provider> candidates;
+
+    private final Duration budget;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private KeyPair rsaKeyPair;
+
+    ProviderSelector(List<Provider> candidates, Duration budget) {
+        this.candidates = candidates;
+        this.budget = budget;
+    }
+
+    /**
+     * Selects a provider for each of the given transformations.
+     *
+     * @param transformations transformations to select providers for
+     * @param mode            {@code auto} or the name of a preferred provider
+     * @return selected provider per transformation; transformations no candidate
+     *         supports are omitted and fall back to the default JCE lookup
+     */
+    Map<String, Provider> select(List<String> transformations, String mode) {
+        Map<String, Provider> selected = new LinkedHashMap<>();
+        for (String transformation : transformations) {
+            Provider provider = "auto".equalsIgnoreCase(mode)
+                    ? fastest(transformation)
+                    : named(transformation, mode);
+            if (provider != null) {
+                selected.put(transformation, provider);
+                logger.info("Using provider {} for {}", provider.getName(), transformation);
+            }
+        }
+        return selected;
+    }
+
+    private Provider named(String transformation, String name) {
+        for (Provider candidate : candidates) {
+            if (candidate.getName().equalsIgnoreCase(name) && supports(candidate, transformation)) {
+                return candidate;
+            }
+        }
+        logger.warn("Provider {} does not support {}, using the default provider", name, transformation);
+        return null;
+    }
+
+    private Provider fastest(String transformation) {
+        Provider best = null;
+        long bestOps = -1;
+        List<String> results = new ArrayList<>();
+        for (Provider candidate : candidates) {
+            try {
+                // First pass warms the code paths up, second pass is measured.
+                run(candidate, transformation);
+                long ops = run(candidate, transformation);
+                results.add(candidate.getName() + "=" + ops);
+                if (ops > bestOps) {
+                    bestOps = ops;
+                    best = candidate;
+                }
+            } catch (GeneralSecurityException | RuntimeException e) {
+                logger.debug("Provider {} failed benchmark for {}", candidate.getName(), transformation, e);
+            }
+        }
+        logger.info("Benchmark for {} ({} ms per provider, ops): {}", transformation, budget.toMillis(), results);
+        return best;
+    }
+
+    /** Runs the benchmark operation for the configured budget and returns the operation count. */
+    private long run(Provider provider, String transformation) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(transformation, provider);
+        long deadline = System.nanoTime() + budget.toNanos();
+        long ops = 0;
+        switch (transformation) {
+            case CryptoEngine.AES_ECB -> {
+                cipher.init(Cipher.ENCRYPT_MODE, aesKey());
+                byte[] block = new byte[16];
+                while (System.nanoTime() < deadline) {
+                    cipher.doFinal(block);
+                    ops++;
+                }
+            }
+            case CryptoEngine.AES_GCM -> {
+                SecretKeySpec key = aesKey();
+                byte[] iv = new byte[12];
+                byte[] payload = new byte[128];
+                while (System.nanoTime() < deadline) {
+                    iv[0] = (byte) ops;
+                    iv[1] = (byte) (ops >>> 8);
+                    iv[2] = (byte) (ops >>> 16);
+                    cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+                    cipher.doFinal(payload);
+                    ops++;
+                }
+            }
+            case CryptoEngine.RSA_OAEP -> {
+                KeyPair pair = rsaKeyPair();
+                Cipher encryptor = Cipher.getInstance(transformation);
+                encryptor.init(Cipher.ENCRYPT_MODE, pair.getPublic(), CryptoEngine.OAEP_SHA256);
+                byte[] ciphertext = encryptor.doFinal(new byte[128]);
+                cipher.init(Cipher.DECRYPT_MODE, pair.getPrivate(), CryptoEngine.OAEP_SHA256);
+                while (System.nanoTime() < deadline) {
+                    cipher.doFinal(ciphertext);
+                    ops++;
+                }
+            }
+            default -> throw new IllegalArgumentException("No benchmark for " + transformation);
+        }
+        return ops;
+    }
+
+    private SecretKeySpec aesKey() {
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        return new SecretKeySpec(key, "AES");
+    }
+
+    private KeyPair rsaKeyPair() throws GeneralSecurityException {
+        if (rsaKeyPair == null) {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            rsaKeyPair = generator.generateKeyPair();
+        }
+        return rsaKeyPair;
+    }
+
+    private static boolean supports(Provider provider, String transformation) {
+        try {
+            Cipher.getInstance(transformation, provider);
+            return true;
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.rudsi.paymtool.dto;
+
+/**
+ * Projection pairing a customer's primary key with its card number blind index.
+ * <p>
+ * Used to walk all stored cards in primary key order without loading full
+ * entities.
+ *
+ * @param id              primary key of the customer record
+ * @param cardNumberIndex blind index of the card number
+ */
+public record CardIndexEntry(
+        Long id,
+        byte[] cardNumberIndex) {
+}
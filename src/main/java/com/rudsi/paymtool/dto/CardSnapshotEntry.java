@@ -0,0 +1,18 @@
+package com.rudsi.paymtool.dto;
+
+/**
+ * Projection of everything the card index snapshot stores for a customer.
+ *
+ * @param id              primary key of the customer record
+ * @param cardNumberIndex blind index of the card number
+ * @param name            customer name
+ * @param mobile          customer mobile number
+ * @param email           customer email
+ */
+public record CardSnapshotEntry(
+        Long id,
+        byte[] cardNumberIndex,
+        String name,
+        String mobile,
+        String email) {
+}
@@ -0,0 +1,14 @@
+package com.rudsi.paymtool.dto;
+
+/**
+ * Projection of the customer fields returned by a successful card lookup.
+ *
+ * @param name   the customer's full name
+ * @param mobile the customer's mobile phone number
+ * @param email  the customer's email address
+ */
+public record CustomerContact(
+        String name,
+        String mobile,
+        String email) {
+}
@@ -0,0 +1,20 @@
+package com.rudsi.paymtool.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object representing a batch of encrypted customer persistence
+ * requests.
+ * <p>
+ * Each element of {@code records} is encrypted exactly like the
+ * {@code encryptedData} of a single {@link CustomerPersistanceRequest}: an
+ * RSA-encrypted JSON payload, or an AES-GCM payload under the session given by
+ * {@code sessionId}, which then applies to every record of the batch.
+ *
+ * @param records   Base64-encoded encrypted JSON payloads, one per customer
+ * @param sessionId optional session id returned by the session endpoint
+ */
+public record CustomerPersistanceBatchRequest(
+        List<String> records,
+        String sessionId) {
+}
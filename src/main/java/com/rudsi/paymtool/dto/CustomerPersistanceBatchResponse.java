@@ -0,0 +1,21 @@
+package com.rudsi.paymtool.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch persistence request.
+ * <p>
+ * {@code results} holds one entry per submitted record, in submission order.
+ * Persisted records have status {@code SUCCESS}; rejected records have status
+ * {@code FAILED} and a reason code such as {@code DECRYPTION_FAILED},
+ * {@code INVALID_INPUT} or {@code DUPLICATE_CARD}.
+ *
+ * @param succeeded number of persisted records
+ * @param failed    number of rejected records
+ * @param results   per-record outcomes
+ */
+public record CustomerPersistanceBatchResponse(
+        int succeeded,
+        int failed,
+        List<CustomerPersistanceResponse> results) {
+}
@@ -21,12 +21,18 @@ package com.rudsi.paymtool.dto;
  * <p>
  * This design ensures that sensitive customer data (especially card numbers) is
  * encrypted in transit and only decrypted server-side for processing.
+ * <p>
+ * When {@code sessionId} is present, {@code encryptedData} is instead an AES-GCM
+ * ciphertext produced with the key bound to that session, which avoids the RSA
+ * private-key operation on the server.
  *
  * @param encryptedData Base64-encoded RSA-encrypted JSON payload containing
  *                       customer information to be persisted
+ * @param sessionId     optional session id returned by the session endpoint
  * @author rudsi
  * @since 1.0
  */
 public record CustomerPersistanceRequest(
-        String encryptedData) {
+        String encryptedData,
+        String sessionId) {
 }
@@ -0,0 +1,16 @@
+package com.rudsi.paymtool.dto;
+
+/**
+ * Projection pairing a customer's primary key with its stored card number
+ * ciphertext.
+ * <p>
+ * Used to walk the cards encrypted under one AES key in primary key order
+ * without loading full entities.
+ *
+ * @param id                  primary key of the customer record
+ * @param encryptedCardNumber AES-GCM encrypted card number
+ */
+public record EncryptedCardEntry(
+        Long id,
+        byte[] encryptedCardNumber) {
+}
@@ -1,5 +1,17 @@
 package com.rudsi.paymtool.dto;
 
+/**
+ * Data Transfer Object representing an encrypted customer lookup request.
+ * <p>
+ * Without a {@code sessionId}, {@code encryptedData} is a Base64-encoded
+ * RSA-encrypted JSON payload. With a {@code sessionId}, it is the Base64-encoded
+ * AES-GCM ciphertext (12-byte IV followed by ciphertext and tag) produced with
+ * the key bound to that session.
+ *
+ * @param encryptedData Base64-encoded encrypted JSON payload
+ * @param sessionId     optional session id returned by the session endpoint
+ */
 public record EncryptedCustomerDetailsRequest(
-                String encryptedData) {
+                String encryptedData,
+                String sessionId) {
 }
@@ -0,0 +1,22 @@
+package com.rudsi.paymtool.dto;
+
+/**
+ * How a persistence request treats a card that is already stored.
+ */
+public enum PersistMode {
+
+    /** Insert a new customer; storing a known card is an error. */
+    CREATE,
+
+    /**
+     * Insert a new customer or update the contact details of the stored one,
+     * in a single {@code INSERT ... ON CONFLICT} statement.
+     */
+    UPSERT,
+
+    /**
+     * Durably journal the customer and acknowledge immediately; a background
+     * writer upserts it into the database later.
+     */
+    WRITE_BEHIND
+}
@@ -0,0 +1,15 @@
+package com.rudsi.paymtool.dto;
+
+/**
+ * Data Transfer Object representing a session establishment request.
+ * <p>
+ * The client generates a random 256-bit AES key, wraps it with the server's RSA
+ * public key (OAEP with SHA-256) and sends the Base64-encoded result. Once the
+ * session is established, subsequent requests carry only the returned session
+ * id and an AES-GCM ciphertext instead of an RSA-encrypted payload.
+ *
+ * @param encryptedKey Base64-encoded RSA-encrypted AES-256 session key
+ */
+public record SessionEstablishRequest(
+        String encryptedKey) {
+}
@@ -0,0 +1,13 @@
+package com.rudsi.paymtool.dto;
+
+/**
+ * Data Transfer Object returned once a session has been established.
+ *
+ * @param sessionId        opaque identifier to send with subsequent requests
+ * @param expiresInSeconds number of seconds after which the session expires and
+ *                         a new one has to be established
+ */
+public record SessionEstablishResponse(
+        String sessionId,
+        long expiresInSeconds) {
+}
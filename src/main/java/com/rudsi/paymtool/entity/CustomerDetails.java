@@ -8,19 +8,32 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 
 @Entity
-@Table(name = "customer_details", uniqueConstraints = { @UniqueConstraint(columnNames = { "card_number_enc" }) })
+@Table(name = "customer_details", uniqueConstraints = { @UniqueConstraint(columnNames = { "card_number_idx" }) })
 public class CustomerDetails {
 
+    /**
+     * Ids are drawn from a sequence in pooled blocks of 50, so inserts need no
+     * round trip per row and Hibernate can batch them (identity columns disable
+     * insert batching).
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_details_seq")
+    @SequenceGenerator(name = "customer_details_seq", sequenceName = "customer_details_seq", allocationSize = 50)
     private Long id;
 
-    @Column(name = "card_number_enc", nullable = false, unique = true)
-    private String encryptedCardNumber;
+    @Column(name = "card_number_idx", nullable = false, unique = true, length = 32)
+    private byte[] cardNumberIndex;
+
+    @Column(name = "card_number_enc", nullable = false)
+    private byte[] encryptedCardNumber;
+
+    @Column(name = "card_key_id", nullable = false)
+    private int cardKeyId;
 
     @Column(name = "name", length = 100)
     private String name;
@@ -46,14 +59,30 @@ public class CustomerDetails {
         return id;
     }
 
-    public String getEncryptedCardNumber() {
+    public byte[] getCardNumberIndex() {
+        return cardNumberIndex;
+    }
+
+    public void setCardNumberIndex(byte[] cardNumberIndex) {
+        this.cardNumberIndex = cardNumberIndex;
+    }
+
+    public byte[] getEncryptedCardNumber() {
         return encryptedCardNumber;
     }
 
-    public void setEncryptedCardNumber(String encryptedCardNumber) {
+    public void setEncryptedCardNumber(byte[] encryptedCardNumber) {
         this.encryptedCardNumber = encryptedCardNumber;
     }
 
+    public int getCardKeyId() {
+        return cardKeyId;
+    }
+
+    public void setCardKeyId(int cardKeyId) {
+        this.cardKeyId = cardKeyId;
+    }
+
     public String getName() {
         return name;
     }
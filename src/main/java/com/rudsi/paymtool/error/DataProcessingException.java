@@ -5,15 +5,18 @@ package com.rudsi.paymtool.error;
  * <p>
  * This includes JSON parsing errors, data transformation failures,
  * or other processing-related issues.
+ * <p>
+ * Malformed payloads are routine input from faulty or hostile clients, so no
+ * stack trace is captured when this exception is created.
  */
 public class DataProcessingException extends RuntimeException {
 
     public DataProcessingException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 
     public DataProcessingException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
     }
 }
 
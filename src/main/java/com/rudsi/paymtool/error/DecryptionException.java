@@ -5,15 +5,18 @@ package com.rudsi.paymtool.error;
  * <p>
  * This typically indicates that the encrypted payload is malformed,
  * corrupted, or was encrypted with a different key than expected.
+ * <p>
+ * Card-testing attacks produce these in bulk, so the exception is created
+ * without a stack trace; a wrapped provider exception still carries its own.
  */
 public class DecryptionException extends RuntimeException {
 
     public DecryptionException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 
     public DecryptionException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
     }
 }
 
@@ -0,0 +1,106 @@
+package com.rudsi.paymtool.error;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Counts handled errors per error code and rate-limits their logging.
+ * <p>
+ * Under a card-testing attack every request fails, and logging each failure
+ * costs more than rejecting it. Every error is counted, but per error code only
+ * the first {@code app.errors.log.limit} errors of each
+ * {@code app.errors.log.interval} are logged. The number of errors left out is
+ * logged once per interval, when the next error of that code arrives.
+ * <p>
+ * Published metric: {@code paymtool.errors} (tag {@code code}).
+ */
+@Component
+public class ErrorLogLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ErrorLogLimiter.class);
+
+    private final int limit;
+
+    private final Duration interval;
+
+    private final long intervalNanos;
+
+    private final MeterRegistry meterRegistry;
+
+    /** Per error code state; the set of codes is small and fixed. */
+    private final ConcurrentHashMap<String, CodeWindow> windows = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the limiter.
+     *
+     * @param limit         errors logged per code and interval; non-positive
+     *                      values log every error
+     * @param interval      length of a logging interval
+     * @param meterRegistry registry used to publish error counters
+     */
+    public ErrorLogLimiter(
+            @Value("${app.errors.log.limit:10}") int limit,
+            @Value("${app.errors.log.interval:1s}") Duration interval,
+            MeterRegistry meterRegistry) {
+        this.limit = limit;
+        this.interval = interval;
+        this.intervalNanos = interval.toNanos();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Counts an error and reports whether it should be logged.
+     *
+     * @param errorCode error code of the response sent for the error
+     * @return {@code true} if the caller should log the error
+     */
+    public boolean admit(String errorCode) {
+        CodeWindow window = windows.computeIfAbsent(errorCode, this::newWindow);
+        window.counter.increment();
+        if (limit <= 0) {
+            return true;
+        }
+
+        long now = System.nanoTime();
+        long start = window.start.get();
+        if (now - start >= intervalNanos && window.start.compareAndSet(start, now)) {
+            window.logged.set(0);
+            long suppressed = window.suppressed.getAndSet(0);
+            if (suppressed > 0) {
+                logger.warn("Suppressed {} log entries for error code {} in the last {}",
+                        suppressed, errorCode, interval);
+            }
+        }
+        if (window.logged.incrementAndGet() <= limit) {
+            return true;
+        }
+        window.suppressed.incrementAndGet();
+        return false;
+    }
+
+    private CodeWindow newWindow(String errorCode) {
+        Counter counter = Counter.builder("paymtool.errors")
+                .description("Errors answered by the global exception handler")
+                .tag("code", errorCode)
+                .register(meterRegistry);
+        return new CodeWindow(counter, new AtomicLong(System.nanoTime()));
+    }
+
+    /** Counter and current logging interval of one error code. */
+    private record CodeWindow(Counter counter, AtomicLong start, AtomicInteger logged, AtomicLong suppressed) {
+
+        CodeWindow(Counter counter, AtomicLong start) {
+            this(counter, start, new AtomicInteger(), new AtomicLong());
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.validation.BindException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
@@ -21,12 +22,28 @@ import java.time.Instant;
  * converting exceptions into appropriate HTTP responses with consistent error
  * structures. It handles validation errors, business logic exceptions, and
  * unexpected system errors gracefully.
+ * <p>
+ * Every error is counted by its error code, and logging is rate-limited per
+ * code through {@link ErrorLogLimiter}, so that floods of invalid requests stay
+ * cheap to reject. Expected client errors are logged without stack traces.
  */
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    /** Counts errors per code and limits how many are logged. */
+    private final ErrorLogLimiter errorLog;
+
+    /**
+     * Creates the handler.
+     *
+     * @param errorLog limiter deciding which errors are logged
+     */
+    public GlobalExceptionHandler(ErrorLogLimiter errorLog) {
+        this.errorLog = errorLog;
+    }
+
     /**
      * Handles validation errors from request body validation.
      *
@@ -40,7 +57,35 @@ public class GlobalExceptionHandler {
                 .findFirst()
                 .orElse("Validation failed");
 
-        logger.warn("Validation error: {}", message);
+        if (errorLog.admit("INVALID_REQUEST")) {
+            logger.warn("Validation error: {}", message);
+        }
+
+        ErrorResponse error = new ErrorResponse(
+                "VALIDATION_ERROR",
+                message,
+                "INVALID_REQUEST",
+                Instant.now().toEpochMilli());
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
+    /**
+     * Handles validation errors from request body validation on the reactive stack.
+     *
+     * @param ex the validation exception
+     * @return HTTP 400 response with validation error details
+     */
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<ErrorResponse> handleWebExchangeBindException(WebExchangeBindException ex) {
+        String message = ex.getBindingResult().getFieldErrors().stream()
+                .map(error -> error.getField() + ": " + error.getDefaultMessage())
+                .findFirst()
+                .orElse("Validation failed");
+
+        if (errorLog.admit("INVALID_REQUEST")) {
+            logger.warn("Validation error: {}", message);
+        }
 
         ErrorResponse error = new ErrorResponse(
                 "VALIDATION_ERROR",
@@ -59,7 +104,9 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(BindException.class)
     public ResponseEntity<ErrorResponse> handleBindException(BindException ex) {
-        logger.warn("Bind exception: {}", ex.getMessage());
+        if (errorLog.admit("INVALID_REQUEST")) {
+            logger.warn("Bind exception: {}", ex.getMessage());
+        }
         ErrorResponse error = new ErrorResponse(
                 "VALIDATION_ERROR",
                 "Invalid request parameters",
@@ -77,7 +124,9 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ErrorResponse> handleIllegalArgumentException(IllegalArgumentException ex) {
-        logger.warn("Invalid argument: {}", ex.getMessage());
+        if (errorLog.admit("INVALID_INPUT")) {
+            logger.warn("Invalid argument: {}", ex.getMessage());
+        }
         ErrorResponse error = new ErrorResponse(
                 "VALIDATION_ERROR",
                 ex.getMessage(),
@@ -95,7 +144,9 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(DecryptionException.class)
     public ResponseEntity<ErrorResponse> handleDecryptionException(DecryptionException ex) {
-        logger.error("Decryption failed: {}", ex.getMessage(), ex);
+        if (errorLog.admit("DECRYPTION_FAILED")) {
+            logger.warn("Decryption failed: {}", ex.getMessage());
+        }
         ErrorResponse error = new ErrorResponse(
                 "ERROR",
                 "Failed to decrypt the request payload. The data may be corrupted or encrypted with a different key.",
@@ -105,6 +156,46 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
+    /**
+     * Handles requests referencing an unknown or expired session.
+     *
+     * @param ex the session not found exception
+     * @return HTTP 401 response asking the client to establish a new session
+     */
+    @ExceptionHandler(SessionNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleSessionNotFoundException(SessionNotFoundException ex) {
+        if (errorLog.admit("SESSION_NOT_FOUND")) {
+            logger.warn("Session lookup failed: {}", ex.getMessage());
+        }
+        ErrorResponse error = new ErrorResponse(
+                "ERROR",
+                "Session not found or expired. Please establish a new session.",
+                "SESSION_NOT_FOUND",
+                Instant.now().toEpochMilli());
+
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+    }
+
+    /**
+     * Handles records rejected by the write-behind journal.
+     *
+     * @param ex the write-behind unavailable exception
+     * @return HTTP 503 response asking the client to retry later
+     */
+    @ExceptionHandler(WriteBehindUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleWriteBehindUnavailableException(WriteBehindUnavailableException ex) {
+        if (errorLog.admit("WRITE_BEHIND_UNAVAILABLE")) {
+            logger.warn("Write-behind persistence unavailable: {}", ex.getMessage());
+        }
+        ErrorResponse error = new ErrorResponse(
+                "ERROR",
+                "The persistence queue cannot accept the request. Please try again later.",
+                "WRITE_BEHIND_UNAVAILABLE",
+                Instant.now().toEpochMilli());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
     /**
      * Handles encryption failures.
      *
@@ -113,7 +204,9 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(EncryptionException.class)
     public ResponseEntity<ErrorResponse> handleEncryptionException(EncryptionException ex) {
-        logger.error("Encryption failed: {}", ex.getMessage(), ex);
+        if (errorLog.admit("ENCRYPTION_FAILED")) {
+            logger.error("Encryption failed: {}", ex.getMessage(), ex);
+        }
         ErrorResponse error = new ErrorResponse(
                 "ERROR",
                 "Failed to encrypt data. Please contact support.",
@@ -131,7 +224,9 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(DataProcessingException.class)
     public ResponseEntity<ErrorResponse> handleDataProcessingException(DataProcessingException ex) {
-        logger.error("Data processing failed: {}", ex.getMessage(), ex);
+        if (errorLog.admit("DATA_PROCESSING_FAILED")) {
+            logger.warn("Data processing failed: {}", ex.getMessage());
+        }
         ErrorResponse error = new ErrorResponse(
                 "ERROR",
                 "Failed to process the request data. The payload format may be invalid.",
@@ -149,7 +244,9 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(PersistenceException.class)
     public ResponseEntity<ErrorResponse> handlePersistenceException(PersistenceException ex) {
-        logger.error("Persistence failed: {}", ex.getMessage(), ex);
+        if (errorLog.admit("PERSISTENCE_FAILED")) {
+            logger.error("Persistence failed: {}", ex.getMessage(), ex);
+        }
         ErrorResponse error = new ErrorResponse(
                 "ERROR",
                 "Failed to persist data. Please try again later.",
@@ -167,7 +264,9 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(JsonProcessingException.class)
     public ResponseEntity<ErrorResponse> handleJsonProcessingException(JsonProcessingException ex) {
-        logger.warn("JSON processing error: {}", ex.getMessage());
+        if (errorLog.admit("INVALID_JSON")) {
+            logger.warn("JSON processing error: {}", ex.getMessage());
+        }
         ErrorResponse error = new ErrorResponse(
                 "ERROR",
                 "Invalid JSON format in request payload",
@@ -185,7 +284,9 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGenericException(Exception ex) {
-        logger.error("Unexpected error occurred", ex);
+        if (errorLog.admit("INTERNAL_ERROR")) {
+            logger.error("Unexpected error occurred", ex);
+        }
         ErrorResponse error = new ErrorResponse(
                 "ERROR",
                 "An unexpected error occurred. Please try again later.",
@@ -203,7 +304,9 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(DataAccessException.class)
     public ResponseEntity<ErrorResponse> handleDatabaseErrors(DataAccessException ex){
-        logger.error("Database error occured", ex);
+        if (errorLog.admit("Internal Error")) {
+            logger.error("Database error occured", ex);
+        }
         ErrorResponse error = new ErrorResponse(
             "Error",
             "Database operation failed",
@@ -0,0 +1,20 @@
+package com.rudsi.paymtool.error;
+
+/**
+ * Exception thrown when a card number fails format or Luhn checksum validation.
+ * <p>
+ * It extends {@link IllegalArgumentException}, which callers already handle for
+ * invalid input. Invalid card numbers are expected traffic, so it is stackless:
+ * no stack trace is captured when it is thrown.
+ */
+public class InvalidCardNumberException extends IllegalArgumentException {
+
+    public InvalidCardNumberException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,23 @@
+package com.rudsi.paymtool.error;
+
+/**
+ * Exception thrown when a request references a session that does not exist.
+ * <p>
+ * This typically indicates that the session has expired, was evicted from the
+ * bounded session table, or was never established. The client is expected to
+ * establish a new session and retry.
+ * <p>
+ * Expired sessions are part of normal operation, so no stack trace is
+ * recorded.
+ */
+public class SessionNotFoundException extends RuntimeException {
+
+    public SessionNotFoundException(String message) {
+        super(message, null, false, false);
+    }
+
+    public SessionNotFoundException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+}
+
@@ -0,0 +1,20 @@
+package com.rudsi.paymtool.error;
+
+/**
+ * Exception thrown when a record cannot be accepted for write-behind persistence.
+ * <p>
+ * This indicates that write-behind persistence is disabled, that the journal
+ * already holds its configured maximum of pending records, or that the journal
+ * could not be written. The client is expected to retry later or fall back to
+ * synchronous persistence.
+ */
+public class WriteBehindUnavailableException extends RuntimeException {
+
+    public WriteBehindUnavailableException(String message) {
+        super(message);
+    }
+
+    public WriteBehindUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
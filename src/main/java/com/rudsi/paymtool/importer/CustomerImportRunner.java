@@ -0,0 +1,85 @@
+package com.rudsi.paymtool.importer;
+
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs a bulk import when the application is started with
+ * {@code app.import.file}, then exits with status 0 on success and 1 on
+ * failure.
+ * <p>
+ * Meant to be combined with the {@code import} profile, which starts the
+ * application without the web server and background caches:
+ *
+ * <pre>
+ * java -jar paymtool.jar --spring.profiles.active=import --app.import.file=customers.csv
+ * </pre>
+ *
+ * Rejected lines go to {@code app.import.rejects} (default
+ * {@code <file>.rejects.csv}). Progress is checkpointed under
+ * {@code app.import.job-id} (default the file name), so rerunning the same
+ * command after a failure resumes where the previous run stopped.
+ */
+@Component
+@ConditionalOnProperty("app.import.file")
+public class CustomerImportRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerImportRunner.class);
+
+    private final CustomerImportService importService;
+
+    private final ConfigurableApplicationContext context;
+
+    private final Path file;
+
+    private final String rejects;
+
+    private final String jobId;
+
+    /**
+     * Creates a new {@code CustomerImportRunner}.
+     *
+     * @param importService service performing the import
+     * @param context       application context closed once the import ends
+     * @param file          file to import
+     * @param rejects       file receiving rejected lines; blank for the default
+     * @param jobId         checkpoint id of the import; blank for the file name
+     */
+    public CustomerImportRunner(
+            CustomerImportService importService,
+            ConfigurableApplicationContext context,
+            @Value("${app.import.file}") Path file,
+            @Value("${app.import.rejects:}") String rejects,
+            @Value("${app.import.job-id:}") String jobId) {
+        this.importService = importService;
+        this.context = context;
+        this.file = file;
+        this.rejects = rejects;
+        this.jobId = jobId;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Path rejectsFile = rejects.isBlank() ? Path.of(file + ".rejects.csv") : Path.of(rejects);
+        String job = jobId.isBlank() ? file.getFileName().toString() : jobId;
+        int status;
+        try {
+            importService.importFile(file, rejectsFile, job);
+            status = 0;
+        } catch (Exception e) {
+            logger.error("Import of {} failed; rerun to resume from the last checkpoint", file, e);
+            status = 1;
+        }
+        int exitCode = status;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+}
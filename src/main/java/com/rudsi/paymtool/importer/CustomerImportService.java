@@ -0,0 +1,421 @@
+package com.rudsi.paymtool.importer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.rudsi.paymtool.dto.DecryptedCustomerDetailsRequest;
+import com.rudsi.paymtool.error.PersistenceException;
+import com.rudsi.paymtool.service.AesEncryptionService;
+import com.rudsi.paymtool.service.BlindIndexService;
+import com.rudsi.paymtool.util.LunhValidation;
+
+/**
+ * Service importing customers from partner files in bulk.
+ * <p>
+ * The file is streamed in chunks of lines, so memory use does not depend on its
+ * size. Each chunk is parsed, Luhn-validated, AES-GCM encrypted and blind-indexed
+ * on a worker pool, exactly like a {@code /persist} request, and rendered as
+ * COPY input. Chunks are then loaded strictly in file order: each is streamed
+ * with {@code COPY ... FROM STDIN} into a temporary staging table, moved into
+ * {@code customer_details} with {@code INSERT ... ON CONFLICT DO NOTHING}, and
+ * committed together with the job's checkpoint row. A restarted job therefore
+ * resumes after the last committed line without inserting anything twice.
+ * <p>
+ * Invalid lines are written to a rejects file as {@code line,reason}; the card
+ * number is never written there. Rejects are flushed before their chunk commits,
+ * so a crash may repeat, but never lose, reject lines.
+ */
+@Service
+public class CustomerImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerImportService.class);
+
+    private static final String CREATE_STAGING = """
+            CREATE TEMP TABLE IF NOT EXISTS customer_import_staging (
+                line            BIGINT,
+                card_number_idx BYTEA,
+                card_number_enc BYTEA,
+                card_key_id     INTEGER,
+                name            TEXT,
+                mobile          TEXT,
+                email           TEXT
+            ) ON COMMIT DELETE ROWS
+            """;
+
+    private static final String COPY_STAGING = "COPY customer_import_staging "
+            + "(line, card_number_idx, card_number_enc, card_key_id, name, mobile, email) FROM STDIN WITH (FORMAT csv)";
+
+    private static final String MERGE_STAGING = """
+            INSERT INTO customer_details (card_number_idx, card_number_enc, card_key_id, name, mobile, email,
+                                          created_at, updated_at)
+            SELECT card_number_idx, card_number_enc, card_key_id, name, mobile, email, now(), now()
+              FROM customer_import_staging
+             ORDER BY line
+            ON CONFLICT (card_number_idx) DO NOTHING
+            """;
+
+    private static final String READ_CHECKPOINT = "SELECT line_number, inserted, duplicates, rejected "
+            + "FROM customer_import_checkpoint WHERE job_id = ?";
+
+    private static final String WRITE_CHECKPOINT = """
+            INSERT INTO customer_import_checkpoint (job_id, line_number, inserted, duplicates, rejected, updated_at)
+            VALUES (?, ?, ?, ?, ?, now())
+            ON CONFLICT (job_id) DO UPDATE
+               SET line_number = EXCLUDED.line_number,
+                   inserted = EXCLUDED.inserted,
+                   duplicates = EXCLUDED.duplicates,
+                   rejected = EXCLUDED.rejected,
+                   updated_at = EXCLUDED.updated_at
+            """;
+
+    /** Column limits of {@code customer_details}; longer values are rejected up front. */
+    private static final int MAX_NAME = 100;
+
+    private static final int MAX_MOBILE = 15;
+
+    private static final int MAX_EMAIL = 100;
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final DataSource dataSource;
+
+    private final AesEncryptionService aesService;
+
+    private final BlindIndexService blindIndexService;
+
+    private final int chunkSize;
+
+    private final int workers;
+
+    /**
+     * Creates a new {@code CustomerImportService}.
+     *
+     * @param dataSource        data source providing the import connection
+     * @param aesService        AES service used to encrypt card numbers for storage
+     * @param blindIndexService service computing card number blind indexes
+     * @param chunkSize         number of lines per chunk and per transaction
+     * @param workers           number of workers preparing chunks; non-positive
+     *                          values use one per available processor
+     */
+    public CustomerImportService(
+            DataSource dataSource,
+            AesEncryptionService aesService,
+            BlindIndexService blindIndexService,
+            @Value("${app.import.chunk-size:5000}") int chunkSize,
+            @Value("${app.import.workers:0}") int workers) {
+        this.dataSource = dataSource;
+        this.aesService = aesService;
+        this.blindIndexService = blindIndexService;
+        this.chunkSize = chunkSize;
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Imports a customer file, resuming a previous run of the same job.
+     *
+     * @param file    CSV or NDJSON file to import
+     * @param rejects file receiving rejected lines; appended to on restart
+     * @param jobId   id under which progress is checkpointed
+     * @return totals of the job
+     * @throws IOException          if the input or rejects file cannot be accessed
+     * @throws PersistenceException if loading into the database fails
+     */
+    public ImportSummary importFile(Path file, Path rejects, String jobId) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try (Connection connection = dataSource.getConnection();
+                BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+                BufferedWriter rejectWriter = Files.newBufferedWriter(rejects, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            connection.setAutoCommit(false);
+            Job job = new Job(jobId, connection, rejectWriter, readCheckpoint(connection, jobId));
+            if (job.lastLine > 0) {
+                logger.info("Resuming import {} after line {}", jobId, job.lastLine);
+            }
+
+            ImportRecordParser.Format format = ImportRecordParser.Format.of(file.getFileName().toString());
+            long lineNumber = 0;
+            ImportRecordParser parser;
+            if (format == ImportRecordParser.Format.CSV) {
+                String header = reader.readLine();
+                if (header == null) {
+                    return job.summary();
+                }
+                lineNumber++;
+                parser = ImportRecordParser.csv(header);
+            } else {
+                parser = ImportRecordParser.ndjson();
+            }
+
+            // Keep a bounded number of chunks in flight; they are loaded in file order.
+            Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+            int maxInFlight = 2 * workers;
+            while (true) {
+                long firstLine = lineNumber + 1;
+                List<String> lines = new ArrayList<>(chunkSize);
+                String line;
+                while (lines.size() < chunkSize && (line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (lineNumber > job.lastLine) {
+                        lines.add(line);
+                    } else {
+                        firstLine++;
+                    }
+                }
+                if (lines.isEmpty()) {
+                    break;
+                }
+                long chunkStart = firstLine;
+                inFlight.add(pool.submit(() -> prepare(parser, chunkStart, lines)));
+                if (inFlight.size() >= maxInFlight) {
+                    job.load(await(inFlight.removeFirst()));
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                job.load(await(inFlight.removeFirst()));
+            }
+
+            ImportSummary summary = job.summary();
+            logger.info("Import {} finished: {} inserted, {} duplicates, {} rejected, {} lines",
+                    jobId, summary.inserted(), summary.duplicates(), summary.rejected(), summary.lastLine());
+            return summary;
+        } catch (SQLException e) {
+            throw new PersistenceException("Bulk import " + jobId + " failed", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Parses, validates and encrypts a chunk of lines into COPY input and rejects. */
+    private Chunk prepare(ImportRecordParser parser, long firstLine, List<String> lines) {
+        StringBuilder copy = new StringBuilder(lines.size() * 160);
+        StringBuilder rejects = new StringBuilder();
+        HexFormat hex = HexFormat.of();
+        int keyId = aesService.activeKeyId();
+        int rows = 0;
+        int rejected = 0;
+
+        // Parse the whole chunk first so that its card numbers are Luhn-checked
+        // in one batch; per line, either the request or the parse error is kept.
+        DecryptedCustomerDetailsRequest[] requests = new DecryptedCustomerDetailsRequest[lines.size()];
+        String[] parseErrors = new String[lines.size()];
+        List<String> cardNumbers = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                requests[i] = parser.parse(line);
+                cardNumbers.add(requests[i].cardNumber());
+            } catch (IllegalArgumentException e) {
+                parseErrors[i] = e.getMessage();
+            }
+        }
+        boolean[] validCards = LunhValidation.isValidBatch(cardNumbers);
+
+        long lineNumber = firstLine - 1;
+        int card = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            lineNumber++;
+            DecryptedCustomerDetailsRequest request = requests[i];
+            if (request == null) {
+                if (parseErrors[i] != null) {
+                    rejects.append(lineNumber).append(',');
+                    appendCsv(rejects, parseErrors[i]).append('\n');
+                    rejected++;
+                }
+                continue;
+            }
+            try {
+                if (!validCards[card++]) {
+                    // Only failed cards are validated again, for the reject reason.
+                    LunhValidation.validate(request.cardNumber());
+                }
+                checkLength("name", request.name(), MAX_NAME);
+                checkLength("mobile", request.mobile(), MAX_MOBILE);
+                checkLength("email", request.email(), MAX_EMAIL);
+
+                byte[] index = blindIndexService.compute(request.cardNumber());
+                byte[] encrypted = aesService.encrypt(request.cardNumber());
+                copy.append(lineNumber)
+                        .append(",\\x").append(hex.formatHex(index))
+                        .append(",\\x").append(hex.formatHex(encrypted))
+                        .append(',').append(keyId).append(',');
+                appendCsv(copy, request.name()).append(',');
+                appendCsv(copy, request.mobile()).append(',');
+                appendCsv(copy, request.email()).append('\n');
+                rows++;
+            } catch (IllegalArgumentException e) {
+                rejects.append(lineNumber).append(',');
+                appendCsv(rejects, e.getMessage()).append('\n');
+                rejected++;
+            }
+        }
+        return new Chunk(lineNumber, copy.toString().getBytes(StandardCharsets.UTF_8), rows, rejected,
+                rejects.toString());
+    }
+
+    private static void checkLength(String field, String value, int max) {
+        if (value != null && value.length() > max) {
+            throw new IllegalArgumentException(field + " exceeds " + max + " characters");
+        }
+    }
+
+    /** Appends a CSV field; {@code null} becomes an unquoted empty field, which COPY reads as NULL. */
+    private static StringBuilder appendCsv(StringBuilder out, String value) {
+        if (value == null) {
+            return out;
+        }
+        return out.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to prepare import chunk", e.getCause());
+        }
+    }
+
+    private static long[] readCheckpoint(Connection connection, String jobId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(READ_CHECKPOINT)) {
+            statement.setString(1, jobId);
+            try (ResultSet rs = statement.executeQuery()) {
+                long[] checkpoint = new long[4];
+                if (rs.next()) {
+                    for (int i = 0; i < checkpoint.length; i++) {
+                        checkpoint[i] = rs.getLong(i + 1);
+                    }
+                }
+                connection.commit();
+                return checkpoint;
+            }
+        }
+    }
+
+    /** A prepared chunk: COPY input for its valid lines and CSV lines for its rejects. */
+    private record Chunk(long lastLine, byte[] copyData, int rows, int rejected, String rejects) {
+    }
+
+    /** State of a running import, owned by the loading thread. */
+    private static final class Job {
+
+        private final String jobId;
+
+        private final Connection connection;
+
+        private final CopyManager copyManager;
+
+        private final BufferedWriter rejectWriter;
+
+        private long lastLine;
+
+        private long inserted;
+
+        private long duplicates;
+
+        private long rejected;
+
+        private final long startedAt = System.nanoTime();
+
+        private final long startLine;
+
+        private long lastProgress = startedAt;
+
+        Job(String jobId, Connection connection, BufferedWriter rejectWriter, long[] checkpoint)
+                throws SQLException {
+            this.jobId = jobId;
+            this.connection = connection;
+            this.copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            this.rejectWriter = rejectWriter;
+            this.lastLine = checkpoint[0];
+            this.inserted = checkpoint[1];
+            this.duplicates = checkpoint[2];
+            this.rejected = checkpoint[3];
+            this.startLine = lastLine;
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING);
+            }
+            connection.commit();
+        }
+
+        /** Loads a chunk and commits it together with the checkpoint. */
+        void load(Chunk chunk) throws SQLException, IOException {
+            if (!chunk.rejects().isEmpty()) {
+                rejectWriter.write(chunk.rejects());
+                rejectWriter.flush();
+            }
+            int merged = 0;
+            try {
+                if (chunk.rows() > 0) {
+                    copyManager.copyIn(COPY_STAGING, new ByteArrayInputStream(chunk.copyData()));
+                    try (Statement statement = connection.createStatement()) {
+                        merged = statement.executeUpdate(MERGE_STAGING);
+                    }
+                }
+                try (PreparedStatement statement = connection.prepareStatement(WRITE_CHECKPOINT)) {
+                    statement.setString(1, jobId);
+                    statement.setLong(2, chunk.lastLine());
+                    statement.setLong(3, inserted + merged);
+                    statement.setLong(4, duplicates + chunk.rows() - merged);
+                    statement.setLong(5, rejected + chunk.rejected());
+                    statement.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException | IOException e) {
+                connection.rollback();
+                throw e;
+            }
+            lastLine = chunk.lastLine();
+            inserted += merged;
+            duplicates += chunk.rows() - merged;
+            rejected += chunk.rejected();
+
+            long now = System.nanoTime();
+            if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                lastProgress = now;
+                double seconds = (now - startedAt) / 1e9;
+                logger.info("Import {}: line {}, {} inserted, {} duplicates, {} rejected ({} lines/s)",
+                        jobId, lastLine, inserted, duplicates, rejected,
+                        Math.round((lastLine - startLine) / seconds));
+            }
+        }
+
+        ImportSummary summary() {
+            return new ImportSummary(jobId, lastLine, inserted, duplicates, rejected);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.rudsi.paymtool.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rudsi.paymtool.dto.DecryptedCustomerDetailsRequest;
+
+/**
+ * Parses single lines of a customer import file.
+ * <p>
+ * Two formats are supported:
+ * <ul>
+ * <li>{@code csv}: a header line naming the columns {@code cardNumber},
+ * {@code name}, {@code mobile} and {@code email} in any order, followed by one
+ * customer per line. Fields may be enclosed in double quotes, with embedded
+ * quotes doubled; fields spanning several lines are not supported.</li>
+ * <li>{@code ndjson}: one JSON object per line with the same field names.</li>
+ * </ul>
+ * Instances are immutable once the header is known and may be shared by the
+ * import workers.
+ */
+final class ImportRecordParser {
+
+    enum Format {
+        CSV, NDJSON;
+
+        /** Picks the format from the file extension: {@code .ndjson}/{@code .jsonl}, else CSV. */
+        static Format of(String fileName) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? NDJSON : CSV;
+        }
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Format format;
+
+    /** Column positions of cardNumber, name, mobile and email; -1 if absent. */
+    private final int[] columns;
+
+    private ImportRecordParser(Format format, int[] columns) {
+        this.format = format;
+        this.columns = columns;
+    }
+
+    /** Creates a parser for NDJSON files, which have no header. */
+    static ImportRecordParser ndjson() {
+        return new ImportRecordParser(Format.NDJSON, null);
+    }
+
+    /**
+     * Creates a parser for CSV files from their header line.
+     *
+     * @throws IllegalArgumentException if the header has no {@code cardNumber} column
+     */
+    static ImportRecordParser csv(String header) {
+        List<String> names = splitCsv(header);
+        int[] columns = new int[4];
+        String[] expected = { "cardnumber", "name", "mobile", "email" };
+        for (int i = 0; i < expected.length; i++) {
+            columns[i] = -1;
+            for (int j = 0; j < names.size(); j++) {
+                if (names.get(j).trim().toLowerCase(Locale.ROOT).equals(expected[i])) {
+                    columns[i] = j;
+                }
+            }
+        }
+        if (columns[0] < 0) {
+            throw new IllegalArgumentException("CSV header has no cardNumber column: " + header);
+        }
+        return new ImportRecordParser(Format.CSV, columns);
+    }
+
+    /**
+     * Parses one line into a customer.
+     *
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    DecryptedCustomerDetailsRequest parse(String line) {
+        if (format == Format.NDJSON) {
+            try {
+                return MAPPER.readValue(line, DecryptedCustomerDetailsRequest.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed JSON record");
+            }
+        }
+        List<String> fields = splitCsv(line);
+        return new DecryptedCustomerDetailsRequest(
+                field(fields, columns[0]), field(fields, columns[1]),
+                field(fields, columns[2]), field(fields, columns[3]));
+    }
+
+    private static String field(List<String> fields, int column) {
+        if (column < 0 || column >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(column);
+        return value.isEmpty() ? null : value;
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted CSV field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
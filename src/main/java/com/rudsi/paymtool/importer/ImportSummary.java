@@ -0,0 +1,19 @@
+package com.rudsi.paymtool.importer;
+
+/**
+ * Totals of a bulk import job, including work done by earlier runs of the
+ * same job.
+ *
+ * @param jobId      id under which the import is checkpointed
+ * @param lastLine   last line of the file that has been committed
+ * @param inserted   customers inserted
+ * @param duplicates customers skipped because their card was already stored
+ * @param rejected   lines rejected by validation
+ */
+public record ImportSummary(
+        String jobId,
+        long lastLine,
+        long inserted,
+        long duplicates,
+        long rejected) {
+}
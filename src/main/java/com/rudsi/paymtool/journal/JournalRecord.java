@@ -0,0 +1,97 @@
+package com.rudsi.paymtool.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.rudsi.paymtool.service.AesEncryptionService;
+
+/**
+ * A customer waiting in the write-behind journal.
+ * <p>
+ * Only the blind index and the AES-GCM ciphertext of the card number are
+ * journaled, so the plain card number never reaches the journal files.
+ *
+ * @param appendedAt          epoch milliseconds at which the record was journaled
+ * @param cardNumberIndex     blind index of the card number
+ * @param encryptedCardNumber AES-GCM encrypted card number
+ * @param cardKeyId           id of the AES key the card number is encrypted with
+ * @param name                customer name
+ * @param mobile              customer mobile number
+ * @param email               customer email
+ */
+record JournalRecord(
+        long appendedAt,
+        byte[] cardNumberIndex,
+        byte[] encryptedCardNumber,
+        int cardKeyId,
+        String name,
+        String mobile,
+        String email) {
+
+    private static final int NULL_LENGTH = 0xFFFF;
+
+    /**
+     * Serializes the record as: appendedAt:long, then the index, ciphertext,
+     * name, mobile and email, each as length:ushort + bytes (0xFFFF = null),
+     * then cardKeyId:int. The key id comes last so that records journaled before
+     * it existed still decode, as encrypted with the original key.
+     */
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(appendedAt);
+            writeBytes(out, cardNumberIndex);
+            writeBytes(out, encryptedCardNumber);
+            writeBytes(out, name != null ? name.getBytes(StandardCharsets.UTF_8) : null);
+            writeBytes(out, mobile != null ? mobile.getBytes(StandardCharsets.UTF_8) : null);
+            writeBytes(out, email != null ? email.getBytes(StandardCharsets.UTF_8) : null);
+            out.writeInt(cardKeyId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Reads a record written by {@link #encode()}. */
+    static JournalRecord decode(ByteBuffer buffer) {
+        long appendedAt = buffer.getLong();
+        byte[] index = readBytes(buffer);
+        byte[] encrypted = readBytes(buffer);
+        String name = readString(buffer);
+        String mobile = readString(buffer);
+        String email = readString(buffer);
+        int cardKeyId = buffer.remaining() >= Integer.BYTES ? buffer.getInt() : AesEncryptionService.DEFAULT_KEY_ID;
+        return new JournalRecord(appendedAt, index, encrypted, cardKeyId, name, mobile, email);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeShort(NULL_LENGTH);
+            return;
+        }
+        if (value.length >= NULL_LENGTH) {
+            throw new IllegalArgumentException("Journal field too long: " + value.length + " bytes");
+        }
+        out.writeShort(value.length);
+        out.write(value);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return value;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] value = readBytes(buffer);
+        return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+}
@@ -0,0 +1,323 @@
+package com.rudsi.paymtool.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only, segmented journal of customers waiting to be written to the
+ * database.
+ * <p>
+ * Records are framed as {@code length:int crc32c:int payload} and appended to
+ * segment files named {@code journal-<id>.log}. A segment is rolled once it
+ * exceeds the configured size. {@link #append} returns only after the record
+ * has been forced to disk; concurrent appenders share a single {@code force}
+ * whenever one is already under way (group fsync).
+ * <p>
+ * The position up to which records have been written to the database is kept
+ * in a {@code checkpoint} file, replaced atomically. On startup,
+ * {@link #replay()} returns every record after the checkpoint. Segments are
+ * forced when they are rolled, so only the newest segment can end in a torn
+ * record; replay truncates it there. A bad frame in any older segment is
+ * corruption of records already acknowledged, and fails the replay rather than
+ * dropping them. Segments entirely below the checkpoint are deleted.
+ */
+final class PersistenceJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersistenceJournal.class);
+
+    private static final int FRAME_HEADER = 2 * Integer.BYTES;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+
+    private final long segmentSize;
+
+    /** Guards appends and segment rolling. */
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    /** Serializes forces so that one force covers every append before it. */
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private FileChannel segment;
+
+    private long segmentId;
+
+    private long writePosition;
+
+    /** Segment and position up to which data is known to be on disk; guarded by {@link #syncLock}. */
+    private long syncedSegmentId;
+
+    private long syncedPosition;
+
+    /** A journaled record and the journal position just after it. */
+    record Entry(JournalRecord record, long segmentId, long endPosition) {
+    }
+
+    PersistenceJournal(Path directory, long segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Reads every record after the checkpoint and opens a new segment for
+     * appends. Must be called once, before the first {@link #append}.
+     *
+     * @return pending records in journal order
+     * @throws IOException if the checkpoint or a segment other than the newest
+     *                     is corrupt
+     */
+    List<Entry> replay() throws IOException {
+        long[] checkpoint = readCheckpoint();
+        List<Entry> pending = new ArrayList<>();
+        List<Long> ids = segmentIds();
+        long newestId = ids.isEmpty() ? checkpoint[0] : ids.get(ids.size() - 1);
+        for (long id : ids) {
+            if (id < checkpoint[0] || Files.size(segmentPath(id)) == 0) {
+                Files.deleteIfExists(segmentPath(id));
+                continue;
+            }
+            readSegment(id, id == checkpoint[0] ? checkpoint[1] : 0, id == newestId, pending);
+        }
+        long lastId = Math.max(checkpoint[0], newestId);
+        openSegment(lastId + 1);
+        if (!pending.isEmpty()) {
+            logger.info("Replaying {} journaled customers from {}", pending.size(), directory);
+        }
+        return pending;
+    }
+
+    /**
+     * Appends a record and forces it to disk.
+     *
+     * @param record  record to append
+     * @param inOrder callback invoked with the new entry while appends are still
+     *                serialized, so that callers can queue entries in journal order
+     * @return the journal entry
+     */
+    Entry append(JournalRecord record, Consumer<Entry> inOrder) throws IOException {
+        byte[] payload = record.encode();
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .flip();
+
+        Entry entry;
+        FileChannel channel;
+        appendLock.lock();
+        try {
+            if (writePosition >= segmentSize) {
+                rollSegment();
+            }
+            while (frame.hasRemaining()) {
+                segment.write(frame, writePosition + frame.position());
+            }
+            writePosition += frame.limit();
+            entry = new Entry(record, segmentId, writePosition);
+            channel = segment;
+            inOrder.accept(entry);
+        } finally {
+            appendLock.unlock();
+        }
+        sync(channel, entry);
+        return entry;
+    }
+
+    /**
+     * Records that every entry up to and including {@code entry} has been written
+     * to the database, and deletes segments that are no longer needed.
+     */
+    void checkpoint(Entry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(3 * Long.BYTES)
+                .putLong(entry.segmentId())
+                .putLong(entry.endPosition());
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, 2 * Long.BYTES);
+        buffer.putLong(crc.getValue()).flip();
+
+        Path temp = directory.resolve("checkpoint.tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve("checkpoint"), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        for (long id : segmentIds()) {
+            if (id < entry.segmentId()) {
+                Files.deleteIfExists(segmentPath(id));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            if (segment != null) {
+                segment.force(false);
+                segment.close();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void sync(FileChannel channel, Entry entry) throws IOException {
+        syncLock.lock();
+        try {
+            if (isSynced(entry)) {
+                return;
+            }
+            long position;
+            appendLock.lock();
+            try {
+                if (segmentId != entry.segmentId()) {
+                    // Segments are forced when they are rolled.
+                    return;
+                }
+                position = writePosition;
+            } finally {
+                appendLock.unlock();
+            }
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // Rolled, and therefore forced, since the position was read.
+            }
+            syncedSegmentId = entry.segmentId();
+            syncedPosition = position;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private boolean isSynced(Entry entry) {
+        long id = syncedSegmentId;
+        return id > entry.segmentId() || (id == entry.segmentId() && syncedPosition >= entry.endPosition());
+    }
+
+    private void rollSegment() throws IOException {
+        segment.force(false);
+        segment.close();
+        openSegment(segmentId + 1);
+    }
+
+    private void openSegment(long id) throws IOException {
+        segment = FileChannel.open(segmentPath(id), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentId = id;
+        writePosition = 0;
+    }
+
+    /**
+     * Reads the records of a segment from the given position.
+     *
+     * @param newest whether this is the newest segment, the only one that may
+     *               end in a torn record
+     * @throws IOException if a segment other than the newest holds a bad frame
+     */
+    private void readSegment(long id, long from, boolean newest, List<Entry> pending) throws IOException {
+        Path path = segmentPath(id);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long position = from;
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+            while (position < size) {
+                header.clear();
+                if (!readFully(channel, header, position)) {
+                    break;
+                }
+                int length = header.getInt(0);
+                int expectedCrc = header.getInt(4);
+                if (length <= 0 || position + FRAME_HEADER + length > size) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(channel, payload, position + FRAME_HEADER);
+                CRC32C crc = new CRC32C();
+                crc.update(payload.array());
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+                position += FRAME_HEADER + length;
+                pending.add(new Entry(JournalRecord.decode(payload.flip()), id, position));
+            }
+            if (position < size && !newest) {
+                throw new IOException("Corrupt journal segment " + path + " at offset " + position
+                        + "; its remaining records were acknowledged and cannot be dropped."
+                        + " Repair or move the segment aside to start");
+            }
+            if (position < size) {
+                logger.warn("Truncating torn journal record in {} at offset {}", path, position);
+                channel.truncate(position);
+                channel.force(true);
+            }
+        }
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the checkpointed segment id and position, or zeros without a valid checkpoint. */
+    private long[] readCheckpoint() throws IOException {
+        Path path = directory.resolve("checkpoint");
+        if (!Files.exists(path)) {
+            return new long[] { 0, 0 };
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (buffer.remaining() == 3 * Long.BYTES) {
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.array(), 0, 2 * Long.BYTES);
+            if (buffer.getLong(2 * Long.BYTES) == crc.getValue()) {
+                return new long[] { buffer.getLong(0), buffer.getLong(Long.BYTES) };
+            }
+        }
+        throw new IOException("Corrupt journal checkpoint " + path);
+    }
+
+    private List<Long> segmentIds() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+}
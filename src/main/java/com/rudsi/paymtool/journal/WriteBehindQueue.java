@@ -0,0 +1,340 @@
+package com.rudsi.paymtool.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import com.rudsi.paymtool.cache.CardIndexFilter;
+import com.rudsi.paymtool.cache.CustomerLookupCache;
+import com.rudsi.paymtool.dto.CustomerContact;
+import com.rudsi.paymtool.entity.CustomerDetails;
+import com.rudsi.paymtool.error.WriteBehindUnavailableException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind persistence: customers are acknowledged once they are durably
+ * appended to a local {@link PersistenceJournal} and are written to the database
+ * later by a background writer.
+ * <p>
+ * The writer drains everything queued since its last commit into one
+ * transaction (group commit), using a batched {@code INSERT ... ON CONFLICT}
+ * so that replaying a record after a crash is harmless. A single writer keeps
+ * the database in journal order, so the last write for a card always wins.
+ * After each commit the journal checkpoint is advanced and the customers are
+ * published to the lookup cache and card filter.
+ * <p>
+ * The number of pending records is bounded by {@code app.persist.write-behind.capacity};
+ * beyond it, {@link #enqueue} is rejected. Records left in the journal by a
+ * previous run are replayed before any new record. Transient database failures
+ * are retried with backoff; records violating a constraint are skipped and
+ * counted.
+ * <p>
+ * Disabled by default ({@code app.persist.write-behind.enabled}). Published
+ * metrics: {@code paymtool.writebehind.depth}, {@code paymtool.writebehind.lag},
+ * {@code paymtool.writebehind.batch.size}, {@code paymtool.writebehind.commit}
+ * and {@code paymtool.writebehind.rejected}.
+ */
+@Component
+public class WriteBehindQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    static final String UPSERT_SQL = """
+            INSERT INTO customer_details (card_number_idx, card_number_enc, card_key_id, name, mobile, email,
+                                          created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, now(), now())
+            ON CONFLICT (card_number_idx) DO UPDATE
+               SET name = EXCLUDED.name,
+                   mobile = EXCLUDED.mobile,
+                   email = EXCLUDED.email,
+                   updated_at = EXCLUDED.updated_at
+            """;
+
+    private static final Duration MAX_RETRY_DELAY = Duration.ofSeconds(30);
+
+    private final boolean enabled;
+
+    private final int capacity;
+
+    private final int batchSize;
+
+    private final Duration shutdownTimeout;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final CustomerLookupCache lookupCache;
+
+    private final CardIndexFilter cardFilter;
+
+    private final PersistenceJournal journal;
+
+    /** Journaled entries not yet written to the database, in journal order. */
+    private final BlockingQueue<PersistenceJournal.Entry> queue = new LinkedBlockingQueue<>();
+
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private final DistributionSummary batchSizes;
+
+    private final Timer commitTimer;
+
+    private final Counter rejected;
+
+    /** Append time of the oldest record in the batch being written, or 0. */
+    private volatile long inFlightSince;
+
+    private volatile boolean running = true;
+
+    private Thread writer;
+
+    /**
+     * Creates the queue and loads records left in the journal by a previous run.
+     *
+     * @param enabled             whether write-behind persistence is available
+     * @param directory           directory holding the journal
+     * @param segmentSize         size at which journal segments are rolled
+     * @param capacity            maximum number of pending records
+     * @param batchSize           maximum number of records per database transaction
+     * @param shutdownTimeout     time allowed for draining the queue on shutdown
+     * @param jdbcTemplate        template used to write batches
+     * @param transactionTemplate template demarcating each batch transaction
+     * @param lookupCache         cache receiving written customers
+     * @param cardFilter          filter receiving written cards
+     * @param meterRegistry       registry used to publish queue metrics
+     * @throws IOException if the journal cannot be opened or replayed
+     */
+    public WriteBehindQueue(
+            @Value("${app.persist.write-behind.enabled:false}") boolean enabled,
+            @Value("${app.persist.write-behind.directory:data/journal}") Path directory,
+            @Value("${app.persist.write-behind.segment-size:64MB}") DataSize segmentSize,
+            @Value("${app.persist.write-behind.capacity:100000}") int capacity,
+            @Value("${app.persist.write-behind.batch-size:500}") int batchSize,
+            @Value("${app.persist.write-behind.shutdown-timeout:10s}") Duration shutdownTimeout,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            CustomerLookupCache lookupCache,
+            CardIndexFilter cardFilter,
+            MeterRegistry meterRegistry) throws IOException {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.shutdownTimeout = shutdownTimeout;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.lookupCache = lookupCache;
+        this.cardFilter = cardFilter;
+
+        Gauge.builder("paymtool.writebehind.depth", depth, AtomicInteger::get)
+                .description("Journaled customers not yet written to the database")
+                .register(meterRegistry);
+        Gauge.builder("paymtool.writebehind.lag", this, WriteBehindQueue::lagSeconds)
+                .description("Age of the oldest journaled customer not yet written to the database")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("paymtool.writebehind.batch.size")
+                .description("Customers written per write-behind transaction")
+                .register(meterRegistry);
+        this.commitTimer = Timer.builder("paymtool.writebehind.commit")
+                .description("Time spent writing a write-behind batch")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("paymtool.writebehind.rejected")
+                .description("Journaled customers skipped because the database rejected them")
+                .register(meterRegistry);
+
+        if (enabled) {
+            this.journal = new PersistenceJournal(directory, segmentSize.toBytes());
+            List<PersistenceJournal.Entry> pending = journal.replay();
+            queue.addAll(pending);
+            depth.set(pending.size());
+        } else {
+            this.journal = null;
+        }
+    }
+
+    /**
+     * Durably journals a customer for asynchronous persistence.
+     *
+     * @param customer customer to store; its id is ignored
+     * @throws WriteBehindUnavailableException if write-behind persistence is
+     *                                         disabled, the queue is full or the
+     *                                         journal cannot be written
+     */
+    public void enqueue(CustomerDetails customer) {
+        if (!enabled) {
+            throw new WriteBehindUnavailableException("Write-behind persistence is disabled");
+        }
+        if (depth.get() >= capacity) {
+            throw new WriteBehindUnavailableException("Write-behind queue is full");
+        }
+        JournalRecord record = new JournalRecord(System.currentTimeMillis(), customer.getCardNumberIndex(),
+                customer.getEncryptedCardNumber(), customer.getCardKeyId(), customer.getName(), customer.getMobile(), customer.getEmail());
+        try {
+            journal.append(record, entry -> {
+                depth.incrementAndGet();
+                queue.add(entry);
+            });
+        } catch (IOException e) {
+            throw new WriteBehindUnavailableException("Failed to journal customer", e);
+        }
+    }
+
+    /** Starts the writer once the application, and therefore the schema, is ready. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        writer = Thread.ofPlatform().name("write-behind").daemon().start(this::drain);
+    }
+
+    /**
+     * Stops accepting work for the writer and lets it drain the queue for up to
+     * {@code app.persist.write-behind.shutdown-timeout}. Anything left stays in
+     * the journal and is replayed on the next start.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        if (writer != null) {
+            writer.join(shutdownTimeout.toMillis());
+            if (writer.isAlive()) {
+                writer.interrupt();
+                writer.join();
+            }
+        }
+        journal.close();
+        if (depth.get() > 0) {
+            logger.warn("Stopped write-behind writer with {} customers left in the journal", depth.get());
+        }
+    }
+
+    private void drain() {
+        List<PersistenceJournal.Entry> batch = new ArrayList<>(batchSize);
+        long retryDelay = 100;
+        while (running || !queue.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    PersistenceJournal.Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    inFlightSince = first.record().appendedAt();
+                }
+                write(batch);
+                journal.checkpoint(batch.get(batch.size() - 1));
+                depth.addAndGet(-batch.size());
+                batchSizes.record(batch.size());
+                batch.clear();
+                inFlightSince = 0;
+                retryDelay = 100;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (DataAccessException | IOException | UncheckedIOException e) {
+                logger.error("Failed to write {} journaled customers, retrying in {} ms", batch.size(), retryDelay, e);
+                if (!running) {
+                    return;
+                }
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY.toMillis());
+            }
+        }
+    }
+
+    /**
+     * Writes a batch in one transaction. If a record violates a constraint, the
+     * batch is written record by record instead and the offending records are
+     * skipped.
+     */
+    private void write(List<PersistenceJournal.Entry> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_SQL, batch,
+                    batch.size(), (statement, entry) -> bind(statement, entry.record())));
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("Write-behind batch violated a constraint, writing its {} customers one by one", batch.size());
+            List<PersistenceJournal.Entry> written = new ArrayList<>(batch.size());
+            for (PersistenceJournal.Entry entry : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(
+                            status -> jdbcTemplate.update(UPSERT_SQL, statement -> bind(statement, entry.record())));
+                    written.add(entry);
+                } catch (DataIntegrityViolationException rejectedEntry) {
+                    logger.error("Skipping journaled customer rejected by the database: {}",
+                            rejectedEntry.getMostSpecificCause().getMessage());
+                    rejected.increment();
+                }
+            }
+            publish(written);
+            return;
+        } finally {
+            commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        publish(batch);
+    }
+
+    private void publish(List<PersistenceJournal.Entry> entries) {
+        for (PersistenceJournal.Entry entry : entries) {
+            JournalRecord record = entry.record();
+            cardFilter.add(record.cardNumberIndex());
+            lookupCache.put(record.cardNumberIndex(),
+                    new CustomerContact(record.name(), record.mobile(), record.email()));
+        }
+    }
+
+    private static void bind(PreparedStatement statement, JournalRecord record) throws SQLException {
+        statement.setBytes(1, record.cardNumberIndex());
+        statement.setBytes(2, record.encryptedCardNumber());
+        statement.setInt(3, record.cardKeyId());
+        statement.setString(4, record.name());
+        statement.setString(5, record.mobile());
+        statement.setString(6, record.email());
+    }
+
+    private double lagSeconds() {
+        long oldest = inFlightSince;
+        if (oldest == 0) {
+            PersistenceJournal.Entry next = queue.peek();
+            oldest = next != null ? next.record().appendedAt() : 0;
+        }
+        return oldest != 0 ? (System.currentTimeMillis() - oldest) / 1000.0 : 0;
+    }
+}
@@ -0,0 +1,88 @@
+package com.rudsi.paymtool.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.rudsi.paymtool.service.AesEncryptionService;
+import com.rudsi.paymtool.service.BlindIndexService;
+
+/**
+ * Populates the card number blind index for rows stored before it existed and
+ * re-encrypts their card numbers from deterministic AES/ECB to AES-GCM.
+ * <p>
+ * The migration needs the application's key material, so it is a Spring bean
+ * that Spring Boot hands to Flyway. Rows are walked in primary key order in
+ * chunks so that memory use does not grow with the table size.
+ */
+@Component
+public class V3__BackfillCardNumberIndex extends BaseJavaMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(V3__BackfillCardNumberIndex.class);
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final AesEncryptionService aesService;
+
+    private final BlindIndexService blindIndexService;
+
+    public V3__BackfillCardNumberIndex(AesEncryptionService aesService, BlindIndexService blindIndexService) {
+        this.aesService = aesService;
+        this.blindIndexService = blindIndexService;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        long lastId = 0;
+        long migrated = 0;
+
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT id, card_number_enc FROM customer_details "
+                        + "WHERE id > ? AND card_number_idx IS NULL ORDER BY id LIMIT " + CHUNK_SIZE);
+                PreparedStatement update = connection.prepareStatement(
+                        "UPDATE customer_details SET card_number_idx = ?, card_number_enc = ? WHERE id = ?")) {
+
+            while (true) {
+                select.setLong(1, lastId);
+                List<Long> ids = new ArrayList<>(CHUNK_SIZE);
+                List<String> ciphertexts = new ArrayList<>(CHUNK_SIZE);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getLong(1));
+                        ciphertexts.add(rs.getString(2));
+                    }
+                }
+                if (ids.isEmpty()) {
+                    break;
+                }
+
+                for (int i = 0; i < ids.size(); i++) {
+                    String cardNumber = aesService.decryptLegacy(ciphertexts.get(i));
+                    update.setBytes(1, blindIndexService.compute(cardNumber));
+                    // The column still holds Base64 text at this version; V5 converts it to bytea.
+                    // V8 records these values as encrypted with the original key.
+                    update.setString(2, Base64.getEncoder().encodeToString(
+                            aesService.encrypt(cardNumber, AesEncryptionService.DEFAULT_KEY_ID)));
+                    update.setLong(3, ids.get(i));
+                    update.addBatch();
+                }
+                update.executeBatch();
+
+                migrated += ids.size();
+                lastId = ids.get(ids.size() - 1);
+            }
+        }
+
+        logger.info("Backfilled card number index for {} customers", migrated);
+    }
+}
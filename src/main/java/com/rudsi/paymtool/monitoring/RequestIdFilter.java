@@ -0,0 +1,64 @@
+package com.rudsi.paymtool.monitoring;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Gives every request an id, so its log lines and the JFR stage events in
+ * {@code com.rudsi.paymtool.monitoring.jfr} can be matched up.
+ * <p>
+ * The id is taken from the {@value #HEADER} request header when a client or
+ * proxy sends a well-formed one, and generated otherwise. It is put into the
+ * SLF4J MDC under {@value #MDC_KEY} for the duration of the request, where the
+ * log pattern ({@code logging.pattern.correlation}) and the stage events pick
+ * it up, and returned in the {@value #HEADER} response header.
+ * <p>
+ * Generated ids are a per-instance prefix and a sequence number rather than
+ * random UUIDs, so no request pays for secure random numbers.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestIdFilter extends OncePerRequestFilter {
+
+    /** Header carrying the request id in requests and responses. */
+    public static final String HEADER = "X-Request-Id";
+
+    /** MDC key holding the id of the current request. */
+    public static final String MDC_KEY = "requestId";
+
+    /** Accepted client ids; anything else would let clients forge log lines. */
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    /** Distinguishes ids of instances and restarts. */
+    private final String prefix = Long.toString(System.currentTimeMillis(), 36) + "-";
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String requestId = request.getHeader(HEADER);
+        if (requestId == null || !VALID_ID.matcher(requestId).matches()) {
+            requestId = prefix + sequence.incrementAndGet();
+        }
+        response.setHeader(HEADER, requestId);
+        MDC.put(MDC_KEY, requestId);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            MDC.remove(MDC_KEY);
+        }
+    }
+}
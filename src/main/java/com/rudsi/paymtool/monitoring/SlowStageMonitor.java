@@ -0,0 +1,102 @@
+package com.rudsi.paymtool.monitoring;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.rudsi.paymtool.monitoring.jfr.AesEncryptEvent;
+import com.rudsi.paymtool.monitoring.jfr.LuhnValidateEvent;
+import com.rudsi.paymtool.monitoring.jfr.PayloadParseEvent;
+import com.rudsi.paymtool.monitoring.jfr.RepoLookupEvent;
+import com.rudsi.paymtool.monitoring.jfr.RepoSaveEvent;
+import com.rudsi.paymtool.monitoring.jfr.RsaDecryptEvent;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Logs request stages that take longer than a threshold.
+ * <p>
+ * The monitor subscribes to the stage events of
+ * {@code com.rudsi.paymtool.monitoring.jfr} with an in-process JFR stream,
+ * enabled with the threshold so faster stages are never recorded. Each slow
+ * stage is logged with the id of its request, so a tail-latency outlier in the
+ * {@code paymtool.*.stage} timers can be traced to the stage and the request
+ * that caused it without attaching a profiler.
+ * <p>
+ * Disabled by default; see {@code app.jfr.slow-stages.*}.
+ */
+@Component
+public class SlowStageMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowStageMonitor.class);
+
+    private static final List<Class<? extends jdk.jfr.Event>> EVENTS = List.of(
+            RsaDecryptEvent.class, PayloadParseEvent.class, LuhnValidateEvent.class,
+            AesEncryptEvent.class, RepoLookupEvent.class, RepoSaveEvent.class);
+
+    private final boolean enabled;
+
+    private final Duration threshold;
+
+    private RecordingStream stream;
+
+    /**
+     * Creates the monitor.
+     *
+     * @param enabled   whether slow stages are logged
+     * @param threshold minimum duration of a logged stage
+     */
+    public SlowStageMonitor(
+            @Value("${app.jfr.slow-stages.enabled:false}") boolean enabled,
+            @Value("${app.jfr.slow-stages.threshold:100ms}") Duration threshold) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+    }
+
+    /** Starts listening once the application is ready. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        stream = new RecordingStream();
+        for (Class<? extends jdk.jfr.Event> event : EVENTS) {
+            stream.enable(event).withThreshold(threshold).withoutStackTrace();
+        }
+        stream.onEvent(this::onSlowStage);
+        stream.startAsync();
+        logger.info("Logging request stages taking {} ms or longer", threshold.toMillis());
+    }
+
+    /** Stops the event stream with the application context. */
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onSlowStage(RecordedEvent event) {
+        String requestId = event.getString("requestId");
+        // Logged under the request's id, like the request's own log lines.
+        if (requestId != null) {
+            MDC.put(RequestIdFilter.MDC_KEY, requestId);
+        }
+        try {
+            logger.warn("Slow {}: {} ms, outcome {}, {} bytes, on {}",
+                    event.getEventType().getLabel(), event.getDuration().toMillis(), event.getString("outcome"),
+                    event.getLong("payloadSize"), event.getThread() != null ? event.getThread().getJavaName() : "-");
+        } finally {
+            MDC.remove(RequestIdFilter.MDC_KEY);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.rudsi.paymtool.monitoring;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import com.rudsi.paymtool.error.DataProcessingException;
+import com.rudsi.paymtool.error.DecryptionException;
+import com.rudsi.paymtool.error.EncryptionException;
+import com.rudsi.paymtool.error.PersistenceException;
+import com.rudsi.paymtool.error.SessionNotFoundException;
+import com.rudsi.paymtool.error.WriteBehindUnavailableException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times the stages of the lookup and persist pipelines.
+ * <p>
+ * A request starts a {@link Trace} and {@linkplain Trace#enter enters} each
+ * stage as it begins; a stage ends when the next one is entered or the request
+ * finishes. Once the outcome is known, every stage reached is recorded under
+ * that outcome, together with the whole request as stage {@code total}. A
+ * failed request therefore shows how far it got and where the time went.
+ * <p>
+ * Timers publish percentile histograms between 10 microseconds and 10
+ * seconds. Each is registered on first use and kept in a table indexed by
+ * pipeline, stage and outcome, so recording a request looks timers up by index
+ * and neither builds tags nor allocates.
+ * <p>
+ * Published metrics: {@code paymtool.lookup.stage} and
+ * {@code paymtool.persist.stage} (tags {@code stage} and {@code outcome}).
+ */
+@Component
+public class StageMetrics {
+
+    /** Pipelines timed by stage. */
+    public enum Pipeline {
+        LOOKUP("paymtool.lookup.stage", "Time spent per stage of a customer lookup"),
+        PERSIST("paymtool.persist.stage", "Time spent per stage of a customer persistence request");
+
+        private final String metricName;
+
+        private final String description;
+
+        Pipeline(String metricName, String description) {
+            this.metricName = metricName;
+            this.description = description;
+        }
+    }
+
+    /** Stages of a request; a pipeline uses those it runs through. */
+    public enum Stage {
+        DECRYPT("decrypt"),
+        PARSE("parse"),
+        LUHN("luhn"),
+        ENCRYPT("encrypt"),
+        INDEX("index"),
+        LOOKUP("lookup"),
+        STORE("store"),
+        TOTAL("total");
+
+        private static final Stage[] VALUES = values();
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Outcomes of a request: its response status, or the error code the
+     * {@code GlobalExceptionHandler} answers its failure with.
+     */
+    public enum Outcome {
+        APPROVED("APPROVED"),
+        DECLINED("DECLINED"),
+        SUCCESS("SUCCESS"),
+        CREATED("CREATED"),
+        UPDATED("UPDATED"),
+        QUEUED("QUEUED"),
+        INVALID_INPUT("INVALID_INPUT"),
+        DECRYPTION_FAILED("DECRYPTION_FAILED"),
+        SESSION_NOT_FOUND("SESSION_NOT_FOUND"),
+        WRITE_BEHIND_UNAVAILABLE("WRITE_BEHIND_UNAVAILABLE"),
+        ENCRYPTION_FAILED("ENCRYPTION_FAILED"),
+        DATA_PROCESSING_FAILED("DATA_PROCESSING_FAILED"),
+        PERSISTENCE_FAILED("PERSISTENCE_FAILED"),
+        DATABASE_ERROR("Internal Error"),
+        INTERNAL_ERROR("INTERNAL_ERROR");
+
+        private final String code;
+
+        Outcome(String code) {
+            this.code = code;
+        }
+
+        /** Returns the status or error code as sent in responses. */
+        public String code() {
+            return code;
+        }
+
+        /** Maps a failure to the error code it is answered with. */
+        public static Outcome of(Throwable failure) {
+            if (failure instanceof IllegalArgumentException) {
+                return INVALID_INPUT;
+            }
+            if (failure instanceof DecryptionException) {
+                return DECRYPTION_FAILED;
+            }
+            if (failure instanceof SessionNotFoundException) {
+                return SESSION_NOT_FOUND;
+            }
+            if (failure instanceof WriteBehindUnavailableException) {
+                return WRITE_BEHIND_UNAVAILABLE;
+            }
+            if (failure instanceof EncryptionException) {
+                return ENCRYPTION_FAILED;
+            }
+            if (failure instanceof DataProcessingException) {
+                return DATA_PROCESSING_FAILED;
+            }
+            if (failure instanceof PersistenceException) {
+                return PERSISTENCE_FAILED;
+            }
+            if (failure instanceof DataAccessException) {
+                return DATABASE_ERROR;
+            }
+            return INTERNAL_ERROR;
+        }
+    }
+
+    private static final int STAGES = Stage.VALUES.length;
+
+    private static final int OUTCOMES = Outcome.values().length;
+
+    private final MeterRegistry meterRegistry;
+
+    /** Timers by pipeline, then by stage and outcome; filled on first use. */
+    private final AtomicReferenceArray<Timer> timers =
+            new AtomicReferenceArray<>(Pipeline.values().length * STAGES * OUTCOMES);
+
+    /**
+     * Creates the stage metrics.
+     *
+     * @param meterRegistry registry used to publish stage timers
+     */
+    public StageMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Starts timing a request. */
+    public Trace start() {
+        return new Trace(System.nanoTime());
+    }
+
+    /**
+     * Ends the current stage of a request and records every stage it reached,
+     * and the request as a whole, under its outcome.
+     *
+     * @param pipeline pipeline the request ran through
+     * @param trace    trace of the request
+     * @param outcome  response status or error code of the request
+     */
+    public void record(Pipeline pipeline, Trace trace, Outcome outcome) {
+        if (trace == Trace.NONE) {
+            return;
+        }
+        long now = System.nanoTime();
+        trace.close(now);
+        for (int stage = 0; stage < STAGES; stage++) {
+            if ((trace.reached & (1 << stage)) != 0) {
+                timer(pipeline, Stage.VALUES[stage], outcome).record(trace.elapsed[stage], TimeUnit.NANOSECONDS);
+            }
+        }
+        timer(pipeline, Stage.TOTAL, outcome).record(now - trace.started, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(Pipeline pipeline, Stage stage, Outcome outcome) {
+        int slot = (pipeline.ordinal() * STAGES + stage.ordinal()) * OUTCOMES + outcome.ordinal();
+        Timer timer = timers.get(slot);
+        if (timer == null) {
+            // Registering the same meter twice returns the first instance, so
+            // racing callers store the same timer.
+            timer = Timer.builder(pipeline.metricName)
+                    .description(pipeline.description)
+                    .tag("stage", stage.tag)
+                    .tag("outcome", outcome.code)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(10_000))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(meterRegistry);
+            timers.set(slot, timer);
+        }
+        return timer;
+    }
+
+    /**
+     * Stage timings of one request. A trace belongs to the request that started
+     * it and is not thread-safe.
+     */
+    public static final class Trace {
+
+        /** Trace of callers that are not timed; entering stages does nothing. */
+        public static final Trace NONE = new Trace(0);
+
+        private final long started;
+
+        private final long[] elapsed = new long[STAGES];
+
+        private int reached;
+
+        private Stage current;
+
+        private long stageStarted;
+
+        private Trace(long started) {
+            this.started = started;
+        }
+
+        /** Ends the current stage, if any, and begins the given one. */
+        public void enter(Stage stage) {
+            if (this == NONE) {
+                return;
+            }
+            long now = System.nanoTime();
+            close(now);
+            current = stage;
+            stageStarted = now;
+        }
+
+        private void close(long now) {
+            if (current != null) {
+                elapsed[current.ordinal()] += now - stageStarted;
+                reached |= 1 << current.ordinal();
+                current = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.rudsi.paymtool.monitoring;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Reports virtual threads pinned to their carrier.
+ * <p>
+ * A virtual thread that blocks while holding a monitor ({@code synchronized})
+ * or inside a native frame cannot unmount, so it keeps its carrier thread busy
+ * for as long as it blocks. With few carriers this quietly caps throughput. The
+ * monitor subscribes to the JDK's {@code jdk.VirtualThreadPinned} events with an
+ * in-process JFR stream. It counts and times them, and logs the stack trace of
+ * each distinct pinning site once.
+ * <p>
+ * Enabled by default when {@code spring.threads.virtual.enabled} is set; see
+ * {@code app.virtual.pinning.*}. Published metric:
+ * {@code paymtool.virtualthread.pinned}.
+ */
+@Component
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    /** Maximum number of distinct pinning sites logged, so logging stays bounded. */
+    private static final int MAX_REPORTED_SITES = 100;
+
+    private final boolean enabled;
+
+    private final Duration threshold;
+
+    private final Timer pinned;
+
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+
+    private RecordingStream stream;
+
+    /**
+     * Creates the monitor.
+     *
+     * @param enabled       whether pinning events are recorded
+     * @param threshold     minimum pinned duration reported by the JVM
+     * @param meterRegistry registry used to publish pinning metrics
+     */
+    public VirtualThreadPinningMonitor(
+            @Value("${app.virtual.pinning.enabled:${spring.threads.virtual.enabled:false}}") boolean enabled,
+            @Value("${app.virtual.pinning.threshold:20ms}") Duration threshold,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.pinned = Timer.builder("paymtool.virtualthread.pinned")
+                .description("Time virtual threads blocked while pinned to their carrier")
+                .register(meterRegistry);
+    }
+
+    /** Starts listening once the application is ready. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        logger.info("Reporting virtual threads pinned for {} ms or longer", threshold.toMillis());
+    }
+
+    /** Stops the event stream with the application context. */
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null || reportedSites.size() >= MAX_REPORTED_SITES) {
+            return;
+        }
+        StringBuilder trace = new StringBuilder();
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (frame.isJavaFrame()) {
+                trace.append("\n\tat ").append(frame.getMethod().getType().getName())
+                        .append('.').append(frame.getMethod().getName())
+                        .append(" (line ").append(frame.getLineNumber()).append(')');
+            }
+        }
+        if (reportedSites.add(trace.toString())) {
+            logger.warn("Virtual thread pinned for {} ms:{}", event.getDuration().toMillis(), trace);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.rudsi.paymtool.monitoring.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * AES-GCM encryption of a value for storage; the payload size is that of the
+ * plaintext.
+ */
+@Name("com.rudsi.paymtool.AesEncrypt")
+@Label("AES Encrypt")
+@Description("AES-GCM encryption; payload size is the plaintext size")
+public class AesEncryptEvent extends RequestStageEvent {
+}
@@ -0,0 +1,15 @@
+package com.rudsi.paymtool.monitoring.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Format and Luhn check of a card number; the payload size is the number of
+ * characters checked. The outcome is {@code OK} or {@code INVALID_INPUT}.
+ */
+@Name("com.rudsi.paymtool.LuhnValidate")
+@Label("Luhn Validate")
+@Description("Card number check; payload size is the number of characters checked")
+public class LuhnValidateEvent extends RequestStageEvent {
+}
@@ -0,0 +1,15 @@
+package com.rudsi.paymtool.monitoring.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Parsing of a decrypted request payload; the payload size is that of the
+ * plaintext.
+ */
+@Name("com.rudsi.paymtool.PayloadParse")
+@Label("Payload Parse")
+@Description("Parsing of a decrypted payload; payload size is the plaintext size")
+public class PayloadParseEvent extends RequestStageEvent {
+}
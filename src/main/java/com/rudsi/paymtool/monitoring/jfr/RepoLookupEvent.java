@@ -0,0 +1,16 @@
+package com.rudsi.paymtool.monitoring.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Query of the customer table by blind index, made on a lookup cache miss; the
+ * payload size is that of the index. The outcome is {@code FOUND} or
+ * {@code NOT_FOUND}.
+ */
+@Name("com.rudsi.paymtool.RepoLookup")
+@Label("Repository Lookup")
+@Description("Customer query by blind index; payload size is the index size")
+public class RepoLookupEvent extends RequestStageEvent {
+}
@@ -0,0 +1,16 @@
+package com.rudsi.paymtool.monitoring.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Insert or upsert of a customer row; the payload size is that of the encrypted
+ * card number. The outcome is {@code CREATED} or
+ * {@code UPDATED} for an upsert and {@code SUCCESS} for an insert.
+ */
+@Name("com.rudsi.paymtool.RepoSave")
+@Label("Repository Save")
+@Description("Customer insert or upsert; payload size is the encrypted card number size")
+public class RepoSaveEvent extends RequestStageEvent {
+}
@@ -0,0 +1,74 @@
+package com.rudsi.paymtool.monitoring.jfr;
+
+import org.slf4j.MDC;
+
+import com.rudsi.paymtool.monitoring.RequestIdFilter;
+import com.rudsi.paymtool.monitoring.StageMetrics.Outcome;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base of the JDK Flight Recorder events emitted for the stages of a request.
+ * <p>
+ * Besides the duration, thread and start time every event carries, a stage
+ * event records the size of the data it worked on, its outcome and the id of
+ * the request, which also appears in the request's log lines. Events never hold
+ * card numbers or other payload content.
+ * <p>
+ * Events are recorded only while a recording or {@code RecordingStream} with
+ * them enabled is running; otherwise {@link #begin()} and {@link #commit()}
+ * reduce to a check of a flag. Stack traces are off, so an event costs a few
+ * clock reads and a buffer write and can stay enabled permanently.
+ */
+@Category({ "Paymtool", "Request Stages" })
+@StackTrace(false)
+public abstract class RequestStageEvent extends jdk.jfr.Event {
+
+    /** Outcome of a stage that completed normally. */
+    public static final String OK = "OK";
+
+    @Label("Request Id")
+    @Description("Id of the request, as logged in its log lines")
+    String requestId;
+
+    @Label("Payload Size")
+    @Description("Size of the data the stage worked on")
+    @DataAmount
+    long payloadSize;
+
+    @Label("Outcome")
+    @Description("OK, the result of the stage, or the error code the request fails with")
+    String outcome;
+
+    /**
+     * Ends the stage and commits the event, if it is recorded.
+     *
+     * @param payloadSize size of the data the stage worked on, in bytes
+     * @param outcome     result of the stage
+     */
+    public void complete(long payloadSize, String outcome) {
+        if (shouldCommit()) {
+            this.payloadSize = payloadSize;
+            this.outcome = outcome;
+            this.requestId = MDC.get(RequestIdFilter.MDC_KEY);
+            commit();
+        }
+    }
+
+    /**
+     * Ends a failed stage and commits the event, if it is recorded, with the
+     * error code the failure is answered with.
+     *
+     * @param payloadSize size of the data the stage worked on, in bytes
+     * @param failure     exception the stage failed with
+     */
+    public void fail(long payloadSize, Throwable failure) {
+        if (shouldCommit()) {
+            complete(payloadSize, Outcome.of(failure).code());
+        }
+    }
+}
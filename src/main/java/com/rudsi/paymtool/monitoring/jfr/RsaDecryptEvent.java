@@ -0,0 +1,15 @@
+package com.rudsi.paymtool.monitoring.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * RSA-OAEP decryption of a request payload or wrapped session key; the payload
+ * size is that of the ciphertext.
+ */
+@Name("com.rudsi.paymtool.RsaDecrypt")
+@Label("RSA Decrypt")
+@Description("RSA-OAEP decryption; payload size is the ciphertext size")
+public class RsaDecryptEvent extends RequestStageEvent {
+}
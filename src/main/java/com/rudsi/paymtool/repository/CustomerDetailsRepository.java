@@ -1,12 +1,133 @@
 package com.rudsi.paymtool.repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.rudsi.paymtool.dto.CardIndexEntry;
+import com.rudsi.paymtool.dto.CardSnapshotEntry;
+import com.rudsi.paymtool.dto.CustomerContact;
+import com.rudsi.paymtool.dto.EncryptedCardEntry;
 import com.rudsi.paymtool.entity.CustomerDetails;
 
 
 public interface CustomerDetailsRepository extends JpaRepository<CustomerDetails, Long> {
-    Optional<CustomerDetails> findByEncryptedCardNumber(String encryptedCardNumber);
+    Optional<CustomerDetails> findByCardNumberIndex(byte[] cardNumberIndex);
+
+    /**
+     * Returns the contact details of the customer with the given blind index.
+     * <p>
+     * Reads only the projected columns into a record, so no entity is attached
+     * to the persistence context and nothing is snapshotted for dirty checking.
+     * The index has a fixed width of 32 bytes, so the statement text and its
+     * parameter types never change and the driver can keep it prepared.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL") })
+    @Query("select new com.rudsi.paymtool.dto.CustomerContact(c.name, c.mobile, c.email) "
+            + "from CustomerDetails c where c.cardNumberIndex = :cardNumberIndex")
+    Optional<CustomerContact> findContactByCardNumberIndex(@Param("cardNumberIndex") byte[] cardNumberIndex);
+
+    /**
+     * Returns the blind indexes and contact details of those of the given blind
+     * indexes that are stored, for resolving a chunk of lookups with one query.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL") })
+    @Query("select new com.rudsi.paymtool.dto.CardSnapshotEntry(c.id, c.cardNumberIndex, c.name, c.mobile, c.email) "
+            + "from CustomerDetails c where c.cardNumberIndex in :indexes")
+    List<CardSnapshotEntry> findContactsByCardNumberIndexIn(@Param("indexes") Collection<byte[]> indexes);
+
+    /**
+     * Inserts a customer, or updates the contact details of the customer already
+     * stored under the same blind index, in a single statement.
+     * <p>
+     * The stored card number ciphertext, its key id and the creation time are
+     * kept on update.
+     * {@code xmax} is zero only for a freshly inserted row version, which tells
+     * the two outcomes apart without a second query.
+     *
+     * @return {@code true} if a new row was inserted, {@code false} if an
+     *         existing row was updated
+     */
+    @Transactional
+    @Query(value = """
+            INSERT INTO customer_details (card_number_idx, card_number_enc, card_key_id, name, mobile, email,
+                                          created_at, updated_at)
+            VALUES (:cardNumberIndex, :encryptedCardNumber, :cardKeyId, :name, :mobile, :email, now(), now())
+            ON CONFLICT (card_number_idx) DO UPDATE
+               SET name = EXCLUDED.name,
+                   mobile = EXCLUDED.mobile,
+                   email = EXCLUDED.email,
+                   updated_at = EXCLUDED.updated_at
+            RETURNING (xmax = 0)
+            """, nativeQuery = true)
+    boolean upsert(
+            @Param("cardNumberIndex") byte[] cardNumberIndex,
+            @Param("encryptedCardNumber") byte[] encryptedCardNumber,
+            @Param("cardKeyId") int cardKeyId,
+            @Param("name") String name,
+            @Param("mobile") String mobile,
+            @Param("email") String email);
+
+    /**
+     * Returns those of the given blind indexes that are already stored.
+     */
+    @Query("select c.cardNumberIndex from CustomerDetails c where c.cardNumberIndex in :indexes")
+    List<byte[]> findExistingCardNumberIndexes(@Param("indexes") Collection<byte[]> indexes);
+
+    /**
+     * Returns the blind indexes of the customers following the given id, in id
+     * order, for keyset pagination over the whole table.
+     */
+    @Query("select new com.rudsi.paymtool.dto.CardIndexEntry(c.id, c.cardNumberIndex) "
+            + "from CustomerDetails c where c.id > :afterId order by c.id")
+    List<CardIndexEntry> findCardIndexesAfter(@Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Returns the blind indexes of the customers created at or after the given
+     * instant and following the given id, in id order, for keyset pagination
+     * over the recently created customers.
+     */
+    @Query("select new com.rudsi.paymtool.dto.CardIndexEntry(c.id, c.cardNumberIndex) "
+            + "from CustomerDetails c where c.createdAt >= :since and c.id > :afterId order by c.id")
+    List<CardIndexEntry> findCardIndexesCreatedSince(@Param("since") Instant since, @Param("afterId") long afterId,
+            Limit limit);
+
+    /**
+     * Returns the blind indexes and contact details of the customers following
+     * the given id, in id order, for keyset pagination over the whole table.
+     */
+    @Query("select new com.rudsi.paymtool.dto.CardSnapshotEntry(c.id, c.cardNumberIndex, c.name, c.mobile, c.email) "
+            + "from CustomerDetails c where c.id > :afterId order by c.id")
+    List<CardSnapshotEntry> findSnapshotEntriesAfter(@Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Returns the card number ciphertexts under the given AES key of the
+     * customers following the given id, in id order, for keyset pagination.
+     */
+    @Query("select new com.rudsi.paymtool.dto.EncryptedCardEntry(c.id, c.encryptedCardNumber) "
+            + "from CustomerDetails c where c.cardKeyId = :cardKeyId and c.id > :afterId order by c.id")
+    List<EncryptedCardEntry> findEncryptedCardsAfter(@Param("cardKeyId") int cardKeyId,
+            @Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Counts the customers whose card number is encrypted under the given AES key.
+     */
+    long countByCardKeyId(int cardKeyId);
 }
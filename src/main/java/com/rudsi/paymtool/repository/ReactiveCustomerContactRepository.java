@@ -0,0 +1,87 @@
+package com.rudsi.paymtool.repository;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import com.rudsi.paymtool.dto.CustomerContact;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking customer lookups over R2DBC, used by the reactive lookup tier.
+ * <p>
+ * The connection pool is owned by this repository rather than exposed as a
+ * {@code ConnectionFactory} bean: such a bean would make Spring Boot back off
+ * from the JDBC {@code DataSource} that Flyway, JPA and the background jobs
+ * still use. For the same reason Spring Boot's R2DBC auto-configuration is
+ * excluded in {@code application.properties}.
+ */
+@Repository
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveCustomerContactRepository {
+
+    private static final String FIND_CONTACT_SQL =
+            "SELECT name, mobile, email FROM customer_details WHERE card_number_idx = :cardNumberIndex";
+
+    private final ConnectionPool pool;
+
+    private final DatabaseClient client;
+
+    /**
+     * Creates the repository and its connection pool.
+     *
+     * @param url         R2DBC URL of the database
+     * @param username    database user
+     * @param password    database password
+     * @param maxSize     maximum number of pooled connections
+     * @param maxIdleTime time after which idle connections are closed
+     */
+    public ReactiveCustomerContactRepository(
+            @Value("${app.reactive.r2dbc.url:r2dbc:postgresql://localhost:5432/customerdb}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password,
+            @Value("${app.reactive.r2dbc.pool.max-size:20}") int maxSize,
+            @Value("${app.reactive.r2dbc.pool.max-idle-time:30m}") Duration maxIdleTime) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(Math.min(maxSize, 10))
+                .maxSize(maxSize)
+                .maxIdleTime(maxIdleTime)
+                .build());
+        this.client = DatabaseClient.create(pool);
+    }
+
+    /**
+     * Returns the contact details of the customer with the given blind index.
+     *
+     * @return the contact details, or an empty {@code Mono} if no customer is stored
+     */
+    public Mono<CustomerContact> findContactByCardNumberIndex(byte[] cardNumberIndex) {
+        return client.sql(FIND_CONTACT_SQL)
+                .bind("cardNumberIndex", cardNumberIndex)
+                .map((row, metadata) -> new CustomerContact(
+                        row.get("name", String.class),
+                        row.get("mobile", String.class),
+                        row.get("email", String.class)))
+                .one();
+    }
+
+    /** Closes the connection pool with the application context. */
+    @PreDestroy
+    void close() {
+        pool.dispose();
+    }
+}
@@ -0,0 +1,319 @@
+package com.rudsi.paymtool.rotation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.rudsi.paymtool.dto.EncryptedCardEntry;
+import com.rudsi.paymtool.error.DecryptionException;
+import com.rudsi.paymtool.error.EncryptionException;
+import com.rudsi.paymtool.repository.CustomerDetailsRepository;
+import com.rudsi.paymtool.service.AesEncryptionService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Background job re-encrypting stored card numbers under the active AES key
+ * after a key rotation.
+ * <p>
+ * Each pass walks the rows of every other key in the key ring with keyset
+ * pagination on the primary key. Chunks are read sequentially and re-encrypted
+ * by a pool of workers, each chunk in its own transaction. An update only
+ * applies while the row still carries the key it was read with, so it never
+ * overwrites a concurrent change. Lookups are unaffected throughout: they go
+ * through the blind index, and every ciphertext stays readable under the key
+ * id stored next to it.
+ * <p>
+ * Throughput is capped by {@code app.crypto.reencrypt.max-rows-per-second}
+ * across all workers. Passes repeat at {@code app.crypto.reencrypt.interval}, so
+ * rows written under an old key by instances not yet switched over are picked
+ * up later. Rows that cannot be decrypted are left in place, logged and
+ * counted.
+ * <p>
+ * Disabled by default ({@code app.crypto.reencrypt.enabled}). Published metrics:
+ * {@code paymtool.reencrypt.remaining}, {@code paymtool.reencrypt.progress},
+ * {@code paymtool.reencrypt.rate}, {@code paymtool.reencrypt.rows},
+ * {@code paymtool.reencrypt.failed}, {@code paymtool.reencrypt.throttled} and
+ * {@code paymtool.reencrypt.throttle}.
+ */
+@Component
+public class CardReencryptionJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardReencryptionJob.class);
+
+    private static final String UPDATE_SQL = "UPDATE customer_details SET card_number_enc = ?, card_key_id = ? "
+            + "WHERE id = ? AND card_key_id = ?";
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final CustomerDetailsRepository repo;
+
+    private final AesEncryptionService aesService;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final int chunkSize;
+
+    private final int workers;
+
+    private final ThroughputLimiter limiter;
+
+    private final ExecutorService executor;
+
+    /** Rows still encrypted under an old key, as of the current or last pass. */
+    private final AtomicLong remaining = new AtomicLong();
+
+    /** Rows handled by the current or last pass, re-encrypted or failed. */
+    private final AtomicLong passDone = new AtomicLong();
+
+    private volatile long passTotal;
+
+    /** Start of the current pass, or 0 between passes. */
+    private volatile long passStartedAt;
+
+    /** Workers currently waiting for the throughput cap. */
+    private final AtomicInteger throttled = new AtomicInteger();
+
+    private final Counter rows;
+
+    private final Counter failed;
+
+    private final Timer throttleTimer;
+
+    /**
+     * Creates the job.
+     *
+     * @param repo                repository the rows are read from
+     * @param aesService          AES service holding the key ring
+     * @param jdbcTemplate        template used to write re-encrypted chunks
+     * @param transactionTemplate template demarcating each chunk transaction
+     * @param enabled             whether passes run
+     * @param chunkSize           rows read and written per chunk
+     * @param workers             number of workers re-encrypting chunks;
+     *                            non-positive values use one per available
+     *                            processor
+     * @param maxRowsPerSecond    throughput cap across all workers; non-positive
+     *                            values disable the cap
+     * @param meterRegistry       registry used to publish job metrics
+     */
+    public CardReencryptionJob(
+            CustomerDetailsRepository repo,
+            AesEncryptionService aesService,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.crypto.reencrypt.enabled:false}") boolean enabled,
+            @Value("${app.crypto.reencrypt.chunk-size:500}") int chunkSize,
+            @Value("${app.crypto.reencrypt.workers:0}") int workers,
+            @Value("${app.crypto.reencrypt.max-rows-per-second:0}") double maxRowsPerSecond,
+            MeterRegistry meterRegistry) {
+        this.repo = repo;
+        this.aesService = aesService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.limiter = new ThroughputLimiter(maxRowsPerSecond);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.workers, runnable -> {
+            Thread thread = new Thread(runnable, "reencrypt-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("paymtool.reencrypt.remaining", remaining, AtomicLong::get)
+                .description("Card numbers still encrypted under an old AES key")
+                .register(meterRegistry);
+        Gauge.builder("paymtool.reencrypt.progress", this, CardReencryptionJob::progress)
+                .description("Fraction of the current or last re-encryption pass completed")
+                .register(meterRegistry);
+        Gauge.builder("paymtool.reencrypt.rate", this, CardReencryptionJob::rowsPerSecond)
+                .description("Rows per second re-encrypted by the current pass")
+                .register(meterRegistry);
+        Gauge.builder("paymtool.reencrypt.throttled", throttled, AtomicInteger::get)
+                .description("Re-encryption workers waiting for the throughput cap")
+                .register(meterRegistry);
+        this.rows = Counter.builder("paymtool.reencrypt.rows")
+                .description("Card numbers re-encrypted under the active AES key")
+                .register(meterRegistry);
+        this.failed = Counter.builder("paymtool.reencrypt.failed")
+                .description("Card numbers that could not be re-encrypted")
+                .register(meterRegistry);
+        this.throttleTimer = Timer.builder("paymtool.reencrypt.throttle")
+                .description("Time re-encryption workers waited for the throughput cap")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Re-encrypts every card number not under the active key.
+     * <p>
+     * Runs once right after startup and then at {@code app.crypto.reencrypt.interval}.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.crypto.reencrypt.interval:PT10M}")
+    public void reencrypt() {
+        if (!enabled) {
+            return;
+        }
+        int target = aesService.activeKeyId();
+        List<Integer> stale = new ArrayList<>();
+        long total = 0;
+        for (int keyId : aesService.keyIds()) {
+            if (keyId != target) {
+                long count = repo.countByCardKeyId(keyId);
+                if (count > 0) {
+                    stale.add(keyId);
+                    total += count;
+                }
+            }
+        }
+        remaining.set(total);
+        passTotal = total;
+        passDone.set(0);
+        if (total == 0) {
+            return;
+        }
+
+        logger.info("Re-encrypting {} card numbers from keys {} to key {}", total, stale, target);
+        long failedBefore = (long) failed.count();
+        passStartedAt = System.nanoTime();
+        try {
+            for (int keyId : stale) {
+                reencryptKey(keyId, target);
+            }
+            long failures = (long) failed.count() - failedBefore;
+            logger.info("Re-encrypted {} card numbers at {} rows/s, {} failed",
+                    passDone.get() - failures, Math.round(rowsPerSecond()), failures);
+        } catch (RuntimeException e) {
+            logger.error("Re-encryption pass failed after {} of {} rows, resuming at the next interval",
+                    passDone.get(), total, e);
+        } finally {
+            passStartedAt = 0;
+        }
+    }
+
+    /** Stops the workers with the application context. */
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void reencryptKey(int fromKeyId, int toKeyId) {
+        Deque<Future<?>> inFlight = new ArrayDeque<>();
+        long afterId = 0;
+        long lastProgress = System.nanoTime();
+        try {
+            List<EncryptedCardEntry> chunk;
+            do {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                chunk = repo.findEncryptedCardsAfter(fromKeyId, afterId, Limit.of(chunkSize));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                afterId = chunk.get(chunk.size() - 1).id();
+                List<EncryptedCardEntry> rowsOfChunk = chunk;
+                inFlight.add(executor.submit(() -> reencryptChunk(rowsOfChunk, fromKeyId, toKeyId)));
+                if (inFlight.size() >= workers) {
+                    await(inFlight.removeFirst());
+                }
+
+                long now = System.nanoTime();
+                if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                    lastProgress = now;
+                    logger.info("Re-encryption: {} of {} rows, {} rows/s{}", passDone.get(), passTotal,
+                            Math.round(rowsPerSecond()), throttled.get() > 0 ? ", throttled" : "");
+                }
+            } while (chunk.size() == chunkSize);
+
+            while (!inFlight.isEmpty()) {
+                await(inFlight.removeFirst());
+            }
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private void reencryptChunk(List<EncryptedCardEntry> chunk, int fromKeyId, int toKeyId) {
+        if (limiter.isLimited()) {
+            throttled.incrementAndGet();
+            try {
+                throttleTimer.record(limiter.acquire(chunk.size()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                throttled.decrementAndGet();
+            }
+        }
+
+        List<Object[]> updates = new ArrayList<>(chunk.size());
+        for (EncryptedCardEntry entry : chunk) {
+            try {
+                String cardNumber = aesService.decrypt(entry.encryptedCardNumber(), fromKeyId);
+                updates.add(new Object[] { aesService.encrypt(cardNumber, toKeyId), toKeyId, entry.id(), fromKeyId });
+            } catch (DecryptionException | EncryptionException e) {
+                logger.warn("Cannot re-encrypt card number of customer {}: {}", entry.id(), e.getMessage());
+                failed.increment();
+            }
+        }
+        if (!updates.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, updates));
+        }
+        rows.increment(updates.size());
+        passDone.addAndGet(chunk.size());
+        remaining.addAndGet(-updates.size());
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private double progress() {
+        long total = passTotal;
+        return total == 0 ? 1.0 : Math.min(1.0, (double) passDone.get() / total);
+    }
+
+    private double rowsPerSecond() {
+        long started = passStartedAt;
+        if (started == 0) {
+            return 0;
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        return seconds > 0 ? passDone.get() / seconds : 0;
+    }
+}
@@ -0,0 +1,54 @@
+package com.rudsi.paymtool.rotation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the rate at which permits are handed out, shared by all callers.
+ * <p>
+ * Each acquisition reserves the next free slot on a timeline advancing by a
+ * fixed interval per permit and sleeps until that slot starts. Unused time is
+ * not saved up, so an idle limiter never releases a burst above the cap.
+ */
+final class ThroughputLimiter {
+
+    /** Interval between permits; 0 when unlimited. */
+    private final long nanosPerPermit;
+
+    /** Start of the next free slot; guarded by {@code this}. */
+    private long nextFree = System.nanoTime();
+
+    /**
+     * @param permitsPerSecond maximum permits per second; non-positive values
+     *                         disable the cap
+     */
+    ThroughputLimiter(double permitsPerSecond) {
+        this.nanosPerPermit = permitsPerSecond > 0 ? Math.max(1, (long) (1e9 / permitsPerSecond)) : 0;
+    }
+
+    /**
+     * Blocks until the given number of permits is available.
+     *
+     * @return nanoseconds spent waiting
+     */
+    long acquire(int permits) throws InterruptedException {
+        if (nanosPerPermit == 0) {
+            return 0;
+        }
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextFree);
+            nextFree = start + permits * nanosPerPermit;
+            wait = start - now;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        return wait;
+    }
+
+    /** Returns whether a cap is configured. */
+    boolean isLimited() {
+        return nanosPerPermit > 0;
+    }
+}
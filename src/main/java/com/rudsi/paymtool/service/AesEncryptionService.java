@@ -1,99 +1,252 @@
 package com.rudsi.paymtool.service;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Service;
 
+import com.rudsi.paymtool.crypto.CryptoEngine;
 import com.rudsi.paymtool.error.DecryptionException;
 import com.rudsi.paymtool.error.EncryptionException;
+import com.rudsi.paymtool.monitoring.jfr.AesEncryptEvent;
+import com.rudsi.paymtool.monitoring.jfr.RequestStageEvent;
 
 /**
  * Spring-managed service responsible for AES encryption and decryption.
  * <p>
- * The AES key is loaded once on bean construction from a Base64-encoded source
- * located on the classpath at {@code /keys/aes.key}. The same bean instance is
- * then injected wherever needed via Spring's dependency injection.
+ * Values are encrypted with AES-GCM under a random IV. Ciphertexts of the former
+ * deterministic AES/ECB scheme can still be read through {@link #decryptLegacy}.
+ * <p>
+ * Keys are versioned. The original key, located on the classpath at
+ * {@code /keys/aes.key}, has id {@value #DEFAULT_KEY_ID}; further keys are read
+ * from {@code /keys/aes-<id>.key}. All keys are Base64-encoded and loaded once
+ * on bean construction. New values are encrypted under the key selected by
+ * {@code app.crypto.aes.active-key-id}, and every stored ciphertext carries the
+ * id of the key it was encrypted with, so values under older keys stay readable
+ * while they are re-encrypted in the background.
+ * <p>
+ * Cipher operations run on pooled ciphers of the shared {@link CryptoEngine}, so
+ * the key schedule is computed once per pooled cipher rather than per call.
  */
 @Service
 public class AesEncryptionService {
 
-    private final SecretKeySpec key;
+    /** Id of the key in {@code /keys/aes.key}, which encrypted every value stored before key rotation. */
+    public static final int DEFAULT_KEY_ID = 1;
+
+    /** Length of the GCM initialization vector prefixed to every ciphertext. */
+    private static final int GCM_IV_LENGTH = 12;
+
+    /** Length of the GCM authentication tag in bits. */
+    private static final int GCM_TAG_BITS = 128;
+
+    private static final Pattern VERSIONED_KEY = Pattern.compile("aes-(\\d+)\\.key");
+
+    /** Keys by id. */
+    private final Map<Integer, SecretKeySpec> keys;
+
+    private final int activeKeyId;
+
+    private final SecretKeySpec activeKey;
+
+    /** Source of randomness for GCM initialization vectors. */
+    private final SecureRandom random = new SecureRandom();
+
+    /** Engine providing pooled, pre-initialized ciphers. */
+    private final CryptoEngine cryptoEngine;
 
     /**
-     * Constructs a new {@code AesService} and initializes the AES key material.
+     * Constructs a new {@code AesService} and loads the AES key ring.
      * <p>
-     * If the key cannot be found or does not conform to the expected length for
-     * AES-256 (32 bytes), an {@link IllegalStateException} is thrown during
-     * application startup.
+     * If the active key cannot be found or any key does not conform to the
+     * expected length for AES-256 (32 bytes), an {@link IllegalStateException} is
+     * thrown during application startup.
+     *
+     * @param cryptoEngine engine used to run cipher operations
+     * @param activeKeyId  id of the key new values are encrypted with
      */
-    public AesEncryptionService() {
-        String base64Key = null;
+    public AesEncryptionService(
+            CryptoEngine cryptoEngine,
+            @Value("${app.crypto.aes.active-key-id:1}") int activeKeyId) {
+        this.cryptoEngine = cryptoEngine;
+        Map<Integer, SecretKeySpec> ring = new TreeMap<>();
 
-        // Attempt to read the Base64-encoded key from the classpath resource.
-        try (InputStream is = getClass().getResourceAsStream("/keys/aes.key")) {
-            if (is != null) {
-                base64Key = new String(is.readAllBytes(), StandardCharsets.UTF_8).trim();
+        // Attempt to read the Base64-encoded keys from the classpath.
+        try {
+            Resource original = new ClassPathResource("keys/aes.key");
+            if (original.exists()) {
+                ring.put(DEFAULT_KEY_ID, readKey(original));
             }
-        } catch (Exception e) {
-            System.err.println("Warning: Could not read aes.key file: " + e.getMessage());
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath*:keys/aes-*.key")) {
+                Matcher matcher = VERSIONED_KEY.matcher(resource.getFilename());
+                if (matcher.matches()) {
+                    ring.put(Integer.parseInt(matcher.group(1)), readKey(resource));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read AES key files: " + e.getMessage());
         }
 
-        if (base64Key == null || base64Key.isEmpty()) {
-            throw new IllegalStateException(
-                    "AES-256 key not found! Please set 'app.crypto.aes.key.base64' property, 'APP_AES_KEY_BASE64' env var, or create 'src/main/resources/keys/aes.key'");
+        if (!ring.containsKey(activeKeyId)) {
+            throw new IllegalStateException("AES-256 key " + activeKeyId + " not found! Please create "
+                    + (activeKeyId == DEFAULT_KEY_ID ? "'src/main/resources/keys/aes.key'"
+                            : "'src/main/resources/keys/aes-" + activeKeyId + ".key'"));
         }
 
-        byte[] keyBytes = Base64.getDecoder().decode(base64Key);
+        this.keys = Map.copyOf(ring);
+        this.activeKeyId = activeKeyId;
+        this.activeKey = ring.get(activeKeyId);
+    }
 
-        if (keyBytes.length != 32) {
-            throw new IllegalStateException("AES-256 requires 32-byte key, found: " + keyBytes.length);
+    private static SecretKeySpec readKey(Resource resource) throws IOException {
+        try (InputStream is = resource.getInputStream()) {
+            byte[] keyBytes = Base64.getDecoder().decode(new String(is.readAllBytes(), StandardCharsets.UTF_8).trim());
+            if (keyBytes.length != 32) {
+                throw new IllegalStateException("AES-256 requires 32-byte key, found: " + keyBytes.length
+                        + " in " + resource.getFilename());
+            }
+            return new SecretKeySpec(keyBytes, "AES");
         }
+    }
+
+    /**
+     * Returns the id of the key {@link #encrypt(String)} uses; it is stored next
+     * to each ciphertext.
+     */
+    public int activeKeyId() {
+        return activeKeyId;
+    }
 
-        this.key = new SecretKeySpec(keyBytes, "AES");
+    /**
+     * Returns the ids of all loaded keys, in ascending order.
+     */
+    public Set<Integer> keyIds() {
+        return new TreeSet<>(keys.keySet());
     }
 
     /**
-     * Encrypts the given plaintext using AES.
+     * Encrypts the given plaintext using AES-GCM with a random IV under the
+     * active key.
+     * <p>
+     * Encryption is randomized: encrypting the same value twice yields different
+     * ciphertexts, so ciphertexts cannot be used for equality lookups. Lookups go
+     * through the blind index computed by {@link BlindIndexService} instead.
      *
      * @param plain plaintext value to encrypt
-     * @return Base64-encoded ciphertext
-     * @throws Exception if the cipher cannot be initialized or the encryption fails
+     * @return IV followed by the ciphertext and authentication tag
+     * @throws EncryptionException if the cipher cannot be initialized or the encryption fails
      */
-    public String encrypt(String plain) {
+    public byte[] encrypt(String plain) {
+        return encrypt(plain, activeKey);
+    }
+
+    /**
+     * Encrypts the given plaintext using AES-GCM with a random IV under the given
+     * key.
+     *
+     * @param plain plaintext value to encrypt
+     * @param keyId id of the key to encrypt with
+     * @return IV followed by the ciphertext and authentication tag
+     * @throws EncryptionException if the key is unknown, the cipher cannot be
+     *                             initialized or the encryption fails
+     */
+    public byte[] encrypt(String plain, int keyId) {
+        SecretKeySpec key = keys.get(keyId);
+        if (key == null) {
+            throw new EncryptionException("Unknown AES key id " + keyId);
+        }
+        return encrypt(plain, key);
+    }
 
+    private byte[] encrypt(String plain, SecretKeySpec key) {
+        AesEncryptEvent event = new AesEncryptEvent();
+        event.begin();
+        int size = 0;
         try {
-           Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
-           cipher.init(Cipher.ENCRYPT_MODE, key);
-           byte[] cipherBytes = cipher.doFinal(plain.getBytes(StandardCharsets.UTF_8));
-           return Base64.getEncoder().encodeToString(cipherBytes); 
+           byte[] payload = plain.getBytes(StandardCharsets.UTF_8);
+           size = payload.length;
+           byte[] iv = new byte[GCM_IV_LENGTH];
+           random.nextBytes(iv);
+           byte[] cipherBytes = cryptoEngine.doFinal(CryptoEngine.AES_GCM, Cipher.ENCRYPT_MODE, key,
+                   new GCMParameterSpec(GCM_TAG_BITS, iv), payload);
+
+           byte[] result = new byte[GCM_IV_LENGTH + cipherBytes.length];
+           System.arraycopy(iv, 0, result, 0, GCM_IV_LENGTH);
+           System.arraycopy(cipherBytes, 0, result, GCM_IV_LENGTH, cipherBytes.length);
+           event.complete(size, RequestStageEvent.OK);
+           return result;
         } catch (Exception e) {
-            throw new EncryptionException("Failed to encrypt data", e);
+            EncryptionException failure = new EncryptionException("Failed to encrypt data", e);
+            event.fail(size, failure);
+            throw failure;
         }
         
     }
 
     /**
-     * Decrypts the provided Base64-encoded AES ciphertext.
+     * Decrypts the provided AES-GCM ciphertext.
      *
-     * @param base64Cipher Base64-encoded ciphertext to decrypt
+     * @param cipherBytes IV followed by the ciphertext and tag
+     * @param keyId       id of the key the value was encrypted with
      * @return decrypted plaintext
-     * @throws Exception if the cipher cannot be initialized or the decryption fails
+     * @throws DecryptionException if the key is unknown, the cipher cannot be
+     *                             initialized or the decryption fails
      */
-    public String decrypt(String base64Cipher) {
+    public String decrypt(byte[] cipherBytes, int keyId) {
+        SecretKeySpec key = keys.get(keyId);
+        if (key == null) {
+            throw new DecryptionException("Unknown AES key id " + keyId);
+        }
 
         try {
-           Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
-           cipher.init(Cipher.DECRYPT_MODE, key);
-           byte[] decoded = Base64.getDecoder().decode(base64Cipher);
-           byte[] plainBytes = cipher.doFinal(decoded);
+           byte[] plainBytes = cryptoEngine.doFinal(CryptoEngine.AES_GCM, Cipher.DECRYPT_MODE, key,
+                   new GCMParameterSpec(GCM_TAG_BITS, cipherBytes, 0, GCM_IV_LENGTH), null,
+                   cipherBytes, GCM_IV_LENGTH, cipherBytes.length - GCM_IV_LENGTH);
            return new String(plainBytes, StandardCharsets.UTF_8); 
         } catch (Exception e) {
            throw new DecryptionException("Failed to decrypt data", e);
         }
         
     }
-}
\ No newline at end of file
+
+    /**
+     * Decrypts a Base64-encoded ciphertext produced by the former deterministic
+     * {@code AES/ECB/PKCS5Padding} scheme.
+     * <p>
+     * Only used to migrate rows stored before the switch to AES-GCM, all of which
+     * were encrypted with key {@value #DEFAULT_KEY_ID}.
+     *
+     * @param base64Cipher Base64-encoded legacy ciphertext to decrypt
+     * @return decrypted plaintext
+     * @throws DecryptionException if the cipher cannot be initialized or the decryption fails
+     */
+    public String decryptLegacy(String base64Cipher) {
+
+        try {
+           byte[] decoded = Base64.getDecoder().decode(base64Cipher);
+           byte[] plainBytes = cryptoEngine.doFinal(CryptoEngine.AES_ECB, Cipher.DECRYPT_MODE,
+                   keys.get(DEFAULT_KEY_ID), null, decoded);
+           return new String(plainBytes, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+           throw new DecryptionException("Failed to decrypt legacy data", e);
+        }
+
+    }
+}
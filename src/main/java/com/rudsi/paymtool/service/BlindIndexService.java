@@ -0,0 +1,91 @@
+package com.rudsi.paymtool.service;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.rudsi.paymtool.crypto.CryptoEngine;
+import com.rudsi.paymtool.error.EncryptionException;
+
+/**
+ * Spring-managed service computing blind indexes for card numbers.
+ * <p>
+ * A blind index is the HMAC-SHA256 of the card number under a dedicated key. It
+ * is deterministic, so it can back an equality lookup through a regular B-tree
+ * index, while the stored ciphertext itself can use randomized encryption. Every
+ * index is exactly 32 bytes, which keeps index pages compact and equality probes
+ * cheap compared to variable-length Base64 strings.
+ * <p>
+ * The key is loaded once on bean construction from a Base64-encoded source
+ * located on the classpath at {@code /keys/index.key}. It must differ from the
+ * AES key so that the index reveals nothing about the ciphertext and vice versa.
+ */
+@Service
+public class BlindIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlindIndexService.class);
+
+    /** Length of a blind index in bytes. */
+    public static final int INDEX_LENGTH = 32;
+
+    private final SecretKeySpec key;
+
+    /** Engine providing pooled, pre-initialized MAC instances. */
+    private final CryptoEngine cryptoEngine;
+
+    /**
+     * Constructs a new {@code BlindIndexService} and initializes the HMAC key.
+     * <p>
+     * If the key cannot be found or is shorter than 32 bytes, an
+     * {@link IllegalStateException} is thrown during application startup.
+     *
+     * @param cryptoEngine engine used to compute MACs
+     */
+    public BlindIndexService(CryptoEngine cryptoEngine) {
+        this.cryptoEngine = cryptoEngine;
+        String base64Key = null;
+
+        try (InputStream is = getClass().getResourceAsStream("/keys/index.key")) {
+            if (is != null) {
+                base64Key = new String(is.readAllBytes(), StandardCharsets.UTF_8).trim();
+            }
+        } catch (Exception e) {
+            logger.warn("Could not read index.key file: {}", e.getMessage());
+        }
+
+        if (base64Key == null || base64Key.isEmpty()) {
+            throw new IllegalStateException(
+                    "Blind index key not found! Please create 'src/main/resources/keys/index.key' (generate it with AesKeyGen)");
+        }
+
+        byte[] keyBytes = Base64.getDecoder().decode(base64Key);
+
+        if (keyBytes.length < 32) {
+            throw new IllegalStateException("Blind index key must be at least 32 bytes, found: " + keyBytes.length);
+        }
+
+        this.key = new SecretKeySpec(keyBytes, CryptoEngine.HMAC_SHA256);
+    }
+
+    /**
+     * Computes the blind index of a card number.
+     *
+     * @param cardNumber plain card number
+     * @return 32-byte HMAC-SHA256 of the card number
+     * @throws EncryptionException if the MAC cannot be computed
+     */
+    public byte[] compute(String cardNumber) {
+        try {
+            byte[] input = cardNumber.getBytes(StandardCharsets.US_ASCII);
+            return cryptoEngine.mac(CryptoEngine.HMAC_SHA256, key, input, 0, input.length);
+        } catch (Exception e) {
+            throw new EncryptionException("Failed to compute card number index", e);
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.rudsi.paymtool.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rudsi.paymtool.cache.CardIndexKey;
+import com.rudsi.paymtool.dto.CardSnapshotEntry;
+import com.rudsi.paymtool.dto.CustomerContact;
+import com.rudsi.paymtool.dto.CustomerDetailsResponse;
+import com.rudsi.paymtool.dto.DecryptedCustomerDetailsRequest;
+import com.rudsi.paymtool.dto.EncryptedCustomerDetailsRequest;
+import com.rudsi.paymtool.error.DataProcessingException;
+import com.rudsi.paymtool.error.DecryptionException;
+import com.rudsi.paymtool.error.SessionNotFoundException;
+import com.rudsi.paymtool.repository.CustomerDetailsRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service resolving streams of customer lookups, one NDJSON line per card.
+ * <p>
+ * Each input line is an {@link EncryptedCustomerDetailsRequest}. Lines are
+ * decrypted, parsed, Luhn-checked and blind-indexed in parallel on a bounded
+ * worker pool while the stream is still being read. Results are collected in
+ * input order in chunks of {@code app.lookup.batch.chunk-size} lines; the cards
+ * of a chunk that are neither in memory nor ruled out by the card filter are
+ * loaded with a single {@code IN (...)} query. Each chunk is written and flushed
+ * as soon as it is resolved, one {@link CustomerDetailsResponse} per line.
+ * <p>
+ * At most two chunks are in flight at any time, and lines longer than
+ * {@code app.lookup.batch.max-line-length} characters are skipped rather than
+ * buffered, so memory use depends neither on the length of the stream nor on
+ * the length of its lines.
+ */
+@Service
+public class CustomerBatchLookupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerBatchLookupService.class);
+
+    /** Service providing the stages of a single lookup. */
+    private final CustomerDetailsService detailsService;
+
+    /** Service computing the blind index used for card lookups. */
+    private final BlindIndexService blindIndexService;
+
+    /** Repository used for the chunked card lookups. */
+    private final CustomerDetailsRepository repo;
+
+    /** Object mapper reading request lines and writing response lines. */
+    private final ObjectMapper mapper = new ObjectMapper()
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    /** Worker pool decoding lines in parallel. */
+    private final ExecutorService executor;
+
+    /** Number of lines resolved and written together. */
+    private final int chunkSize;
+
+    /** Maximum length of a request line in characters. */
+    private final int maxLineLength;
+
+    /**
+     * Creates a new {@code CustomerBatchLookupService}.
+     *
+     * @param detailsService    service providing the stages of a single lookup
+     * @param blindIndexService service computing card number blind indexes
+     * @param repo              repository used for the chunked card lookups
+     * @param chunkSize         number of lines resolved with one query
+     * @param maxLineLength     maximum length of a request line in characters
+     * @param parallelism       number of workers decoding lines; non-positive
+     *                          values use one per available processor
+     */
+    public CustomerBatchLookupService(
+            CustomerDetailsService detailsService,
+            BlindIndexService blindIndexService,
+            CustomerDetailsRepository repo,
+            @Value("${app.lookup.batch.chunk-size:500}") int chunkSize,
+            @Value("${app.lookup.batch.max-line-length:16384}") int maxLineLength,
+            @Value("${app.lookup.batch.parallelism:0}") int parallelism) {
+        this.detailsService = detailsService;
+        this.blindIndexService = blindIndexService;
+        this.repo = repo;
+        this.chunkSize = chunkSize;
+        this.maxLineLength = maxLineLength;
+        AtomicInteger workers = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "lookup-batch-" + workers.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Resolves a stream of NDJSON lookup requests into a stream of NDJSON
+     * responses, in input order. Blank lines are skipped.
+     * <p>
+     * A line that fails is answered with status {@code FAILED} and reason
+     * {@code DECRYPTION_FAILED}, {@code SESSION_NOT_FOUND},
+     * {@code DATA_PROCESSING_FAILED}, {@code INVALID_INPUT} or
+     * {@code INTERNAL_ERROR}; the rest of the stream is unaffected. A line
+     * longer than {@code app.lookup.batch.max-line-length} characters is skipped
+     * without being buffered and answered with {@code DATA_PROCESSING_FAILED}.
+     *
+     * @param in  NDJSON request lines
+     * @param out destination of the NDJSON response lines; flushed after every
+     *            chunk and left open
+     * @return number of lines answered
+     * @throws IOException if reading the requests or writing the responses fails
+     */
+    public long lookupStream(InputStream in, OutputStream out) throws IOException {
+        LineReader reader = new LineReader(new InputStreamReader(in, StandardCharsets.UTF_8), maxLineLength);
+        ArrayDeque<CompletableFuture<Lookup>> pending = new ArrayDeque<>(2 * chunkSize);
+        long lines = 0;
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            // Lines are terminated explicitly instead of separated by a space.
+            generator.setRootValueSeparator(null);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (reader.skippedLongLine()) {
+                    pending.add(CompletableFuture.completedFuture(Lookup.failed("DATA_PROCESSING_FAILED")));
+                } else if (line.isBlank()) {
+                    continue;
+                } else {
+                    String requestLine = line;
+                    pending.add(CompletableFuture.supplyAsync(() -> decode(requestLine), executor));
+                }
+                lines++;
+                // Decoding of the next chunk continues while this one is resolved.
+                if (pending.size() == 2 * chunkSize) {
+                    writeChunk(pending, generator);
+                }
+            }
+            while (!pending.isEmpty()) {
+                writeChunk(pending, generator);
+            }
+        }
+        logger.info("Answered batch of {} customer lookups", lines);
+        return lines;
+    }
+
+    /** Shuts the worker pool down with the application context. */
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /** Parses and decodes one request line and looks the card up in memory. */
+    private Lookup decode(String line) {
+        try {
+            EncryptedCustomerDetailsRequest encrypted = mapper.readValue(line, EncryptedCustomerDetailsRequest.class);
+            if (encrypted.encryptedData() == null) {
+                throw new DataProcessingException("Request line has no encryptedData");
+            }
+            DecryptedCustomerDetailsRequest request = detailsService.decode(
+                    encrypted.sessionId(), encrypted.encryptedData());
+            byte[] cardNumberIndex = blindIndexService.compute(request.cardNumber());
+            return new Lookup(request, cardNumberIndex, detailsService.findInMemory(cardNumberIndex), null);
+        } catch (JsonProcessingException ex) {
+            return Lookup.failed("DATA_PROCESSING_FAILED");
+        }
+    }
+
+    /**
+     * Resolves the oldest chunk of pending lines against the database and writes
+     * their responses.
+     */
+    private void writeChunk(ArrayDeque<CompletableFuture<Lookup>> pending, JsonGenerator generator)
+            throws IOException {
+        List<Lookup> chunk = new ArrayList<>(chunkSize);
+        Set<CardIndexKey> queried = new LinkedHashSet<>();
+        while (chunk.size() < chunkSize && !pending.isEmpty()) {
+            Lookup lookup;
+            try {
+                lookup = pending.poll().join();
+            } catch (CompletionException ex) {
+                lookup = Lookup.failed(reasonCode(ex.getCause()));
+            }
+            chunk.add(lookup);
+            if (lookup.request() != null && lookup.contact() == null
+                    && detailsService.mightBeStored(lookup.cardNumberIndex())) {
+                queried.add(new CardIndexKey(lookup.cardNumberIndex()));
+            }
+        }
+
+        Map<CardIndexKey, CustomerContact> loaded = new HashMap<>();
+        if (!queried.isEmpty()) {
+            for (CardSnapshotEntry entry : repo.findContactsByCardNumberIndexIn(
+                    queried.stream().map(CardIndexKey::index).toList())) {
+                loaded.put(new CardIndexKey(entry.cardNumberIndex()),
+                        new CustomerContact(entry.name(), entry.mobile(), entry.email()));
+            }
+            for (CardIndexKey key : queried) {
+                detailsService.loaded(key.index(), loaded.get(key));
+            }
+        }
+
+        for (Lookup lookup : chunk) {
+            CustomerDetailsResponse response;
+            if (lookup.request() == null) {
+                response = new CustomerDetailsResponse("FAILED", lookup.reasonCode(), null, null, null, null);
+            } else {
+                CustomerContact contact = lookup.contact() != null
+                        ? lookup.contact()
+                        : loaded.get(new CardIndexKey(lookup.cardNumberIndex()));
+                response = detailsService.respond(lookup.request(), contact);
+            }
+            mapper.writeValue(generator, response);
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+
+    /** Maps the failure of a single line to its reason code. */
+    private static String reasonCode(Throwable failure) {
+        if (failure instanceof DecryptionException) {
+            return "DECRYPTION_FAILED";
+        }
+        if (failure instanceof SessionNotFoundException) {
+            return "SESSION_NOT_FOUND";
+        }
+        if (failure instanceof DataProcessingException) {
+            return "DATA_PROCESSING_FAILED";
+        }
+        if (failure instanceof IllegalArgumentException) {
+            return "INVALID_INPUT";
+        }
+        logger.error("Unexpected failure while decoding batch lookup line", failure);
+        return "INTERNAL_ERROR";
+    }
+
+    /**
+     * Reads lines terminated by {@code \n} (or {@code \r\n}) without buffering
+     * more than a maximum number of characters per line.
+     */
+    private static final class LineReader {
+
+        private final Reader in;
+
+        private final int maxLength;
+
+        private final char[] buffer = new char[8192];
+
+        private final StringBuilder line = new StringBuilder();
+
+        private int position;
+
+        private int limit;
+
+        private boolean skipped;
+
+        LineReader(Reader in, int maxLength) {
+            this.in = in;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * Returns the next line without its terminator, or {@code null} at the
+         * end of the stream. A line longer than the maximum is skipped and
+         * returned empty, with {@link #skippedLongLine()} set.
+         */
+        String readLine() throws IOException {
+            line.setLength(0);
+            skipped = false;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        return read ? line() : null;
+                    }
+                }
+                read = true;
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                if (!skipped) {
+                    if (line.length() + position - start > maxLength + 1) {
+                        // One extra character is allowed for a trailing '\r'.
+                        skipped = true;
+                        line.setLength(0);
+                    } else {
+                        line.append(buffer, start, position - start);
+                    }
+                }
+                if (position < limit) {
+                    position++;
+                    return line();
+                }
+            }
+        }
+
+        /** Reports whether the line last returned was too long and skipped. */
+        boolean skippedLongLine() {
+            return skipped;
+        }
+
+        private String line() {
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r') {
+                length--;
+            }
+            if (!skipped && length > maxLength) {
+                skipped = true;
+                return "";
+            }
+            return line.substring(0, length);
+        }
+    }
+
+    /**
+     * A decoded line and its in-memory result, if any, or the reason code of a
+     * line that failed.
+     */
+    private record Lookup(
+            DecryptedCustomerDetailsRequest request,
+            byte[] cardNumberIndex,
+            CustomerContact contact,
+            String reasonCode) {
+
+        static Lookup failed(String reasonCode) {
+            return new Lookup(null, null, null, reasonCode);
+        }
+    }
+}
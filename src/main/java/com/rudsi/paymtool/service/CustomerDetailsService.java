@@ -1,27 +1,49 @@
 package com.rudsi.paymtool.service;
 
-import java.util.Optional;
+import java.util.function.Function;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rudsi.paymtool.cache.CardIndexFilter;
+import com.rudsi.paymtool.cache.CardIndexSnapshot;
+import com.rudsi.paymtool.cache.CustomerLookupCache;
+import com.rudsi.paymtool.cache.LookupCoalescer;
+import com.rudsi.paymtool.crypto.CpuBulkhead;
+import com.rudsi.paymtool.dto.CustomerContact;
 import com.rudsi.paymtool.dto.CustomerDetailsResponse;
 import com.rudsi.paymtool.dto.DecryptedCustomerDetailsRequest;
-import com.rudsi.paymtool.entity.CustomerDetails;
 import com.rudsi.paymtool.error.DataProcessingException;
+import com.rudsi.paymtool.monitoring.StageMetrics;
+import com.rudsi.paymtool.monitoring.StageMetrics.Outcome;
+import com.rudsi.paymtool.monitoring.StageMetrics.Pipeline;
+import com.rudsi.paymtool.monitoring.StageMetrics.Stage;
+import com.rudsi.paymtool.monitoring.StageMetrics.Trace;
+import com.rudsi.paymtool.monitoring.jfr.LuhnValidateEvent;
+import com.rudsi.paymtool.monitoring.jfr.PayloadParseEvent;
+import com.rudsi.paymtool.monitoring.jfr.RepoLookupEvent;
+import com.rudsi.paymtool.monitoring.jfr.RequestStageEvent;
 import com.rudsi.paymtool.repository.CustomerDetailsRepository;
 import com.rudsi.paymtool.util.LunhValidation;
+import com.rudsi.paymtool.util.PayloadParser;
 
 /**
  * Service responsible for handling customer detail lookups from encrypted requests.
  * <p>
  * The incoming payload is expected to be encrypted with RSA. Once decrypted,
  * the payload must contain a JSON field {@code cardNumber}. The card number is
- * then validated and re-encrypted with AES for secure database lookup.
+ * then validated and looked up through its HMAC blind index, so the plain card
+ * number never reaches the database.
  * <p>
  * If a matching customer is found, a response with status {@code APPROVED} is
  * returned. Otherwise, an appropriate decline response is produced.
+ * <p>
+ * Clients of the binary wire format send the raw ciphertext bytes instead of
+ * Base64 text, and a CBOR payload instead of JSON; see
+ * {@link #processBinaryRequest}.
+ * <p>
+ * Each stage of a lookup is timed under the lookup's outcome; see
+ * {@link StageMetrics}.
  */
 @Service
 public class CustomerDetailsService {
@@ -31,30 +53,69 @@ public class CustomerDetailsService {
     /** Service used to decrypt the incoming RSA-encrypted payload. */
     private final RsaEncryptionService rsaService;
 
-    /** AES service used to encrypt card data for persistence / lookup. */
-    private final AesEncryptionService aesService;
+    /** Service used to decrypt payloads sent under an established session. */
+    private final SessionKeyService sessionService;
+
+    /** Service computing the blind index used for card lookups. */
+    private final BlindIndexService blindIndexService;
 
     /** Repository used to retrieve persisted customer details. */
     private final CustomerDetailsRepository repo;
 
-    /** Object mapper used to parse the decrypted JSON request payload. */
-    private final ObjectMapper mapper = new ObjectMapper();
+    /** Cache of recent lookups, consulted before the repository. */
+    private final CustomerLookupCache lookupCache;
+
+    /** Memory-mapped snapshot of stored cards, consulted after the cache. */
+    private final CardIndexSnapshot snapshot;
+
+    /** Filter declining unknown cards without a database query. */
+    private final CardIndexFilter cardFilter;
+
+    /** Coalescer sharing one query among concurrent lookups of a card. */
+    private final LookupCoalescer coalescer;
+
+    /** Bulkhead bounding concurrent CPU-bound work. */
+    private final CpuBulkhead bulkhead;
+
+    /** Timers of the lookup stages. */
+    private final StageMetrics stageMetrics;
 
     /**
      * Creates a new {@code CustomerDetailsService} with the given collaborators.
      *
-     * @param rsaService RSA service used to decrypt incoming data
-     * @param aesService AES service used to encrypt card data for persistence / lookup
-     * @param repo       repository used for reading customer details
+     * @param rsaService        RSA service used to decrypt incoming data
+     * @param sessionService    session service used to decrypt session-encrypted data
+     * @param blindIndexService service computing card number blind indexes
+     * @param repo              repository used for reading customer details
+     * @param lookupCache       cache of recent lookups
+     * @param snapshot          memory-mapped card index snapshot
+     * @param cardFilter        filter of stored card indexes
+     * @param coalescer         coalescer of concurrent lookups of the same card
+     * @param bulkhead          bulkhead bounding concurrent payload decryption
+     * @param stageMetrics      timers of the lookup stages
      */
     public CustomerDetailsService(
             RsaEncryptionService rsaService,
-            AesEncryptionService aesService,
-            CustomerDetailsRepository repo) {
+            SessionKeyService sessionService,
+            BlindIndexService blindIndexService,
+            CustomerDetailsRepository repo,
+            CustomerLookupCache lookupCache,
+            CardIndexSnapshot snapshot,
+            CardIndexFilter cardFilter,
+            LookupCoalescer coalescer,
+            CpuBulkhead bulkhead,
+            StageMetrics stageMetrics) {
 
         this.rsaService = rsaService;
-        this.aesService = aesService;
+        this.sessionService = sessionService;
+        this.blindIndexService = blindIndexService;
         this.repo = repo;
+        this.lookupCache = lookupCache;
+        this.snapshot = snapshot;
+        this.cardFilter = cardFilter;
+        this.coalescer = coalescer;
+        this.bulkhead = bulkhead;
+        this.stageMetrics = stageMetrics;
     }
 
     /**
@@ -62,52 +123,228 @@ public class CustomerDetailsService {
      * <p>
      * Steps:
      * <ol>
-     * <li>Decrypt the RSA-encrypted payload.</li>
-     * <li>Parse the JSON and extract the {@code cardNumber} field.</li>
+     * <li>Decrypt the RSA-encrypted payload, or the AES-GCM payload when a
+     * session id is supplied.</li>
+     * <li>Extract the {@code cardNumber} field from the decrypted bytes with a
+     * streaming parser, without reading the rest of the payload.</li>
      * <li>Validate the card number format and Luhn checksum.</li>
-     * <li>Encrypt the card number with AES for secure database lookup.</li>
+     * <li>Compute the card number's blind index for the lookup.</li>
+     * <li>Serve the customer from the lookup cache or the card index snapshot.
+     * Otherwise decline right away if the card filter rules the card out, or load
+     * it from the database and cache it. Concurrent lookups of the same card share
+     * one query.</li>
      * <li>Return an {@code APPROVED} response if the customer exists or a
      * corresponding decline response otherwise.</li>
      * </ol>
      *
-     * @param encryptedData RSA-encrypted JSON payload representing the customer lookup request
+     * @param sessionId     id of an established session, or {@code null} for an
+     *                      RSA-encrypted payload
+     * @param encryptedData encrypted JSON payload representing the customer lookup request
      * @return Customer details response containing the status and customer data
      * @throws DataProcessingException if JSON parsing fails or required fields are missing
      */
-    public CustomerDetailsResponse processEncryptedRequest(String encryptedData) {
+    public CustomerDetailsResponse processEncryptedRequest(String sessionId, String encryptedData) {
         logger.debug("Processing encrypted customer lookup request");
-        
-        String decryptedJson = rsaService.decrypt(encryptedData);
+        Trace trace = stageMetrics.start();
+        try {
+            return lookup(bulkhead.call(() -> decode(sessionId, encryptedData, trace)), trace);
+        } catch (RuntimeException ex) {
+            stageMetrics.record(Pipeline.LOOKUP, trace, Outcome.of(ex));
+            throw ex;
+        }
+    }
 
-        DecryptedCustomerDetailsRequest request;
+    /**
+     * Processes a customer lookup request in the binary wire format.
+     * <p>
+     * Same as {@link #processEncryptedRequest}, except that the ciphertext is
+     * passed as raw bytes and decrypts to a CBOR map with the same fields as the
+     * JSON payload. This skips the Base64 layer and JSON text parsing.
+     *
+     * @param sessionId  id of an established session, or {@code null} for an
+     *                   RSA-encrypted payload
+     * @param ciphertext raw RSA ciphertext, or IV followed by the AES-GCM
+     *                   ciphertext and tag for a session
+     * @return Customer details response containing the status and customer data
+     * @throws DataProcessingException if CBOR parsing fails or required fields are missing
+     */
+    public CustomerDetailsResponse processBinaryRequest(String sessionId, byte[] ciphertext) {
+        logger.debug("Processing binary customer lookup request");
+        Trace trace = stageMetrics.start();
         try {
-            request = mapper.readValue(decryptedJson, DecryptedCustomerDetailsRequest.class);
-            logger.debug("Extracted card number from decrypted payload");
-        } catch (JsonProcessingException ex) {
-            logger.error("Failed to parse decrypted JSON payload", ex);
-            throw new DataProcessingException("Failed to parse decrypted JSON payload", ex);
+            return lookup(bulkhead.call(() -> decodeBinary(sessionId, ciphertext, trace)), trace);
+        } catch (RuntimeException ex) {
+            stageMetrics.record(Pipeline.LOOKUP, trace, Outcome.of(ex));
+            throw ex;
+        }
+    }
+
+    private CustomerDetailsResponse lookup(DecryptedCustomerDetailsRequest request, Trace trace) {
+        trace.enter(Stage.INDEX);
+        byte[] cardNumberIndex = blindIndexService.compute(request.cardNumber());
+
+        trace.enter(Stage.LOOKUP);
+        CustomerContact contact = findInMemory(cardNumberIndex);
+        if (contact == null && mightBeStored(cardNumberIndex)) {
+            contact = coalescer.load(cardNumberIndex, () -> {
+                RepoLookupEvent event = new RepoLookupEvent();
+                event.begin();
+                CustomerContact found;
+                try {
+                    found = repo.findContactByCardNumberIndex(cardNumberIndex).orElse(null);
+                } catch (RuntimeException ex) {
+                    event.fail(cardNumberIndex.length, ex);
+                    throw ex;
+                }
+                event.complete(cardNumberIndex.length, found != null ? "FOUND" : "NOT_FOUND");
+                loaded(cardNumberIndex, found);
+                return found;
+            });
         }
+        CustomerDetailsResponse response = respond(request, contact);
+        stageMetrics.record(Pipeline.LOOKUP, trace, contact != null ? Outcome.APPROVED : Outcome.DECLINED);
+        return response;
+    }
+
+    /**
+     * Decrypts, parses and validates a lookup payload; the CPU-bound stage of a
+     * lookup.
+     * <p>
+     * This and the following methods are the stages of
+     * {@link #processEncryptedRequest}, so that the reactive lookup can run them
+     * on its own schedulers.
+     *
+     * @param sessionId     id of an established session, or {@code null} for an
+     *                      RSA-encrypted payload
+     * @param encryptedData encrypted JSON payload
+     * @return the lookup request, with a Luhn-valid card number
+     * @throws DataProcessingException  if JSON parsing fails or the card number is missing
+     * @throws IllegalArgumentException if the card number is invalid
+     */
+    public DecryptedCustomerDetailsRequest decode(String sessionId, String encryptedData) {
+        return decode(sessionId, encryptedData, Trace.NONE);
+    }
 
-        if (request.cardNumber() == null || request.cardNumber().trim().isEmpty()) {
-            logger.warn("Card number is null or empty");
+    private DecryptedCustomerDetailsRequest decode(String sessionId, String encryptedData, Trace trace) {
+        trace.enter(Stage.DECRYPT);
+        byte[] payload = sessionId == null
+                ? rsaService.decryptBytes(encryptedData)
+                : sessionService.decryptBytes(sessionId, encryptedData);
+        trace.enter(Stage.PARSE);
+        String cardNumber = parse(payload, PayloadParser::readCardNumber);
+        trace.enter(Stage.LUHN);
+        return validate(cardNumber);
+    }
+
+    /**
+     * Decrypts, parses and validates a lookup payload in the binary wire format.
+     *
+     * @param sessionId  id of an established session, or {@code null} for an
+     *                   RSA-encrypted payload
+     * @param ciphertext raw ciphertext bytes
+     * @return the lookup request, with a Luhn-valid card number
+     * @throws DataProcessingException  if CBOR parsing fails or the card number is missing
+     * @throws IllegalArgumentException if the card number is invalid
+     * @see #decode(String, String)
+     */
+    public DecryptedCustomerDetailsRequest decodeBinary(String sessionId, byte[] ciphertext) {
+        return decodeBinary(sessionId, ciphertext, Trace.NONE);
+    }
+
+    private DecryptedCustomerDetailsRequest decodeBinary(String sessionId, byte[] ciphertext, Trace trace) {
+        trace.enter(Stage.DECRYPT);
+        byte[] payload = sessionId == null
+                ? rsaService.decryptBytes(ciphertext)
+                : sessionService.decryptBytes(sessionId, ciphertext);
+        trace.enter(Stage.PARSE);
+        String cardNumber = parse(payload, PayloadParser::readCardNumberCbor);
+        trace.enter(Stage.LUHN);
+        return validate(cardNumber);
+    }
+
+    /** Reads the card number from a decrypted payload, recording a {@link PayloadParseEvent}. */
+    private static String parse(byte[] payload, Function<byte[], String> parser) {
+        PayloadParseEvent event = new PayloadParseEvent();
+        event.begin();
+        String cardNumber;
+        try {
+            cardNumber = parser.apply(payload);
+        } catch (RuntimeException ex) {
+            event.fail(payload.length, ex);
+            throw ex;
+        }
+        event.complete(payload.length, RequestStageEvent.OK);
+        return cardNumber;
+    }
+
+    private DecryptedCustomerDetailsRequest validate(String cardNumber) {
+        if (cardNumber == null || cardNumber.trim().isEmpty()) {
             throw new DataProcessingException("Card number is required but was missing or empty");
         }
 
-        LunhValidation.validate(request.cardNumber());
-         
-        String encryptedCardNumber = aesService.encrypt(request.cardNumber());
+        LuhnValidateEvent event = new LuhnValidateEvent();
+        event.begin();
+        try {
+            LunhValidation.validate(cardNumber);
+        } catch (RuntimeException ex) {
+            event.fail(cardNumber.length(), ex);
+            throw ex;
+        }
+        event.complete(cardNumber.length(), RequestStageEvent.OK);
+        logger.debug("Extracted card number from decrypted payload");
+        // Lookups only carry the card number; the contact fields come from storage.
+        return new DecryptedCustomerDetailsRequest(cardNumber, null, null, null);
+    }
 
-        Optional<CustomerDetails> existing = repo.findByEncryptedCardNumber(encryptedCardNumber);
-         
-        if (existing.isPresent()) {
+    /**
+     * Looks a card up in the lookup cache, then in the card index snapshot.
+     *
+     * @return the customer's contact details, or {@code null} if neither holds the card
+     */
+    public CustomerContact findInMemory(byte[] cardNumberIndex) {
+        CustomerContact contact = lookupCache.get(cardNumberIndex);
+        return contact != null ? contact : snapshot.find(cardNumberIndex);
+    }
+
+    /**
+     * Reports whether a card missing from memory may be in the database; if not,
+     * it can be declined without a query.
+     */
+    public boolean mightBeStored(byte[] cardNumberIndex) {
+        return cardFilter.mightContain(cardNumberIndex);
+    }
+
+    /**
+     * Records the result of a database lookup: a found customer is cached unless
+     * a writer cached it first, a miss is counted as a card filter false positive.
+     *
+     * @param contact the loaded contact details, or {@code null} if not found
+     */
+    public void loaded(byte[] cardNumberIndex, CustomerContact contact) {
+        if (contact != null) {
+            // A concurrent writer's newer projection must not be replaced.
+            lookupCache.putIfAbsent(cardNumberIndex, contact);
+        } else {
+            cardFilter.recordFalsePositive();
+        }
+    }
+
+    /**
+     * Builds the lookup response: {@code APPROVED} with the contact details if the
+     * customer exists, {@code DECLINED} with {@code CARD_NOT_FOUND} otherwise.
+     *
+     * @param contact the customer's contact details, or {@code null} if not found
+     */
+    public CustomerDetailsResponse respond(DecryptedCustomerDetailsRequest request, CustomerContact contact) {
+        if (contact != null) {
             logger.info("Customer found for card number lookup");
             return new CustomerDetailsResponse(
                     "APPROVED",
                     null,
                     request.cardNumber(),
-                    existing.get().getName(),
-                    existing.get().getMobile(),
-                    existing.get().getEmail());
+                    contact.name(),
+                    contact.mobile(),
+                    contact.email());
         }
 
         logger.info("No customer found for card number lookup");
@@ -119,5 +356,4 @@ public class CustomerDetailsService {
                 null,
                 null);
     }
-
-}
\ No newline at end of file
+}
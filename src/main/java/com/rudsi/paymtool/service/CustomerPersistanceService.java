@@ -1,18 +1,53 @@
 package com.rudsi.paymtool.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rudsi.paymtool.cache.CardIndexFilter;
+import com.rudsi.paymtool.cache.CardIndexKey;
+import com.rudsi.paymtool.cache.CustomerLookupCache;
+import com.rudsi.paymtool.crypto.CpuBulkhead;
+import com.rudsi.paymtool.dto.CustomerContact;
 import com.rudsi.paymtool.dto.DecryptedCustomerDetailsRequest;
+import com.rudsi.paymtool.dto.CustomerPersistanceBatchResponse;
 import com.rudsi.paymtool.dto.CustomerPersistanceResponse;
+import com.rudsi.paymtool.dto.PersistMode;
 import com.rudsi.paymtool.entity.CustomerDetails;
 import com.rudsi.paymtool.error.DecryptionException;
 import com.rudsi.paymtool.error.EncryptionException;
 import com.rudsi.paymtool.error.DataProcessingException;
+import com.rudsi.paymtool.error.PersistenceException;
+import com.rudsi.paymtool.error.SessionNotFoundException;
+import com.rudsi.paymtool.error.WriteBehindUnavailableException;
+import com.rudsi.paymtool.journal.WriteBehindQueue;
+import com.rudsi.paymtool.monitoring.StageMetrics;
+import com.rudsi.paymtool.monitoring.StageMetrics.Outcome;
+import com.rudsi.paymtool.monitoring.StageMetrics.Pipeline;
+import com.rudsi.paymtool.monitoring.StageMetrics.Stage;
+import com.rudsi.paymtool.monitoring.StageMetrics.Trace;
+import com.rudsi.paymtool.monitoring.jfr.LuhnValidateEvent;
+import com.rudsi.paymtool.monitoring.jfr.PayloadParseEvent;
+import com.rudsi.paymtool.monitoring.jfr.RepoSaveEvent;
+import com.rudsi.paymtool.monitoring.jfr.RequestStageEvent;
 import com.rudsi.paymtool.repository.CustomerDetailsRepository;
 import com.rudsi.paymtool.util.LunhValidation;
+import com.rudsi.paymtool.util.PayloadParser;
+
+import jakarta.annotation.PreDestroy;
 
 /**
  * Service responsible for persisting customer details in the data store.
@@ -22,12 +57,19 @@ import com.rudsi.paymtool.util.LunhValidation;
  * <li>Decrypts the RSA-encrypted payload received from the client</li>
  * <li>Parses the JSON to extract customer information (card number, name, mobile, email)</li>
  * <li>Validates the card number using the Luhn algorithm</li>
- * <li>Encrypts the card number with AES for secure database storage</li>
+ * <li>Encrypts the card number with AES-GCM for storage and computes its blind
+ * index for lookups</li>
  * <li>Persists the customer details to the repository</li>
  * </ol>
  * <p>
  * The service ensures that sensitive card data is encrypted at rest while maintaining
  * the ability to return non-sensitive customer information in the response.
+ * <p>
+ * Batches of records run the same steps in parallel and are inserted together
+ * with JDBC batching (see {@link #persistCustomerBatch(String, List)}).
+ * <p>
+ * Each stage of a single-record request is timed under the request's outcome;
+ * see {@link StageMetrics}.
  */
 @Service
 public class CustomerPersistanceService {
@@ -37,29 +79,89 @@ public class CustomerPersistanceService {
     /** Service used to decrypt the incoming RSA-encrypted payload. */
     private final RsaEncryptionService rsaService;
 
+    /** Service used to decrypt payloads sent under an established session. */
+    private final SessionKeyService sessionService;
+
     /** Service used to encrypt card numbers with AES for database storage. */
     private final AesEncryptionService aesService;
 
+    /** Service computing the blind index used for card lookups. */
+    private final BlindIndexService blindIndexService;
+
     /** Repository used to create and update {@link CustomerDetails} records. */
     private final CustomerDetailsRepository repo;
 
-    /** Object mapper used to parse the decrypted JSON request payload. */
-    private final ObjectMapper mapper = new ObjectMapper();
+    /** Lookup cache updated with every persisted customer. */
+    private final CustomerLookupCache lookupCache;
+
+    /** Card filter receiving every persisted card. */
+    private final CardIndexFilter cardFilter;
+
+    /** Journal-backed queue for write-behind persistence. */
+    private final WriteBehindQueue writeBehindQueue;
+
+    /** Bulkhead bounding concurrent CPU-bound work. */
+    private final CpuBulkhead bulkhead;
+
+    /** Timers of the persistence stages. */
+    private final StageMetrics stageMetrics;
+
+    /** Worker pool preparing batch records in parallel. */
+    private final ExecutorService batchExecutor;
+
+    /** Largest number of records accepted in a single batch. */
+    private final int maxBatchSize;
 
     /**
      * Creates a new {@code CustomerPersistanceService} with the required dependencies.
      *
-     * @param rsaService RSA service used to decrypt incoming encrypted payloads
-     * @param aesService AES service used to encrypt card numbers for storage
-     * @param repo       repository used for customer persistence operations
+     * @param rsaService        RSA service used to decrypt incoming encrypted payloads
+     * @param sessionService    session service used to decrypt session-encrypted payloads
+     * @param aesService        AES service used to encrypt card numbers for storage
+     * @param blindIndexService service computing card number blind indexes
+     * @param repo              repository used for customer persistence operations
+     * @param lookupCache       lookup cache kept up to date with persisted customers
+     * @param cardFilter        card filter kept up to date with persisted customers
+     * @param writeBehindQueue  queue used for write-behind persistence
+     * @param bulkhead          bulkhead bounding concurrent payload decryption and
+     *                          card encryption
+     * @param stageMetrics      timers of the persistence stages
+     * @param maxBatchSize      largest number of records accepted in a single batch
+     * @param parallelism       number of workers preparing batch records;
+     *                          non-positive values use one per available processor
      */
     public CustomerPersistanceService(
             RsaEncryptionService rsaService,
+            SessionKeyService sessionService,
             AesEncryptionService aesService,
-            CustomerDetailsRepository repo) {
+            BlindIndexService blindIndexService,
+            CustomerDetailsRepository repo,
+            CustomerLookupCache lookupCache,
+            CardIndexFilter cardFilter,
+            WriteBehindQueue writeBehindQueue,
+            CpuBulkhead bulkhead,
+            StageMetrics stageMetrics,
+            @Value("${app.persist.batch.max-size:1000}") int maxBatchSize,
+            @Value("${app.persist.batch.parallelism:0}") int parallelism) {
         this.rsaService = rsaService;
+        this.sessionService = sessionService;
         this.aesService = aesService;
+        this.blindIndexService = blindIndexService;
         this.repo = repo;
+        this.lookupCache = lookupCache;
+        this.cardFilter = cardFilter;
+        this.writeBehindQueue = writeBehindQueue;
+        this.bulkhead = bulkhead;
+        this.stageMetrics = stageMetrics;
+        this.maxBatchSize = maxBatchSize;
+        AtomicInteger workers = new AtomicInteger();
+        this.batchExecutor = Executors.newFixedThreadPool(
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "persist-batch-" + workers.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
     }
 
     /**
@@ -67,53 +169,249 @@ public class CustomerPersistanceService {
      * <p>
      * The method performs the following steps:
      * <ol>
-     * <li>Decrypts the RSA-encrypted payload to obtain a JSON string</li>
+     * <li>Decrypts the RSA-encrypted payload (or the AES-GCM payload when a session
+     * id is supplied) to obtain a JSON string</li>
      * <li>Parses the JSON to extract customer fields (cardNumber, name, mobile, email)</li>
      * <li>Validates the card number format and Luhn checksum</li>
-     * <li>Encrypts the card number with AES for secure database storage</li>
-     * <li>Persists the customer entity to the repository</li>
+     * <li>Encrypts the card number with AES-GCM and computes its blind index</li>
+     * <li>Persists the customer entity to the repository and updates the lookup
+     * cache and card filter</li>
      * <li>Returns a success response with the persisted customer information</li>
      * </ol>
+     * <p>
+     * In {@link PersistMode#UPSERT} mode a card that is already stored has its
+     * contact details updated by the same {@code INSERT ... ON CONFLICT}
+     * statement, and the response status is {@code CREATED} or {@code UPDATED}.
+     * In {@link PersistMode#CREATE} mode the status is {@code SUCCESS} and a
+     * known card fails on the unique constraint. In {@link PersistMode#WRITE_BEHIND}
+     * mode the customer is durably journaled, the status is {@code QUEUED} and the
+     * database is updated asynchronously (see {@link WriteBehindQueue}).
      *
-     * @param encryptedData Base64-encoded RSA-encrypted JSON payload containing customer
+     * @param sessionId     id of an established session, or {@code null} for an
+     *                       RSA-encrypted payload
+     * @param encryptedData Base64-encoded encrypted JSON payload containing customer
      *                       information to be persisted
+     * @param mode          whether a known card is an error or is updated
      * @return response object describing the outcome of the persistence operation,
      *         including the persisted customer details
      * @throws DecryptionException      if RSA decryption fails
+     * @throws SessionNotFoundException if the session is unknown or has expired
      * @throws DataProcessingException  if JSON parsing fails or required fields are missing
      * @throws IllegalArgumentException if card number validation fails
      * @throws EncryptionException     if AES encryption fails
      * @throws PersistenceException     if database persistence fails
+     * @throws WriteBehindUnavailableException if the record cannot be journaled
+     */
+    public CustomerPersistanceResponse persistCustomerData(String sessionId, String encryptedData, PersistMode mode) {
+        logger.debug("Processing encrypted customer persistence request in {} mode", mode);
+
+        Trace trace = stageMetrics.start();
+        try {
+            PreparedCustomer customer = prepare(sessionId, encryptedData, trace);
+            trace.enter(Stage.STORE);
+            Outcome outcome;
+            switch (mode) {
+                case UPSERT -> {
+                    CustomerDetails entity = customer.entity();
+                    outcome = save(entity, () -> repo.upsert(entity.getCardNumberIndex(),
+                            entity.getEncryptedCardNumber(), entity.getCardKeyId(), entity.getName(),
+                            entity.getMobile(), entity.getEmail()) ? Outcome.CREATED : Outcome.UPDATED);
+                    publish(customer);
+                }
+                case WRITE_BEHIND -> {
+                    // Published to the cache and filter by the writer once stored.
+                    writeBehindQueue.enqueue(customer.entity());
+                    outcome = Outcome.QUEUED;
+                }
+                default -> {
+                    outcome = save(customer.entity(), () -> {
+                        repo.save(customer.entity());
+                        return Outcome.SUCCESS;
+                    });
+                    publish(customer);
+                }
+            }
+            stageMetrics.record(Pipeline.PERSIST, trace, outcome);
+            return response(outcome.name(), customer.request());
+        } catch (RuntimeException ex) {
+            stageMetrics.record(Pipeline.PERSIST, trace, Outcome.of(ex));
+            throw ex;
+        }
+    }
+
+    /** Runs a repository write of a customer, recording a {@link RepoSaveEvent}. */
+    private static Outcome save(CustomerDetails entity, Supplier<Outcome> write) {
+        int size = entity.getEncryptedCardNumber().length;
+        RepoSaveEvent event = new RepoSaveEvent();
+        event.begin();
+        Outcome outcome;
+        try {
+            outcome = write.get();
+        } catch (RuntimeException ex) {
+            event.fail(size, ex);
+            throw ex;
+        }
+        event.complete(size, outcome.code());
+        return outcome;
+    }
+
+    /**
+     * Processes a batch of encrypted customer persistence requests.
+     * <p>
+     * Records are decrypted, parsed, validated and encrypted in parallel on a
+     * bounded worker pool. Records that fail any of these steps, or whose card is
+     * already stored or repeated within the batch, are rejected individually.
+     * The remaining records are inserted in a single transaction using JDBC
+     * batching, so a batch costs a handful of round trips instead of one per
+     * record.
+     *
+     * @param sessionId id of an established session, or {@code null} for
+     *                  RSA-encrypted records
+     * @param records   Base64-encoded encrypted JSON payloads, one per customer
+     * @return per-record outcomes in submission order
+     * @throws DataProcessingException  if the batch is empty or exceeds
+     *                                  {@code app.persist.batch.max-size}
+     * @throws SessionNotFoundException if the session is unknown or has expired
+     * @throws PersistenceException     if the batch conflicts with a concurrent insert
+     */
+    public CustomerPersistanceBatchResponse persistCustomerBatch(String sessionId, List<String> records) {
+        if (records == null || records.isEmpty() || records.size() > maxBatchSize) {
+            throw new DataProcessingException("Batch must contain between 1 and " + maxBatchSize + " records");
+        }
+        logger.debug("Processing batch of {} encrypted customer records", records.size());
+
+        List<CompletableFuture<PreparedCustomer>> futures = new ArrayList<>(records.size());
+        for (String encryptedData : records) {
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> prepare(sessionId, encryptedData, Trace.NONE), batchExecutor));
+        }
+
+        CustomerPersistanceResponse[] results = new CustomerPersistanceResponse[records.size()];
+        List<PreparedCustomer> accepted = new ArrayList<>(records.size());
+        List<Integer> positions = new ArrayList<>(records.size());
+        Set<CardIndexKey> batchIndexes = new HashSet<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                PreparedCustomer customer = futures.get(i).join();
+                if (batchIndexes.add(new CardIndexKey(customer.cardNumberIndex()))) {
+                    accepted.add(customer);
+                    positions.add(i);
+                } else {
+                    results[i] = failure("DUPLICATE_CARD");
+                }
+            } catch (CompletionException ex) {
+                results[i] = failure(reasonCode(ex.getCause()));
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            Set<CardIndexKey> stored = new HashSet<>();
+            for (byte[] index : repo.findExistingCardNumberIndexes(
+                    accepted.stream().map(PreparedCustomer::cardNumberIndex).toList())) {
+                stored.add(new CardIndexKey(index));
+            }
+
+            List<PreparedCustomer> inserts = new ArrayList<>(accepted.size());
+            for (int i = 0; i < accepted.size(); i++) {
+                PreparedCustomer customer = accepted.get(i);
+                if (stored.contains(new CardIndexKey(customer.cardNumberIndex()))) {
+                    results[positions.get(i)] = failure("DUPLICATE_CARD");
+                } else {
+                    inserts.add(customer);
+                    results[positions.get(i)] = response("SUCCESS", customer.request());
+                }
+            }
+
+            try {
+                repo.saveAll(inserts.stream().map(PreparedCustomer::entity).toList());
+            } catch (DataIntegrityViolationException ex) {
+                throw new PersistenceException("Batch conflicted with a concurrent insert", ex);
+            }
+            inserts.forEach(this::publish);
+        }
+
+        int succeeded = 0;
+        for (CustomerPersistanceResponse result : results) {
+            if ("SUCCESS".equals(result.status())) {
+                succeeded++;
+            }
+        }
+        logger.info("Persisted {} of {} customers in batch", succeeded, records.size());
+        return new CustomerPersistanceBatchResponse(succeeded, records.size() - succeeded, Arrays.asList(results));
+    }
+
+    /** Shuts the batch worker pool down with the application context. */
+    @PreDestroy
+    void shutdown() {
+        batchExecutor.shutdown();
+    }
+
+    /**
+     * Decrypts, parses and validates a payload and builds the entity to store.
+     * This is the CPU-bound part of persisting a customer, so it runs inside the
+     * bulkhead.
      */
-    public CustomerPersistanceResponse persistCustomerData(String encryptedData) {
-        logger.debug("Processing encrypted customer persistence request");
+    private PreparedCustomer prepare(String sessionId, String encryptedData, Trace trace) {
+        return bulkhead.call(() -> doPrepare(sessionId, encryptedData, trace));
+    }
 
-        String decryptedJson = rsaService.decrypt(encryptedData);
+    private PreparedCustomer doPrepare(String sessionId, String encryptedData, Trace trace) {
+        trace.enter(Stage.DECRYPT);
+        byte[] payload = sessionId == null
+                ? rsaService.decryptBytes(encryptedData)
+                : sessionService.decryptBytes(sessionId, encryptedData);
 
+        trace.enter(Stage.PARSE);
+        PayloadParseEvent parse = new PayloadParseEvent();
+        parse.begin();
         DecryptedCustomerDetailsRequest request;
         try {
-            request = mapper.readValue(decryptedJson, DecryptedCustomerDetailsRequest.class);
-            logger.debug("Successfully parsed decrypted JSON payload");
-        } catch (JsonProcessingException ex) {
-            logger.error("Failed to parse decrypted JSON payload", ex);
-            throw new DataProcessingException("Failed to parse decrypted JSON payload", ex);
+            request = PayloadParser.readRequest(payload);
+        } catch (RuntimeException ex) {
+            parse.fail(payload.length, ex);
+            throw ex;
+        }
+        parse.complete(payload.length, RequestStageEvent.OK);
+        logger.debug("Successfully parsed decrypted JSON payload");
+
+        trace.enter(Stage.LUHN);
+        int digits = request.cardNumber() != null ? request.cardNumber().length() : 0;
+        LuhnValidateEvent luhn = new LuhnValidateEvent();
+        luhn.begin();
+        try {
+            LunhValidation.validate(request.cardNumber());
+        } catch (RuntimeException ex) {
+            luhn.fail(digits, ex);
+            throw ex;
         }
+        luhn.complete(digits, RequestStageEvent.OK);
 
-       
-        LunhValidation.validate(request.cardNumber());
-            
-        String encryptedCardNumber = aesService.encrypt(request.cardNumber());
+        trace.enter(Stage.ENCRYPT);
+        byte[] encryptedCardNumber = aesService.encrypt(request.cardNumber());
+        trace.enter(Stage.INDEX);
+        byte[] cardNumberIndex = blindIndexService.compute(request.cardNumber());
 
         CustomerDetails newCustomer = new CustomerDetails();
+        newCustomer.setCardNumberIndex(cardNumberIndex);
         newCustomer.setEncryptedCardNumber(encryptedCardNumber);
+        newCustomer.setCardKeyId(aesService.activeKeyId());
         newCustomer.setName(request.name());
         newCustomer.setMobile(request.mobile());
         newCustomer.setEmail(request.email());
+        return new PreparedCustomer(request, cardNumberIndex, newCustomer);
+    }
 
-        repo.save(newCustomer);
+    /** Makes a stored customer visible to the card filter and lookup cache. */
+    private void publish(PreparedCustomer customer) {
+        DecryptedCustomerDetailsRequest request = customer.request();
+        cardFilter.add(customer.cardNumberIndex());
+        lookupCache.put(customer.cardNumberIndex(),
+                new CustomerContact(request.name(), request.mobile(), request.email()));
+    }
 
+    private static CustomerPersistanceResponse response(String status, DecryptedCustomerDetailsRequest request) {
         return new CustomerPersistanceResponse(
-                "SUCCESS",
+                status,
                 null,
                 request.cardNumber(),
                 request.name(),
@@ -121,4 +419,38 @@ public class CustomerPersistanceService {
                 request.email());
     }
 
+    private static CustomerPersistanceResponse failure(String reasonCode) {
+        return new CustomerPersistanceResponse("FAILED", reasonCode, null, null, null, null);
+    }
+
+    /**
+     * Maps the failure of a single batch record to its reason code. Failures
+     * that affect the whole batch are rethrown.
+     */
+    private static String reasonCode(Throwable failure) {
+        if (failure instanceof SessionNotFoundException ex) {
+            throw ex;
+        }
+        if (failure instanceof DecryptionException) {
+            return "DECRYPTION_FAILED";
+        }
+        if (failure instanceof DataProcessingException) {
+            return "DATA_PROCESSING_FAILED";
+        }
+        if (failure instanceof IllegalArgumentException) {
+            return "INVALID_INPUT";
+        }
+        if (failure instanceof EncryptionException) {
+            return "ENCRYPTION_FAILED";
+        }
+        throw new PersistenceException("Unexpected failure while preparing batch record", failure);
+    }
+
+    /** A validated customer ready to be stored. */
+    private record PreparedCustomer(
+            DecryptedCustomerDetailsRequest request,
+            byte[] cardNumberIndex,
+            CustomerDetails entity) {
+    }
+
 }
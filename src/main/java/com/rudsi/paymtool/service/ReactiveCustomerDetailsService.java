@@ -0,0 +1,140 @@
+package com.rudsi.paymtool.service;
+
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.stereotype.Service;
+
+import com.rudsi.paymtool.dto.CustomerContact;
+import com.rudsi.paymtool.dto.CustomerDetailsResponse;
+import com.rudsi.paymtool.dto.DecryptedCustomerDetailsRequest;
+import com.rudsi.paymtool.dto.SessionEstablishResponse;
+import com.rudsi.paymtool.repository.ReactiveCustomerContactRepository;
+
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking variant of the customer lookup for the reactive web tier.
+ * <p>
+ * Runs the same stages as {@link CustomerDetailsService#processEncryptedRequest}.
+ * The CPU-bound stage (payload decryption, parsing, Luhn validation, blind
+ * index) and the in-memory lookups run on a bounded parallel scheduler, so the
+ * event loop only moves bytes. A card that may be stored is then loaded through
+ * {@link ReactiveCustomerContactRepository} without holding a thread while the
+ * query runs.
+ */
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveCustomerDetailsService {
+
+    private final CustomerDetailsService detailsService;
+
+    private final BlindIndexService blindIndexService;
+
+    private final SessionKeyService sessionService;
+
+    private final ReactiveCustomerContactRepository repo;
+
+    /** Scheduler running CPU-bound work, one thread per core by default. */
+    private final Scheduler cryptoScheduler;
+
+    /**
+     * Creates the service.
+     *
+     * @param detailsService    blocking lookup service providing the lookup stages
+     * @param blindIndexService service computing card number blind indexes
+     * @param sessionService    session service used to establish sessions
+     * @param repo              non-blocking repository used for database lookups
+     * @param parallelism       number of threads running CPU-bound work;
+     *                          non-positive values use one per available processor
+     */
+    public ReactiveCustomerDetailsService(
+            CustomerDetailsService detailsService,
+            BlindIndexService blindIndexService,
+            SessionKeyService sessionService,
+            ReactiveCustomerContactRepository repo,
+            @Value("${app.reactive.crypto-parallelism:0}") int parallelism) {
+        this.detailsService = detailsService;
+        this.blindIndexService = blindIndexService;
+        this.sessionService = sessionService;
+        this.repo = repo;
+        this.cryptoScheduler = Schedulers.newParallel("lookup-crypto",
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(), true);
+    }
+
+    /**
+     * Processes an encrypted customer lookup request.
+     *
+     * @param sessionId     id of an established session, or {@code null} for an
+     *                      RSA-encrypted payload
+     * @param encryptedData encrypted JSON payload representing the customer lookup request
+     * @return the lookup response, or an error signal with the same exceptions as
+     *         the blocking lookup
+     */
+    public Mono<CustomerDetailsResponse> processEncryptedRequest(String sessionId, String encryptedData) {
+        return lookup(() -> detailsService.decode(sessionId, encryptedData));
+    }
+
+    /**
+     * Processes a customer lookup request in the binary wire format.
+     *
+     * @param sessionId  id of an established session, or {@code null} for an
+     *                   RSA-encrypted payload
+     * @param ciphertext raw encrypted CBOR payload
+     * @return the lookup response, or an error signal with the same exceptions as
+     *         the blocking lookup
+     * @see CustomerDetailsService#processBinaryRequest(String, byte[])
+     */
+    public Mono<CustomerDetailsResponse> processBinaryRequest(String sessionId, byte[] ciphertext) {
+        return lookup(() -> detailsService.decodeBinary(sessionId, ciphertext));
+    }
+
+    /**
+     * Establishes a session from an RSA-wrapped key off the event loop.
+     *
+     * @see SessionKeyService#establish(String)
+     */
+    public Mono<SessionEstablishResponse> establishSession(String encryptedKey) {
+        return Mono.fromCallable(() -> sessionService.establish(encryptedKey)).subscribeOn(cryptoScheduler);
+    }
+
+    /** Disposes the scheduler with the application context. */
+    @PreDestroy
+    void shutdown() {
+        cryptoScheduler.dispose();
+    }
+
+    private Mono<CustomerDetailsResponse> lookup(Supplier<DecryptedCustomerDetailsRequest> decoder) {
+        return Mono.fromCallable(() -> {
+            DecryptedCustomerDetailsRequest request = decoder.get();
+            byte[] cardNumberIndex = blindIndexService.compute(request.cardNumber());
+            return new Lookup(request, cardNumberIndex, detailsService.findInMemory(cardNumberIndex));
+        }).subscribeOn(cryptoScheduler).flatMap(this::complete);
+    }
+
+    private Mono<CustomerDetailsResponse> complete(Lookup lookup) {
+        if (lookup.contact() != null || !detailsService.mightBeStored(lookup.cardNumberIndex())) {
+            return Mono.just(detailsService.respond(lookup.request(), lookup.contact()));
+        }
+        return repo.findContactByCardNumberIndex(lookup.cardNumberIndex())
+                .map(contact -> loaded(lookup, contact))
+                .switchIfEmpty(Mono.fromSupplier(() -> loaded(lookup, null)));
+    }
+
+    private CustomerDetailsResponse loaded(Lookup lookup, CustomerContact contact) {
+        detailsService.loaded(lookup.cardNumberIndex(), contact);
+        return detailsService.respond(lookup.request(), contact);
+    }
+
+    /** A decoded lookup and its in-memory result, if any. */
+    private record Lookup(
+            DecryptedCustomerDetailsRequest request,
+            byte[] cardNumberIndex,
+            CustomerContact contact) {
+    }
+}
@@ -5,16 +5,23 @@ import java.security.KeyFactory;
 import java.security.PrivateKey;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.Base64;
+import java.util.concurrent.TimeUnit;
 
 import javax.crypto.Cipher;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 import org.bouncycastle.util.io.pem.PemObject;
 import org.bouncycastle.util.io.pem.PemReader;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
+import com.rudsi.paymtool.crypto.CryptoEngine;
 import com.rudsi.paymtool.error.DecryptionException;
+import com.rudsi.paymtool.monitoring.jfr.RequestStageEvent;
+import com.rudsi.paymtool.monitoring.jfr.RsaDecryptEvent;
 
 /**
  * Spring-managed service that performs RSA decryption using a private key loaded
@@ -24,6 +31,9 @@ import com.rudsi.paymtool.error.DecryptionException;
  * {@code classpath:keys/private_key.pem}. The key is read and converted into a
  * {@link PrivateKey} instance once, during bean initialization, and reused for
  * all subsequent decryption operations.
+ * <p>
+ * Decryption runs on pooled ciphers of the shared {@link CryptoEngine} that stay
+ * initialized with the private key between requests.
  */
 @Service
 public class RsaEncryptionService {
@@ -31,6 +41,12 @@ public class RsaEncryptionService {
     /** RSA private key used to decrypt incoming ciphertexts. */
     private final PrivateKey privateKey;
 
+    /** Timer recording the cost of each RSA private-key operation. */
+    private final Timer decryptTimer;
+
+    /** Engine providing pooled, pre-initialized ciphers. */
+    private final CryptoEngine cryptoEngine;
+
     /**
      * Constructs a new {@code RsaService} and initializes the RSA private key.
      * <p>
@@ -40,9 +56,18 @@ public class RsaEncryptionService {
      *
      * @param privateKeyResource classpath resource pointing to the PEM-encoded
      *                           private key (e.g. {@code classpath:keys/private_key.pem})
+     * @param cryptoEngine       engine used to run cipher operations
+     * @param meterRegistry      registry used to publish decryption timings
      * @throws RuntimeException if the key cannot be read or parsed successfully
      */
-    public RsaEncryptionService(@Value("classpath:keys/private_key.pem") Resource privateKeyResource) {
+    public RsaEncryptionService(@Value("classpath:keys/private_key.pem") Resource privateKeyResource,
+            CryptoEngine cryptoEngine, MeterRegistry meterRegistry) {
+        this.cryptoEngine = cryptoEngine;
+        this.decryptTimer = Timer.builder("paymtool.payload.decrypt")
+                .description("Time spent decrypting request payloads")
+                .tag("mode", "rsa")
+                .register(meterRegistry);
+
         try (PemReader pemReader = new PemReader(new InputStreamReader(privateKeyResource.getInputStream()))) {
             // Extract the raw key bytes from the PEM structure.
             PemObject pemObject = pemReader.readPemObject();
@@ -64,26 +89,65 @@ public class RsaEncryptionService {
      * @param base64Cipher Base64-encoded ciphertext produced using the matching
      *                     public key and algorithm
      * @return decrypted plaintext String (UTF-8)
-     * @throws Exception if the cipher cannot be initialized or the decryption
-     *                   operation fails
+     * @throws DecryptionException if the cipher cannot be initialized or the
+     *                             decryption operation fails
      */
     public String decrypt(String base64Cipher) {
+        return new String(decryptBytes(base64Cipher), java.nio.charset.StandardCharsets.UTF_8);
+    }
 
+    /**
+     * Decrypts a Base64-encoded RSA ciphertext using OAEP with SHA-256 and
+     * returns the raw plaintext bytes.
+     * <p>
+     * Used where the plaintext is binary key material rather than JSON, such as
+     * the AES session key wrapped by a client during session establishment.
+     *
+     * @param base64Cipher Base64-encoded ciphertext produced using the matching
+     *                     public key and algorithm
+     * @return decrypted plaintext bytes
+     * @throws DecryptionException if the cipher cannot be initialized or the
+     *                             decryption operation fails
+     */
+    public byte[] decryptBytes(String base64Cipher) {
+        byte[] cipherBytes;
         try {
-        // Decode the incoming Base64 representation into raw cipher bytes.
-           byte[] cipherBytes = Base64.getDecoder().decode(base64Cipher);
-
-        // Configure the RSA cipher with OAEP (SHA-256) padding and initialize
-        // it for decryption using the pre-loaded private key.
-           Cipher cipher = Cipher.getInstance("RSA/ECB/OAEPWithSHA-256AndMGF1Padding");
-           cipher.init(Cipher.DECRYPT_MODE, privateKey);
+            // Decode the incoming Base64 representation into raw cipher bytes.
+            cipherBytes = Base64.getDecoder().decode(base64Cipher);
+        } catch (IllegalArgumentException e) {
+            throw new DecryptionException("Data decryption failed", e);
+        }
+        return decryptBytes(cipherBytes);
+    }
 
-        // Perform the decryption and convert the resulting bytes back to a String.
-           byte[] plain = cipher.doFinal(cipherBytes);
-           return new String(plain, java.nio.charset.StandardCharsets.UTF_8);
+    /**
+     * Decrypts a raw RSA ciphertext using OAEP with SHA-256, as sent by clients
+     * of the binary wire format.
+     *
+     * @param cipherBytes ciphertext produced using the matching public key and
+     *                    algorithm
+     * @return decrypted plaintext bytes
+     * @throws DecryptionException if the cipher cannot be initialized or the
+     *                             decryption operation fails
+     */
+    public byte[] decryptBytes(byte[] cipherBytes) {
+        long start = System.nanoTime();
+        RsaDecryptEvent event = new RsaDecryptEvent();
+        event.begin();
+        try {
+        // Decrypt with OAEP (SHA-256) padding on a pooled cipher initialized
+        // with the pre-loaded private key.
+           byte[] plain = cryptoEngine.doFinal(CryptoEngine.RSA_OAEP, Cipher.DECRYPT_MODE, privateKey,
+                   CryptoEngine.OAEP_SHA256, cipherBytes);
+           event.complete(cipherBytes.length, RequestStageEvent.OK);
+           return plain;
         } catch (Exception e) {
-            throw new DecryptionException("Data decryption failed", e);
+            DecryptionException failure = new DecryptionException("Data decryption failed", e);
+            event.fail(cipherBytes.length, failure);
+            throw failure;
+        } finally {
+            decryptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
-    }  
+    }
 
 }
@@ -0,0 +1,208 @@
+package com.rudsi.paymtool.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rudsi.paymtool.crypto.CpuBulkhead;
+import com.rudsi.paymtool.crypto.CryptoEngine;
+import com.rudsi.paymtool.dto.SessionEstablishResponse;
+import com.rudsi.paymtool.error.DecryptionException;
+import com.rudsi.paymtool.error.SessionNotFoundException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Service managing symmetric sessions that let repeat clients skip the RSA
+ * private-key operation.
+ * <p>
+ * A client establishes a session once by sending an AES-256 key wrapped with the
+ * server's RSA public key. The unwrapped key is kept in a bounded, expiring
+ * session table and the client receives an opaque session id. Subsequent
+ * requests carry the session id together with an AES-GCM ciphertext, so each
+ * request costs a single AES-GCM decryption instead of an RSA decryption.
+ * <p>
+ * The session id is bound to every ciphertext as additional authenticated data,
+ * so a ciphertext produced for one session cannot be replayed under another.
+ */
+@Service
+public class SessionKeyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionKeyService.class);
+
+    /** Length of the GCM initialization vector prefixed to every ciphertext. */
+    private static final int GCM_IV_LENGTH = 12;
+
+    /** Length of the GCM authentication tag in bits. */
+    private static final int GCM_TAG_BITS = 128;
+
+    /** Required length of the session key in bytes (AES-256). */
+    private static final int SESSION_KEY_LENGTH = 32;
+
+    /** Number of random bytes in a session id. */
+    private static final int SESSION_ID_LENGTH = 16;
+
+    /** RSA service used to unwrap the client-supplied session key. */
+    private final RsaEncryptionService rsaService;
+
+    /** Engine providing pooled ciphers. */
+    private final CryptoEngine cryptoEngine;
+
+    /** Bulkhead bounding concurrent RSA key unwrapping. */
+    private final CpuBulkhead bulkhead;
+
+    /** Bounded, expiring table of active session keys indexed by session id. */
+    private final Cache<String, SecretKeySpec> sessions;
+
+    /** Lifetime of a session measured from its establishment. */
+    private final Duration ttl;
+
+    /** Source of randomness for session ids. */
+    private final SecureRandom random = new SecureRandom();
+
+    /** Timer recording the cost of each session payload decryption. */
+    private final Timer decryptTimer;
+
+    /**
+     * Creates a new {@code SessionKeyService}.
+     *
+     * @param rsaService    RSA service used to unwrap session keys
+     * @param cryptoEngine  engine used to run cipher operations
+     * @param bulkhead      bulkhead bounding concurrent RSA key unwrapping
+     * @param maxSessions   maximum number of concurrently held sessions
+     * @param ttl           lifetime of a session after establishment
+     * @param meterRegistry registry used to publish session metrics
+     */
+    public SessionKeyService(
+            RsaEncryptionService rsaService,
+            CryptoEngine cryptoEngine,
+            CpuBulkhead bulkhead,
+            @Value("${app.session.max-entries:100000}") long maxSessions,
+            @Value("${app.session.ttl:30m}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        this.rsaService = rsaService;
+        this.cryptoEngine = cryptoEngine;
+        this.bulkhead = bulkhead;
+        this.ttl = ttl;
+        this.sessions = Caffeine.newBuilder()
+                .maximumSize(maxSessions)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.decryptTimer = Timer.builder("paymtool.payload.decrypt")
+                .description("Time spent decrypting request payloads")
+                .tag("mode", "session")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, sessions, "sessions");
+    }
+
+    /**
+     * Establishes a new session from an RSA-wrapped AES-256 key.
+     *
+     * @param encryptedKey Base64-encoded RSA-encrypted session key
+     * @return the new session id and its lifetime
+     * @throws DecryptionException if the key cannot be unwrapped or has the wrong length
+     */
+    public SessionEstablishResponse establish(String encryptedKey) {
+        byte[] keyBytes = bulkhead.call(() -> rsaService.decryptBytes(encryptedKey));
+        try {
+            if (keyBytes.length != SESSION_KEY_LENGTH) {
+                throw new DecryptionException(
+                        "Session key must be " + SESSION_KEY_LENGTH + " bytes, found: " + keyBytes.length);
+            }
+
+            byte[] idBytes = new byte[SESSION_ID_LENGTH];
+            random.nextBytes(idBytes);
+            String sessionId = Base64.getUrlEncoder().withoutPadding().encodeToString(idBytes);
+
+            sessions.put(sessionId, new SecretKeySpec(keyBytes, "AES"));
+            logger.debug("Established new session");
+            return new SessionEstablishResponse(sessionId, ttl.toSeconds());
+        } finally {
+            Arrays.fill(keyBytes, (byte) 0);
+        }
+    }
+
+    /**
+     * Decrypts a session-encrypted payload.
+     *
+     * @param sessionId     id of a previously established session
+     * @param encryptedData Base64-encoded IV followed by the AES-GCM ciphertext and tag
+     * @return decrypted plaintext String (UTF-8)
+     * @throws SessionNotFoundException if the session is unknown or has expired
+     * @throws DecryptionException      if the payload is malformed or fails authentication
+     */
+    public String decrypt(String sessionId, String encryptedData) {
+        return new String(decryptBytes(sessionId, encryptedData), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decrypts a session-encrypted payload to its plaintext bytes.
+     *
+     * @param sessionId     id of a previously established session
+     * @param encryptedData Base64-encoded IV followed by the AES-GCM ciphertext and tag
+     * @return decrypted plaintext bytes
+     * @throws SessionNotFoundException if the session is unknown or has expired
+     * @throws DecryptionException      if the payload is malformed or fails authentication
+     */
+    public byte[] decryptBytes(String sessionId, String encryptedData) {
+        byte[] payload;
+        try {
+            payload = Base64.getDecoder().decode(encryptedData);
+        } catch (IllegalArgumentException e) {
+            throw new DecryptionException("Session payload decryption failed", e);
+        }
+        return decryptBytes(sessionId, payload);
+    }
+
+    /**
+     * Decrypts a raw session-encrypted payload, as sent by clients of the binary
+     * wire format.
+     *
+     * @param sessionId id of a previously established session
+     * @param payload   IV followed by the AES-GCM ciphertext and tag
+     * @return decrypted plaintext bytes
+     * @throws SessionNotFoundException if the session is unknown or has expired
+     * @throws DecryptionException      if the payload is malformed or fails authentication
+     */
+    public byte[] decryptBytes(String sessionId, byte[] payload) {
+        SecretKeySpec key = sessions.getIfPresent(sessionId);
+        if (key == null) {
+            throw new SessionNotFoundException("Session not found or expired");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (payload.length <= GCM_IV_LENGTH) {
+                throw new DecryptionException("Session payload is too short");
+            }
+
+            return cryptoEngine.doFinal(CryptoEngine.AES_GCM, Cipher.DECRYPT_MODE, key,
+                    new GCMParameterSpec(GCM_TAG_BITS, payload, 0, GCM_IV_LENGTH),
+                    sessionId.getBytes(StandardCharsets.UTF_8),
+                    payload, GCM_IV_LENGTH, payload.length - GCM_IV_LENGTH);
+        } catch (DecryptionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DecryptionException("Session payload decryption failed", e);
+        } finally {
+            decryptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.rudsi.paymtool.util;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Luhn validation of packed card number slots with the incubating Vector API.
+ * <p>
+ * Each {@link LunhValidation#BATCH_SLOT_WIDTH}-byte slot is loaded into one
+ * 256-bit vector. The format check, the doubling of every second digit from the
+ * right and the digit sum are computed lane-wise, followed by a single
+ * reduction. Leading zero bytes are padding and contribute nothing; the digit
+ * sum of at most 19 digits stays below 256, so byte lanes do not overflow.
+ * <p>
+ * Kept apart from {@link LunhValidation} so that a JVM started without
+ * {@code --add-modules jdk.incubator.vector} fails to load only this class and
+ * falls back to the scalar loop.
+ */
+final class LuhnVectorKernel {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_256;
+
+    /** Lanes holding every second digit counted from the rightmost lane. */
+    private static final VectorMask<Byte> DOUBLED_LANES;
+
+    static {
+        boolean[] doubled = new boolean[SPECIES.length()];
+        for (int lane = 0; lane < doubled.length; lane++) {
+            doubled[lane] = (doubled.length - 1 - lane) % 2 == 1;
+        }
+        DOUBLED_LANES = VectorMask.fromArray(SPECIES, doubled, 0);
+    }
+
+    private LuhnVectorKernel() {
+    }
+
+    /**
+     * Reports whether the hardware natively supports vectors of a full slot;
+     * otherwise the Vector API would emulate them more slowly than the scalar
+     * loop.
+     */
+    static boolean isSupported() {
+        return SPECIES.length() == LunhValidation.BATCH_SLOT_WIDTH
+                && ByteVector.SPECIES_PREFERRED.vectorBitSize() >= SPECIES.vectorBitSize();
+    }
+
+    /** @see LunhValidation#isValidBatch(byte[], int, boolean[]) */
+    static void isValidBatch(byte[] slots, int count, boolean[] results) {
+        for (int slot = 0; slot < count; slot++) {
+            ByteVector bytes = ByteVector.fromArray(SPECIES, slots, slot * LunhValidation.BATCH_SLOT_WIDTH);
+            VectorMask<Byte> padding = bytes.eq((byte) 0);
+            ByteVector digits = bytes.sub((byte) '0');
+            int paddingLanes = padding.trueCount();
+            int length = SPECIES.length() - paddingLanes;
+
+            // Valid slots are 12 to 19 digits preceded only by padding.
+            if (length < 12 || length > 19
+                    || padding.lastTrue() != paddingLanes - 1
+                    || digits.compare(VectorOperators.UNSIGNED_GT, (byte) 9).andNot(padding).anyTrue()) {
+                results[slot] = false;
+                continue;
+            }
+
+            digits = digits.blend((byte) 0, padding);
+            ByteVector twice = digits.add(digits);
+            twice = twice.sub((byte) 9, twice.compare(VectorOperators.GT, (byte) 9));
+            int sum = digits.blend(twice, DOUBLED_LANES).reduceLanes(VectorOperators.ADD) & 0xff;
+            results[slot] = sum % 10 == 0;
+        }
+    }
+}
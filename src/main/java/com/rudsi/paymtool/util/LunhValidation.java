@@ -1,5 +1,11 @@
 package com.rudsi.paymtool.util;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import com.rudsi.paymtool.error.InvalidCardNumberException;
+
 /**
  * Utility class providing validation for payment card numbers using the Luhn
  * algorithm (also known as the mod-10 algorithm).
@@ -13,6 +19,13 @@ package com.rudsi.paymtool.util;
  * two-digit number, the digits are summed (equivalent to subtracting 9). The sum
  * of all processed digits must be divisible by 10 for the number to be valid.
  * <p>
+ * The format check (12 to 19 ASCII digits) and the checksum are computed in a
+ * single pass without allocating, over a {@link CharSequence} or a range of a
+ * {@code byte[]} or {@link ByteBuffer} holding ASCII digits. Bulk callers can
+ * validate many card numbers at once with {@link #isValidBatch(byte[], int, boolean[])},
+ * which uses the incubating Vector API when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}, and a scalar loop otherwise.
+ * <p>
  * This class is thread-safe as it contains only static methods with no mutable
  * state.
  *
@@ -21,6 +34,22 @@ package com.rudsi.paymtool.util;
  */
 public final class LunhValidation {
 
+    /** Width in bytes of one card number slot in the packed batch layout. */
+    public static final int BATCH_SLOT_WIDTH = 32;
+
+    private static final int MIN_LENGTH = 12;
+
+    private static final int MAX_LENGTH = 19;
+
+    private static final int VALID = 0;
+
+    private static final int INVALID_FORMAT = 1;
+
+    private static final int INVALID_CHECKSUM = 2;
+
+    /** Whether batches are validated with the Vector API. */
+    private static final boolean VECTORIZED = vectorSupported();
+
     /**
      * Private constructor to prevent instantiation of this utility class.
      */
@@ -43,75 +72,269 @@ public final class LunhValidation {
      * </ol>
      * <p>
      * This method performs basic format validation (non-null, numeric-only,
-     * length between 12-19 digits) before applying the Luhn algorithm.
+     * length between 12-19 digits) in the same pass as the Luhn algorithm.
      *
      * @param cardNumber the card number to validate, must contain only digits
      *                   and be between 12 and 19 characters in length
      * @return {@code true} if the card number passes both format and Luhn
      *         checksum validation, {@code false} otherwise
-     * @throws IllegalArgumentException if the card number is null, contains
-     *                                  non-digit characters, or has an invalid
-     *                                  length (not between 12 and 19 digits)
+     * @throws InvalidCardNumberException if the card number is null, contains
+     *                                    non-digit characters, or has an invalid
+     *                                    length (not between 12 and 19 digits)
      */
-    public static boolean isValid(String cardNumber) {
+    public static boolean isValid(CharSequence cardNumber) {
         if (cardNumber == null) {
-            throw new IllegalArgumentException("Card number cannot be null");
+            throw new InvalidCardNumberException("Card number cannot be null");
         }
+        return checkFormat(check(cardNumber));
+    }
 
-        // Validate format: must contain only digits and be within standard PAN length range
-        if (!cardNumber.matches("\\d{12,19}")) {
-            throw new IllegalArgumentException(
-                    "Card number must contain only digits and be between 12 and 19 characters");
+    /**
+     * Validates a card number held as ASCII digits in a byte array range.
+     *
+     * @param digits array holding the card number
+     * @param offset index of the first digit
+     * @param length number of digits
+     * @return {@code true} if the card number passes the Luhn checksum,
+     *         {@code false} otherwise
+     * @throws InvalidCardNumberException if the range contains non-digit bytes or
+     *                                    is not between 12 and 19 bytes long
+     * @see #isValid(CharSequence)
+     */
+    public static boolean isValid(byte[] digits, int offset, int length) {
+        return checkFormat(check(digits, offset, length));
+    }
+
+    /**
+     * Validates a card number held as ASCII digits in a buffer range. The
+     * range must lie below the buffer's limit; its position is neither used
+     * nor changed.
+     *
+     * @param digits buffer holding the card number
+     * @param offset absolute index of the first digit
+     * @param length number of digits
+     * @return {@code true} if the card number passes the Luhn checksum,
+     *         {@code false} otherwise
+     * @throws InvalidCardNumberException if the range contains non-digit bytes or
+     *                                    is not between 12 and 19 bytes long
+     * @see #isValid(CharSequence)
+     */
+    public static boolean isValid(ByteBuffer digits, int offset, int length) {
+        return checkFormat(check(digits, offset, length));
+    }
+
+    /**
+     * Validates a card number and throws an exception if validation fails.
+     * <p>
+     * This is a convenience method equivalent to {@link #isValid(CharSequence)}
+     * that throws an {@link InvalidCardNumberException} with a descriptive message
+     * if the card number is invalid. Useful when validation failure should be
+     * treated as an exceptional condition.
+     *
+     * @param cardNumber the card number to validate
+     * @throws InvalidCardNumberException if the card number is null, has invalid
+     *                                    format, or fails the Luhn checksum
+     */
+    public static void validate(CharSequence cardNumber) {
+        if (cardNumber == null) {
+            throw new InvalidCardNumberException("Card number cannot be null");
+        }
+        throwIfInvalid(check(cardNumber));
+    }
+
+    /**
+     * Validates a card number held as ASCII digits in a byte array range and
+     * throws an exception if validation fails.
+     *
+     * @see #validate(CharSequence)
+     */
+    public static void validate(byte[] digits, int offset, int length) {
+        throwIfInvalid(check(digits, offset, length));
+    }
+
+    /**
+     * Validates a card number held as ASCII digits in a buffer range and throws
+     * an exception if validation fails.
+     *
+     * @see #validate(CharSequence)
+     */
+    public static void validate(ByteBuffer digits, int offset, int length) {
+        throwIfInvalid(check(digits, offset, length));
+    }
+
+    /**
+     * Writes a card number into slot {@code slot} of the packed batch layout used
+     * by {@link #isValidBatch(byte[], int, boolean[])}.
+     * <p>
+     * Each slot is {@link #BATCH_SLOT_WIDTH} bytes wide and holds the card
+     * number's ASCII digits right-aligned, preceded by zero bytes. A card number
+     * that is {@code null} or does not fit is written as a slot that fails
+     * validation.
+     *
+     * @param cardNumber card number to write
+     * @param slots      packed slots
+     * @param slot       index of the slot to write
+     */
+    public static void packBatchSlot(CharSequence cardNumber, byte[] slots, int slot) {
+        int start = slot * BATCH_SLOT_WIDTH;
+        int end = start + BATCH_SLOT_WIDTH;
+        if (cardNumber == null || cardNumber.length() > BATCH_SLOT_WIDTH) {
+            Arrays.fill(slots, start, end, (byte) 0);
+            slots[end - 1] = '?';
+            return;
+        }
+        int digitsStart = end - cardNumber.length();
+        Arrays.fill(slots, start, digitsStart, (byte) 0);
+        for (int i = 0; i < cardNumber.length(); i++) {
+            // A NUL would read as padding, and a char outside ASCII could
+            // truncate onto a digit byte, so both are replaced by a non-digit.
+            char c = cardNumber.charAt(i);
+            slots[digitsStart + i] = c != 0 && c < 0x80 ? (byte) c : (byte) '?';
+        }
+    }
+
+    /**
+     * Validates a batch of card numbers in the packed layout written by
+     * {@link #packBatchSlot(CharSequence, byte[], int)}.
+     * <p>
+     * Unlike the single-value methods this does not throw for invalid card
+     * numbers; format and checksum failures both yield {@code false}. Callers
+     * that need the reason can pass the failed card numbers to
+     * {@link #validate(CharSequence)}.
+     *
+     * @param slots   packed slots, at least {@code count} of them
+     * @param count   number of slots to validate
+     * @param results receives, per slot, whether the card number is valid
+     */
+    public static void isValidBatch(byte[] slots, int count, boolean[] results) {
+        if (VECTORIZED) {
+            LuhnVectorKernel.isValidBatch(slots, count, results);
+            return;
+        }
+        for (int slot = 0; slot < count; slot++) {
+            int start = slot * BATCH_SLOT_WIDTH;
+            int end = start + BATCH_SLOT_WIDTH;
+            int first = start;
+            while (first < end && slots[first] == 0) {
+                first++;
+            }
+            results[slot] = check(slots, first, end - first) == VALID;
+        }
+    }
+
+    /**
+     * Validates a list of card numbers at once.
+     *
+     * @param cardNumbers card numbers to validate; {@code null} elements are invalid
+     * @return per card number, whether it is valid
+     * @see #isValidBatch(byte[], int, boolean[])
+     */
+    public static boolean[] isValidBatch(List<? extends CharSequence> cardNumbers) {
+        int count = cardNumbers.size();
+        byte[] slots = new byte[count * BATCH_SLOT_WIDTH];
+        for (int i = 0; i < count; i++) {
+            packBatchSlot(cardNumbers.get(i), slots, i);
+        }
+        boolean[] results = new boolean[count];
+        isValidBatch(slots, count, results);
+        return results;
+    }
+
+    /** Reports whether batches are validated with the Vector API. */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    private static int check(CharSequence cardNumber) {
+        int length = cardNumber.length();
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            return INVALID_FORMAT;
         }
 
         int sum = 0;
         boolean doubleDigit = false;
 
         // Process digits from right to left as required by the Luhn algorithm
-        for (int i = cardNumber.length() - 1; i >= 0; i--) {
+        for (int i = length - 1; i >= 0; i--) {
             int digit = cardNumber.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID_FORMAT;
+            }
+            sum += doubleDigit ? doubled(digit) : digit;
+            doubleDigit = !doubleDigit;
+        }
+
+        // The card number is valid if the sum is divisible by 10
+        return sum % 10 == 0 ? VALID : INVALID_CHECKSUM;
+    }
 
-            // Double every second digit starting from the second-to-last
-            if (doubleDigit) {
-                digit *= 2;
-                // If doubling results in a two-digit number, subtract 9 (equivalent to summing digits)
-                if (digit > 9) {
-                    digit -= 9;
-                }
+    private static int check(byte[] digits, int offset, int length) {
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            return INVALID_FORMAT;
+        }
+        int sum = 0;
+        boolean doubleDigit = false;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            int digit = digits[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID_FORMAT;
             }
+            sum += doubleDigit ? doubled(digit) : digit;
+            doubleDigit = !doubleDigit;
+        }
+        return sum % 10 == 0 ? VALID : INVALID_CHECKSUM;
+    }
 
-            sum += digit;
+    private static int check(ByteBuffer digits, int offset, int length) {
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            return INVALID_FORMAT;
+        }
+        int sum = 0;
+        boolean doubleDigit = false;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            int digit = digits.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID_FORMAT;
+            }
+            sum += doubleDigit ? doubled(digit) : digit;
             doubleDigit = !doubleDigit;
         }
+        return sum % 10 == 0 ? VALID : INVALID_CHECKSUM;
+    }
 
-        // The card number is valid if the sum is divisible by 10
-        return sum % 10 == 0;
+    /** Doubles a digit; a two-digit result is reduced by 9, which sums its digits. */
+    private static int doubled(int digit) {
+        int value = digit * 2;
+        return value > 9 ? value - 9 : value;
     }
 
-    /**
-     * Validates a card number and throws an exception if validation fails.
-     * <p>
-     * This is a convenience method that calls {@link #isValid(String)} and throws
-     * an {@link IllegalArgumentException} with a descriptive message if the card
-     * number is invalid. Useful when validation failure should be treated as an
-     * exceptional condition.
-     *
-     * @param cardNumber the card number to validate
-     * @throws IllegalArgumentException if the card number is null, has invalid
-     *                                  format, or fails the Luhn checksum
-     */
-    public static void validate(String cardNumber) {
-        if (cardNumber == null) {
-            throw new IllegalArgumentException("Card number cannot be null");
+    private static boolean checkFormat(int result) {
+        if (result == INVALID_FORMAT) {
+            throw new InvalidCardNumberException(
+                    "Card number must contain only digits and be between 12 and 19 characters");
         }
+        return result == VALID;
+    }
 
-        if (!cardNumber.matches("\\d{12,19}")) {
-            throw new IllegalArgumentException(
+    private static void throwIfInvalid(int result) {
+        if (result == INVALID_FORMAT) {
+            throw new InvalidCardNumberException(
                     "Card number must be numeric and between 12 and 19 digits");
         }
+        if (result == INVALID_CHECKSUM) {
+            throw new InvalidCardNumberException("Card number failed Luhn checksum validation");
+        }
+    }
 
-        if (!isValid(cardNumber)) {
-            throw new IllegalArgumentException("Card number failed Luhn checksum validation");
+    /**
+     * Reports whether the Vector API is available and wide enough for a slot;
+     * without {@code --add-modules jdk.incubator.vector} the kernel cannot load.
+     */
+    private static boolean vectorSupported() {
+        try {
+            return LuhnVectorKernel.isSupported();
+        } catch (LinkageError e) {
+            return false;
         }
     }
 }
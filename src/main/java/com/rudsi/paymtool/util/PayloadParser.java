@@ -0,0 +1,138 @@
+package com.rudsi.paymtool.util;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.rudsi.paymtool.dto.DecryptedCustomerDetailsRequest;
+import com.rudsi.paymtool.error.DataProcessingException;
+
+/**
+ * Parses decrypted request payloads directly from their bytes.
+ * <p>
+ * Payloads are JSON, or CBOR for the binary wire format. The readers are built
+ * once and shared, as {@link ObjectReader} and the parser factories are
+ * immutable and thread-safe. Parsing from the decrypted {@code byte[]} avoids
+ * decoding the whole payload into a {@code String} first.
+ * <p>
+ * Lookups need only the card number, so {@link #readCardNumber(byte[])} pulls
+ * the {@code cardNumber} field with a streaming parser. The other fields are
+ * skipped without being decoded into strings; content after the object is not
+ * read, so trailing content is not checked.
+ * <p>
+ * Both mappers reject duplicate field names. Otherwise a payload with two
+ * {@code cardNumber} fields would be looked up by its first card number but
+ * persisted with its last, so lookups read the whole object to find a
+ * duplicate too.
+ * <p>
+ * This class is thread-safe as it contains only static methods and immutable
+ * shared readers.
+ */
+public final class PayloadParser {
+
+    private static final String CARD_NUMBER = "cardNumber";
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper()
+            .enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION);
+
+    private static final ObjectMapper CBOR_MAPPER = new ObjectMapper(new CBORFactory())
+            .enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION);
+
+    private static final ObjectReader JSON_REQUEST_READER =
+            JSON_MAPPER.readerFor(DecryptedCustomerDetailsRequest.class);
+
+    private static final ObjectReader CBOR_REQUEST_READER =
+            CBOR_MAPPER.readerFor(DecryptedCustomerDetailsRequest.class);
+
+    private PayloadParser() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Parses a decrypted JSON payload into a request with all fields.
+     *
+     * @param payload UTF-8 encoded JSON object
+     * @return the parsed request
+     * @throws DataProcessingException if the payload is not a valid JSON object
+     *                                 or repeats a field
+     */
+    public static DecryptedCustomerDetailsRequest readRequest(byte[] payload) {
+        return read(JSON_REQUEST_READER, payload);
+    }
+
+    /**
+     * Parses a decrypted CBOR payload into a request with all fields.
+     *
+     * @param payload CBOR map
+     * @return the parsed request
+     * @throws DataProcessingException if the payload is not a valid CBOR map
+     *                                 or repeats a field
+     */
+    public static DecryptedCustomerDetailsRequest readRequestCbor(byte[] payload) {
+        return read(CBOR_REQUEST_READER, payload);
+    }
+
+    /**
+     * Extracts the {@code cardNumber} field of a decrypted JSON payload.
+     *
+     * @param payload UTF-8 encoded JSON object
+     * @return the card number, or {@code null} if the field is absent or null
+     * @throws DataProcessingException if the payload is not a JSON object,
+     *                                 repeats a field, or the card number is
+     *                                 not a scalar
+     */
+    public static String readCardNumber(byte[] payload) {
+        return readCardNumber(JSON_MAPPER.getFactory(), payload);
+    }
+
+    /**
+     * Extracts the {@code cardNumber} field of a decrypted CBOR payload.
+     *
+     * @param payload CBOR map
+     * @return the card number, or {@code null} if the field is absent or null
+     * @throws DataProcessingException if the payload is not a CBOR map,
+     *                                 repeats a field, or the card number is
+     *                                 not a scalar
+     */
+    public static String readCardNumberCbor(byte[] payload) {
+        return readCardNumber(CBOR_MAPPER.getFactory(), payload);
+    }
+
+    private static DecryptedCustomerDetailsRequest read(ObjectReader reader, byte[] payload) {
+        try {
+            return reader.readValue(payload);
+        } catch (IOException ex) {
+            throw new DataProcessingException("Failed to parse decrypted payload", ex);
+        }
+    }
+
+    private static String readCardNumber(JsonFactory factory, byte[] payload) {
+        try (JsonParser parser = factory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new DataProcessingException("Decrypted payload is not an object");
+            }
+            String cardNumber = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                // Field names come from the parser's symbol table, so this compares
+                // canonical instances without allocating.
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (CARD_NUMBER.equals(field) && value != JsonToken.VALUE_NULL) {
+                    if (!value.isScalarValue()) {
+                        throw new DataProcessingException("Card number is not a scalar value");
+                    }
+                    cardNumber = parser.getText();
+                }
+                // Reading on lets the parser reject a repeated field.
+                parser.skipChildren();
+            }
+            return cardNumber;
+        } catch (IOException ex) {
+            throw new DataProcessingException("Failed to parse decrypted payload", ex);
+        }
+    }
+}
@@ -1,13 +1,20 @@
 package com.rudsi.paymtool.util;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
 import java.security.KeyFactory;
 import java.security.PublicKey;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
 import javax.crypto.Cipher;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
 public class TestPayloadGenerator {
 
     public static void main(String[] args) throws Exception {
@@ -24,12 +31,42 @@ public class TestPayloadGenerator {
         System.out.println("--- Original JSON Payload ---");
         System.out.println(jsonPayload);
 
+        Cipher cipher = newCipher(loadPublicKey());
+
+        byte[] encryptedBytes = cipher.doFinal(jsonPayload.getBytes(StandardCharsets.UTF_8));
+        String encryptedBase64 = Base64.getEncoder().encodeToString(encryptedBytes);
+
+        System.out.println("\n--- ENCRYPTED PAYLOAD ---");
+        System.out.println(encryptedBase64);
+        System.out.println("-----------------------------------------------------");
+
+        // With a file argument, also write the binary wire format body:
+        // the raw ciphertext of the same payload encoded as CBOR.
+        if (args.length > 0) {
+            ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+            byte[] cborPayload = cborMapper.writeValueAsBytes(new ObjectMapper().readTree(jsonPayload));
+            Path binaryFile = Path.of(args[0]);
+            Files.write(binaryFile, cipher.doFinal(cborPayload));
+            System.out.println("\n--- BINARY PAYLOAD (" + cborPayload.length + " bytes CBOR) written to "
+                    + binaryFile + " ---");
+        }
+    }
+
+    /**
+     * Loads the server's RSA public key from {@code classpath:keys/public_key.pem}.
+     *
+     * @throws IllegalStateException if the key file is missing
+     */
+    public static PublicKey loadPublicKey() throws IOException, GeneralSecurityException {
         InputStream keyStream = TestPayloadGenerator.class.getResourceAsStream("/keys/public_key.pem");
         if (keyStream == null) {
-            throw new RuntimeException("Error: public_key.pem not found in src/main/resources/keys/");
+            throw new IllegalStateException("Error: public_key.pem not found in src/main/resources/keys/");
         }
 
-        String publicKeyContent = new String(keyStream.readAllBytes(), StandardCharsets.UTF_8);
+        String publicKeyContent;
+        try (keyStream) {
+            publicKeyContent = new String(keyStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
         publicKeyContent = publicKeyContent
                 .replace("-----BEGIN PUBLIC KEY-----", "")
                 .replace("-----END PUBLIC KEY-----", "")
@@ -38,16 +75,16 @@ public class TestPayloadGenerator {
         byte[] keyBytes = Base64.getDecoder().decode(publicKeyContent);
         X509EncodedKeySpec spec = new X509EncodedKeySpec(keyBytes);
         KeyFactory kf = KeyFactory.getInstance("RSA");
-        PublicKey publicKey = kf.generatePublic(spec);
+        return kf.generatePublic(spec);
+    }
 
+    /**
+     * Creates a cipher encrypting payloads for the server with RSA-OAEP
+     * (SHA-256). Ciphers are not thread-safe; use one per thread.
+     */
+    public static Cipher newCipher(PublicKey publicKey) throws GeneralSecurityException {
         Cipher cipher = Cipher.getInstance("RSA/ECB/OAEPWithSHA-256AndMGF1Padding");
         cipher.init(Cipher.ENCRYPT_MODE, publicKey);
-
-        byte[] encryptedBytes = cipher.doFinal(jsonPayload.getBytes(StandardCharsets.UTF_8));
-        String encryptedBase64 = Base64.getEncoder().encodeToString(encryptedBytes);
-
-        System.out.println("\n--- ENCRYPTED PAYLOAD ---");
-        System.out.println(encryptedBase64);
-        System.out.println("-----------------------------------------------------");
+        return cipher;
     }
-}
\ No newline at end of file
+}
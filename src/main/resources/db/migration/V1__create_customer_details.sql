@@ -0,0 +1,12 @@
+-- Schema as previously generated by Hibernate. Existing databases are
+-- baselined at this version and skip it.
+CREATE TABLE IF NOT EXISTS customer_details (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    card_number_enc VARCHAR(255) NOT NULL,
+    name            VARCHAR(100),
+    mobile          VARCHAR(15),
+    email           VARCHAR(100),
+    created_at      TIMESTAMP(6) WITH TIME ZONE,
+    updated_at      TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT uk_customer_details_card_number_enc UNIQUE (card_number_enc)
+);
@@ -0,0 +1,3 @@
+-- Fixed-width HMAC-SHA256 blind index of the card number. Populated for
+-- existing rows by V3 and made mandatory by V4.
+ALTER TABLE customer_details ADD COLUMN IF NOT EXISTS card_number_idx BYTEA;
@@ -0,0 +1,23 @@
+-- Lookups now go through card_number_idx, and card_number_enc holds
+-- randomized AES-GCM ciphertexts that are no longer comparable.
+ALTER TABLE customer_details ALTER COLUMN card_number_idx SET NOT NULL;
+ALTER TABLE customer_details
+    ADD CONSTRAINT uk_customer_details_card_number_idx UNIQUE (card_number_idx);
+
+-- The unique constraint on card_number_enc was named by Hibernate on older
+-- databases, so drop it by column rather than by name.
+DO $$
+DECLARE
+    constraint_name TEXT;
+BEGIN
+    FOR constraint_name IN
+        SELECT con.conname
+        FROM pg_constraint con
+        JOIN pg_attribute att ON att.attrelid = con.conrelid AND att.attnum = ANY (con.conkey)
+        WHERE con.conrelid = 'customer_details'::regclass
+          AND con.contype = 'u'
+          AND att.attname = 'card_number_enc'
+    LOOP
+        EXECUTE format('ALTER TABLE customer_details DROP CONSTRAINT %I', constraint_name);
+    END LOOP;
+END $$;
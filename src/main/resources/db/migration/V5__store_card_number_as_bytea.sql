@@ -0,0 +1,5 @@
+-- Store the AES-GCM ciphertext as raw bytes instead of Base64 text, which
+-- shrinks the column by about a quarter and removes the encoding step from
+-- every write. Rewrites the table in place under an exclusive lock.
+ALTER TABLE customer_details
+    ALTER COLUMN card_number_enc TYPE BYTEA USING decode(card_number_enc, 'base64');
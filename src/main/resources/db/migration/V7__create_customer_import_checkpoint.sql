@@ -0,0 +1,10 @@
+-- Progress of bulk imports, updated in the same transaction as each imported
+-- chunk so that an interrupted import resumes after the last committed line.
+CREATE TABLE IF NOT EXISTS customer_import_checkpoint (
+    job_id      VARCHAR(255) PRIMARY KEY,
+    line_number BIGINT       NOT NULL,
+    inserted    BIGINT       NOT NULL,
+    duplicates  BIGINT       NOT NULL,
+    rejected    BIGINT       NOT NULL,
+    updated_at  TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
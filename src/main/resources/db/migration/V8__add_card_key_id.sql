@@ -0,0 +1,8 @@
+-- Id of the AES key card_number_enc is encrypted with. Every existing value was
+-- encrypted with the original key, id 1. The default only backfills existing
+-- rows (without a table rewrite); writers must always set the column.
+ALTER TABLE customer_details ADD COLUMN IF NOT EXISTS card_key_id INTEGER NOT NULL DEFAULT 1;
+ALTER TABLE customer_details ALTER COLUMN card_key_id DROP DEFAULT;
+
+-- Lets the re-encryption job walk the rows of one key in id order.
+CREATE INDEX IF NOT EXISTS customer_details_card_key_id_idx ON customer_details (card_key_id, id);
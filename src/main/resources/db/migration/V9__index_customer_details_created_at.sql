@@ -0,0 +1,3 @@
+-- Lets each instance's card filter catch up on the customers created recently,
+-- including those written by other instances and by bulk imports.
+CREATE INDEX IF NOT EXISTS customer_details_created_at_idx ON customer_details (created_at, id);
@@ -0,0 +1,85 @@
+package com.rudsi.paymtool.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTests {
+
+	private final SplittableRandom random = new SplittableRandom(42);
+
+	@Test
+	void sizesBitsForCapacityAndFalsePositiveRate() {
+		// m = -n ln p / (ln 2)^2 = 9,586 bits for n = 1,000 and p = 1%, rounded up to words.
+		assertThat(BloomFilter.create(1_000, 0.01).sizeInBytes()).isEqualTo(150 * Long.BYTES);
+		assertThat(BloomFilter.create(1_000, 0.001).sizeInBytes()).isEqualTo(225 * Long.BYTES);
+		assertThat(BloomFilter.create(100_000, 0.01).sizeInBytes()).isEqualTo(14_977 * Long.BYTES);
+	}
+
+	@Test
+	void keepsAtLeastOneWord() {
+		assertThat(BloomFilter.create(0, 0.5).sizeInBytes()).isEqualTo(Long.BYTES);
+		assertThat(BloomFilter.create(1, 0.5).sizeInBytes()).isEqualTo(Long.BYTES);
+	}
+
+	@Test
+	void reachesTargetFalsePositiveRateAtCapacity() {
+		BloomFilter filter = BloomFilter.create(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put(randomIndex());
+		}
+		// Keys whose bits were all set already, false positives themselves, are not counted.
+		assertThat(filter.insertions()).isBetween(9_950L, 10_000L);
+		assertThat(filter.expectedFalsePositiveRate()).isCloseTo(0.01, within(0.001));
+
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filter.mightContain(randomIndex())) {
+				falsePositives++;
+			}
+		}
+		assertThat(falsePositives / 100_000.0).isLessThan(0.015);
+	}
+
+	@Test
+	void hasNoFalseNegatives() {
+		BloomFilter filter = BloomFilter.create(50_000, 0.01);
+		List<byte[]> added = new ArrayList<>();
+		// Beyond capacity too: a full filter answers more positives, never negatives.
+		for (int i = 0; i < 100_000; i++) {
+			byte[] index = randomIndex();
+			filter.put(index);
+			added.add(index);
+		}
+		assertThat(added).allMatch(filter::mightContain);
+	}
+
+	@Test
+	void answersNegativeWhenEmpty() {
+		BloomFilter filter = BloomFilter.create(1_000, 0.01);
+		for (int i = 0; i < 1_000; i++) {
+			assertThat(filter.mightContain(randomIndex())).isFalse();
+		}
+		assertThat(filter.expectedFalsePositiveRate()).isZero();
+	}
+
+	@Test
+	void doesNotCountKeysAddedAgain() {
+		BloomFilter filter = BloomFilter.create(1_000, 0.01);
+		byte[] index = randomIndex();
+		filter.put(index);
+		filter.put(index);
+		assertThat(filter.insertions()).isEqualTo(1);
+	}
+
+	private byte[] randomIndex() {
+		byte[] index = new byte[32];
+		random.nextBytes(index);
+		return index;
+	}
+}
@@ -0,0 +1,97 @@
+package com.rudsi.paymtool.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Limit;
+
+import com.rudsi.paymtool.dto.CardIndexEntry;
+import com.rudsi.paymtool.repository.CustomerDetailsRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CardIndexFilterTests {
+
+	private static final Duration OVERLAP = Duration.ofSeconds(30);
+
+	private final CustomerDetailsRepository repo = mock(CustomerDetailsRepository.class);
+
+	private final CardIndexFilter filter = new CardIndexFilter(repo, true, 0.01, 1.5, OVERLAP,
+			new SimpleMeterRegistry());
+
+	@Test
+	void catchesUpOnCardsStoredElsewhere() {
+		byte[] local = index(1);
+		byte[] remote = index(2);
+		when(repo.findCardIndexesAfter(anyLong(), any(Limit.class))).thenReturn(List.of(new CardIndexEntry(1L, local)));
+		filter.rebuild();
+		assertThat(filter.mightContain(local)).isTrue();
+		assertThat(filter.mightContain(remote)).isFalse();
+
+		// Stored by another instance from a pooled block below the ids already seen.
+		when(repo.findCardIndexesCreatedSince(any(Instant.class), anyLong(), any(Limit.class)))
+				.thenReturn(List.of(new CardIndexEntry(-49L, remote)));
+		filter.catchUp();
+
+		assertThat(filter.mightContain(remote)).isTrue();
+	}
+
+	@Test
+	void reachesBackByTheOverlap() {
+		when(repo.findCardIndexesAfter(anyLong(), any(Limit.class))).thenReturn(List.of());
+		Instant beforeBuild = Instant.now();
+		filter.rebuild();
+
+		filter.catchUp();
+
+		ArgumentCaptor<Instant> since = ArgumentCaptor.forClass(Instant.class);
+		verify(repo).findCardIndexesCreatedSince(since.capture(), anyLong(), any(Limit.class));
+		assertThat(since.getValue()).isBetween(beforeBuild.minus(OVERLAP), Instant.now().minus(OVERLAP));
+	}
+
+	@Test
+	void retriesFailedCatchUpFromTheSameTime() {
+		when(repo.findCardIndexesAfter(anyLong(), any(Limit.class))).thenReturn(List.of());
+		filter.rebuild();
+		when(repo.findCardIndexesCreatedSince(any(Instant.class), anyLong(), any(Limit.class)))
+				.thenThrow(new QueryTimeoutException("timeout"))
+				.thenReturn(List.of());
+
+		filter.catchUp();
+		filter.catchUp();
+
+		ArgumentCaptor<Instant> since = ArgumentCaptor.forClass(Instant.class);
+		verify(repo, times(2))
+				.findCardIndexesCreatedSince(since.capture(), anyLong(), any(Limit.class));
+		assertThat(since.getAllValues().get(1)).isEqualTo(since.getAllValues().get(0));
+	}
+
+	@Test
+	void waitsForFirstBuildBeforeCatchingUp() {
+		filter.catchUp();
+
+		verify(repo, never()).findCardIndexesCreatedSince(any(Instant.class), anyLong(), any(Limit.class));
+		assertThat(filter.mightContain(index(3))).isTrue();
+	}
+
+	private static byte[] index(int seed) {
+		byte[] index = new byte[32];
+		for (int i = 0; i < index.length; i++) {
+			index[i] = (byte) (seed * 31 + i * 17);
+		}
+		return index;
+	}
+}
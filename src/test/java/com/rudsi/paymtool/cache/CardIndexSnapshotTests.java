@@ -0,0 +1,106 @@
+package com.rudsi.paymtool.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Limit;
+
+import com.rudsi.paymtool.dto.CardSnapshotEntry;
+import com.rudsi.paymtool.repository.CustomerDetailsRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CardIndexSnapshotTests {
+
+	@TempDir
+	Path directory;
+
+	private final CustomerDetailsRepository repo = mock(CustomerDetailsRepository.class);
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void servesRefreshedSnapshotAndUnmapsTheReplacedOne() {
+		CardIndexSnapshot snapshot = snapshot();
+		exporting(new CardSnapshotEntry(1L, index(1), "Alice", null, null));
+		snapshot.refresh();
+		assertThat(snapshot.find(index(1)).name()).isEqualTo("Alice");
+
+		exporting(new CardSnapshotEntry(1L, index(1), "Alice", null, null),
+				new CardSnapshotEntry(2L, index(2), "Bob", null, null));
+		snapshot.refresh();
+
+		assertThat(snapshot.find(index(2)).name()).isEqualTo("Bob");
+		assertThat(gauge("paymtool.snapshot.entries")).isEqualTo(2);
+		assertThat(gauge("paymtool.snapshot.retired")).isZero();
+	}
+
+	@Test
+	void mapsSnapshotLeftByPreviousRun() {
+		exporting(new CardSnapshotEntry(1L, index(1), "Alice", null, null));
+		snapshot().refresh();
+
+		CardIndexSnapshot restarted = new CardIndexSnapshot(repo, true, directory.resolve("card-index.snapshot"), 2,
+				new SimpleMeterRegistry());
+
+		assertThat(restarted.find(index(1)).name()).isEqualTo("Alice");
+	}
+
+	@Test
+	void stopsAnsweringOnceClosed() {
+		CardIndexSnapshot snapshot = snapshot();
+		exporting(new CardSnapshotEntry(1L, index(1), "Alice", null, null));
+		snapshot.refresh();
+
+		snapshot.close();
+
+		assertThat(snapshot.find(index(1))).isNull();
+		assertThat(gauge("paymtool.snapshot.size")).isZero();
+		assertThat(gauge("paymtool.snapshot.retired")).isZero();
+	}
+
+	@Test
+	void keepsPreviousSnapshotWhenExportFails() {
+		CardIndexSnapshot snapshot = snapshot();
+		exporting(new CardSnapshotEntry(1L, index(1), "Alice", null, null));
+		snapshot.refresh();
+		when(repo.findSnapshotEntriesAfter(anyLong(), any(Limit.class)))
+				.thenThrow(new IllegalStateException("database unavailable"));
+
+		snapshot.refresh();
+
+		assertThat(snapshot.find(index(1)).name()).isEqualTo("Alice");
+		assertThat(Files.exists(directory.resolve("card-index.snapshot.tmp"))).isFalse();
+	}
+
+	private CardIndexSnapshot snapshot() {
+		return new CardIndexSnapshot(repo, true, directory.resolve("card-index.snapshot"), 2, meterRegistry);
+	}
+
+	private void exporting(CardSnapshotEntry... entries) {
+		when(repo.count()).thenReturn((long) entries.length);
+		when(repo.findSnapshotEntriesAfter(eq(0L), any(Limit.class))).thenReturn(List.of(entries));
+	}
+
+	private double gauge(String name) {
+		return meterRegistry.get(name).gauge().value();
+	}
+
+	private static byte[] index(int seed) {
+		byte[] index = new byte[32];
+		for (int i = 0; i < index.length; i++) {
+			index[i] = (byte) (seed * 31 + i * 17);
+		}
+		return index;
+	}
+}
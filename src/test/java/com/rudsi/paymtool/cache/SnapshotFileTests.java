@@ -0,0 +1,206 @@
+package com.rudsi.paymtool.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.rudsi.paymtool.dto.CustomerContact;
+
+class SnapshotFileTests {
+
+	/** Slots in a snapshot created for a few entries. */
+	private static final long MIN_SLOTS = 1024;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void findsStoredEntriesAndMissesOthers() throws IOException {
+		Path path = directory.resolve("snapshot");
+		try (SnapshotFile.Writer writer = SnapshotFile.create(path, 10)) {
+			writer.add(index(1, 0), "Alice", "9000000001", "alice@example.com");
+			writer.add(index(2, 0), "Bob", "9000000002", "bob@example.com");
+			writer.finish();
+		}
+
+		SnapshotFile.Reader reader = SnapshotFile.open(path);
+		assertThat(reader.entryCount()).isEqualTo(2);
+		assertThat(reader.sizeInBytes()).isEqualTo(Files.size(path));
+		assertThat(reader.find(index(1, 0)))
+				.isEqualTo(new CustomerContact("Alice", "9000000001", "alice@example.com"));
+		assertThat(reader.find(index(2, 0)))
+				.isEqualTo(new CustomerContact("Bob", "9000000002", "bob@example.com"));
+		assertThat(reader.find(index(3, 0))).isNull();
+	}
+
+	@Test
+	void keepsNullAndNonAsciiFields() throws IOException {
+		Path path = directory.resolve("snapshot");
+		try (SnapshotFile.Writer writer = SnapshotFile.create(path, 10)) {
+			writer.add(index(1, 0), "Zoë Müller", null, null);
+			writer.add(index(2, 0), null, "9000000002", "");
+			writer.finish();
+		}
+
+		SnapshotFile.Reader reader = SnapshotFile.open(path);
+		assertThat(reader.find(index(1, 0))).isEqualTo(new CustomerContact("Zoë Müller", null, null));
+		assertThat(reader.find(index(2, 0))).isEqualTo(new CustomerContact(null, "9000000002", ""));
+	}
+
+	@Test
+	void probesPastCollidingIndexes() throws IOException {
+		Path path = directory.resolve("snapshot");
+		// The same first eight bytes select the same slot.
+		try (SnapshotFile.Writer writer = SnapshotFile.create(path, 10)) {
+			writer.add(index(7, 1), "First", null, null);
+			writer.add(index(7, 2), "Second", null, null);
+			writer.add(index(7, 3), "Third", null, null);
+			writer.finish();
+		}
+
+		SnapshotFile.Reader reader = SnapshotFile.open(path);
+		assertThat(reader.find(index(7, 1)).name()).isEqualTo("First");
+		assertThat(reader.find(index(7, 2)).name()).isEqualTo("Second");
+		assertThat(reader.find(index(7, 3)).name()).isEqualTo("Third");
+		assertThat(reader.find(index(7, 4))).isNull();
+		assertThat(reader.find(index(8, 1))).isNull();
+	}
+
+	@Test
+	void wrapsProbingAroundTheEndOfTheTable() throws IOException {
+		Path path = directory.resolve("snapshot");
+		long lastSlot = MIN_SLOTS - 1;
+		try (SnapshotFile.Writer writer = SnapshotFile.create(path, 10)) {
+			writer.add(index(lastSlot, 1), "Last slot", null, null);
+			writer.add(index(lastSlot, 2), "Wrapped", null, null);
+			writer.add(index(0, 1), "First slot", null, null);
+			writer.finish();
+		}
+
+		SnapshotFile.Reader reader = SnapshotFile.open(path);
+		assertThat(reader.find(index(lastSlot, 1)).name()).isEqualTo("Last slot");
+		assertThat(reader.find(index(lastSlot, 2)).name()).isEqualTo("Wrapped");
+		assertThat(reader.find(index(0, 1)).name()).isEqualTo("First slot");
+		assertThat(reader.find(index(lastSlot, 3))).isNull();
+	}
+
+	@Test
+	void keepsFirstRecordOfDuplicateIndex() throws IOException {
+		Path path = directory.resolve("snapshot");
+		try (SnapshotFile.Writer writer = SnapshotFile.create(path, 10)) {
+			writer.add(index(1, 0), "Original", null, null);
+			writer.add(index(1, 0), "Duplicate", null, null);
+			assertThat(writer.entryCount()).isEqualTo(1);
+			writer.finish();
+		}
+
+		SnapshotFile.Reader reader = SnapshotFile.open(path);
+		assertThat(reader.entryCount()).isEqualTo(1);
+		assertThat(reader.find(index(1, 0)).name()).isEqualTo("Original");
+	}
+
+	@Test
+	void unmapsReaderOnlyAfterLastReferenceIsReleased() throws IOException {
+		SnapshotFile.Reader reader = SnapshotFile.open(writeSnapshot());
+		assertThat(reader.acquire()).isTrue();
+
+		// The owner retires the reader while a lookup still holds it.
+		reader.release();
+		assertThat(reader.isClosed()).isFalse();
+		assertThat(reader.find(index(1, 0)).name()).isEqualTo("Alice");
+
+		reader.release();
+		assertThat(reader.isClosed()).isTrue();
+		assertThat(reader.acquire()).isFalse();
+	}
+
+	@Test
+	void rejectsEntriesBeyondCapacityAndBadIndexes() throws IOException {
+		Path path = directory.resolve("snapshot");
+		try (SnapshotFile.Writer writer = SnapshotFile.create(path, 10)) {
+			for (int i = 0; i < MIN_SLOTS / 4 * 3; i++) {
+				writer.add(index(i, i), null, null, null);
+			}
+			assertThatThrownBy(() -> writer.add(index(MIN_SLOTS, 0), null, null, null))
+					.isInstanceOf(IllegalStateException.class);
+			assertThatThrownBy(() -> writer.add(new byte[16], null, null, null))
+					.isInstanceOf(IllegalArgumentException.class);
+		}
+	}
+
+	@Test
+	void rejectsTruncatedFile() throws IOException {
+		Path path = directory.resolve("snapshot");
+		Files.write(path, new byte[16]);
+
+		assertThatThrownBy(() -> SnapshotFile.open(path))
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("truncated");
+	}
+
+	@Test
+	void rejectsFileWithoutMagic() throws IOException {
+		Path path = writeSnapshot();
+		overwriteHeader(path, 0, ByteBuffer.allocate(Integer.BYTES).putInt(0x12345678));
+
+		assertThatThrownBy(() -> SnapshotFile.open(path))
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("Not a card index snapshot");
+	}
+
+	@Test
+	void rejectsCorruptHeader() throws IOException {
+		Path badSlotCount = writeSnapshot();
+		overwriteHeader(badSlotCount, 8, ByteBuffer.allocate(Long.BYTES).putLong(MIN_SLOTS - 1));
+		assertThatThrownBy(() -> SnapshotFile.open(badSlotCount))
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("Corrupt card index snapshot");
+
+		Path badDataStart = writeSnapshot();
+		overwriteHeader(badDataStart, 24, ByteBuffer.allocate(Long.BYTES).putLong(Long.MAX_VALUE));
+		assertThatThrownBy(() -> SnapshotFile.open(badDataStart))
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("Corrupt card index snapshot");
+	}
+
+	@Test
+	void rejectsFileCutOffBeforeItsData() throws IOException {
+		Path path = writeSnapshot();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(1000);
+		}
+
+		assertThatThrownBy(() -> SnapshotFile.open(path))
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("Corrupt card index snapshot");
+	}
+
+	/** Returns a 32-byte index whose first eight bytes are {@code slot} and next eight {@code discriminator}. */
+	private static byte[] index(long slot, long discriminator) {
+		return ByteBuffer.allocate(32).putLong(slot).putLong(discriminator).putLong(~slot).putLong(42).array();
+	}
+
+	private Path writeSnapshot() throws IOException {
+		Path path = Files.createTempFile(directory, "snapshot", null);
+		try (SnapshotFile.Writer writer = SnapshotFile.create(path, 10)) {
+			writer.add(index(1, 0), "Alice", null, null);
+			writer.finish();
+		}
+		return path;
+	}
+
+	private static void overwriteHeader(Path path, long position, ByteBuffer value) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.write(value.flip(), position);
+		}
+	}
+}
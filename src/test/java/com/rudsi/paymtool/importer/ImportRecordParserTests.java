@@ -0,0 +1,104 @@
+package com.rudsi.paymtool.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import com.rudsi.paymtool.dto.DecryptedCustomerDetailsRequest;
+import com.rudsi.paymtool.importer.ImportRecordParser.Format;
+
+class ImportRecordParserTests {
+
+	@Test
+	void parsesCsvInHeaderOrder() {
+		ImportRecordParser parser = ImportRecordParser.csv("cardNumber,name,mobile,email");
+
+		assertThat(parser.parse("4539578763621486,Jane Doe,9876543210,jane@example.com"))
+				.isEqualTo(new DecryptedCustomerDetailsRequest("4539578763621486", "Jane Doe", "9876543210",
+						"jane@example.com"));
+	}
+
+	@Test
+	void mapsCsvColumnsInAnyOrderAndCase() {
+		ImportRecordParser parser = ImportRecordParser.csv("EMAIL, Mobile ,extra,CARDNUMBER,name");
+
+		assertThat(parser.parse("jane@example.com,9876543210,ignored,4539578763621486,Jane Doe"))
+				.isEqualTo(new DecryptedCustomerDetailsRequest("4539578763621486", "Jane Doe", "9876543210",
+						"jane@example.com"));
+	}
+
+	@Test
+	void leavesAbsentColumnsAndEmptyFieldsNull() {
+		ImportRecordParser parser = ImportRecordParser.csv("cardNumber,name");
+
+		assertThat(parser.parse("4539578763621486,"))
+				.isEqualTo(new DecryptedCustomerDetailsRequest("4539578763621486", null, null, null));
+		assertThat(parser.parse("4539578763621486"))
+				.isEqualTo(new DecryptedCustomerDetailsRequest("4539578763621486", null, null, null));
+	}
+
+	@Test
+	void parsesQuotedFieldsWithCommasAndEscapedQuotes() {
+		ImportRecordParser parser = ImportRecordParser.csv("\"cardNumber\",\"name\",mobile,email");
+
+		DecryptedCustomerDetailsRequest request = parser
+				.parse("\"4539578763621486\",\"Doe, Jane \"\"JD\"\"\",9876543210,\"\"");
+
+		assertThat(request).isEqualTo(new DecryptedCustomerDetailsRequest("4539578763621486",
+				"Doe, Jane \"JD\"", "9876543210", null));
+	}
+
+	@Test
+	void rejectsUnterminatedQuote() {
+		ImportRecordParser parser = ImportRecordParser.csv("cardNumber,name,mobile,email");
+
+		assertThatThrownBy(() -> parser.parse("4539578763621486,\"Jane Doe,9876543210,jane@example.com"))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Unterminated");
+	}
+
+	@Test
+	void rejectsHeaderWithoutCardNumber() {
+		assertThatThrownBy(() -> ImportRecordParser.csv("name,mobile,email"))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("no cardNumber column");
+	}
+
+	@Test
+	void leavesMissingCardNumberToValidation() {
+		ImportRecordParser parser = ImportRecordParser.csv("name,cardNumber");
+
+		assertThat(parser.parse("Jane Doe,").cardNumber()).isNull();
+	}
+
+	@Test
+	void parsesNdjsonRecords() {
+		ImportRecordParser parser = ImportRecordParser.ndjson();
+
+		assertThat(parser.parse("{\"email\":\"jane@example.com\",\"cardNumber\":\"4539578763621486\","
+				+ "\"name\":\"Jane \\\"JD\\\" Doe\"}"))
+				.isEqualTo(new DecryptedCustomerDetailsRequest("4539578763621486", "Jane \"JD\" Doe", null,
+						"jane@example.com"));
+		assertThat(parser.parse("{\"name\":\"Jane Doe\"}").cardNumber()).isNull();
+	}
+
+	@Test
+	void rejectsMalformedNdjson() {
+		ImportRecordParser parser = ImportRecordParser.ndjson();
+
+		assertThatThrownBy(() -> parser.parse("{\"cardNumber\":\"4539578763621486\""))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Malformed JSON record");
+		assertThatThrownBy(() -> parser.parse("4539578763621486,Jane Doe"))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void picksFormatFromFileExtension() {
+		assertThat(Format.of("customers.NDJSON")).isEqualTo(Format.NDJSON);
+		assertThat(Format.of("customers.jsonl")).isEqualTo(Format.NDJSON);
+		assertThat(Format.of("customers.csv")).isEqualTo(Format.CSV);
+		assertThat(Format.of("customers")).isEqualTo(Format.CSV);
+	}
+}
@@ -0,0 +1,203 @@
+package com.rudsi.paymtool.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PersistenceJournalTests {
+
+	private static final long SEGMENT_SIZE = 1024;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void replaysAppendedRecordsInOrder() throws IOException {
+		try (PersistenceJournal journal = open()) {
+			journal.replay();
+			for (int i = 0; i < 3; i++) {
+				journal.append(record(i), entry -> {
+				});
+			}
+		}
+
+		try (PersistenceJournal journal = open()) {
+			List<PersistenceJournal.Entry> pending = journal.replay();
+			assertThat(pending).extracting(entry -> entry.record().name())
+					.containsExactly("Customer 0", "Customer 1", "Customer 2");
+			JournalRecord first = pending.get(0).record();
+			assertThat(first.cardNumberIndex()).containsExactly(0, 1, 2);
+			assertThat(first.encryptedCardNumber()).containsExactly(9, 8, 7);
+			assertThat(first.cardKeyId()).isEqualTo(2);
+			assertThat(first.mobile()).isNull();
+		}
+	}
+
+	@Test
+	void replaysRecordsAcrossRolledSegments() throws IOException {
+		try (PersistenceJournal journal = open()) {
+			journal.replay();
+			for (int i = 0; i < 40; i++) {
+				journal.append(record(i), entry -> {
+				});
+			}
+		}
+		assertThat(segments()).hasSizeGreaterThan(1);
+
+		try (PersistenceJournal journal = open()) {
+			assertThat(journal.replay()).hasSize(40);
+		}
+	}
+
+	@Test
+	void truncatesTornTailOfNewestSegment() throws IOException {
+		try (PersistenceJournal journal = open()) {
+			journal.replay();
+			journal.append(record(0), entry -> {
+			});
+			journal.append(record(1), entry -> {
+			});
+		}
+		Path newest = segments().get(segments().size() - 1);
+		long complete = Files.size(newest);
+		// A frame announcing more payload than was written before the crash.
+		appendBytes(newest, ByteBuffer.allocate(12).putInt(100).putInt(0).putInt(42).array());
+
+		try (PersistenceJournal journal = open()) {
+			assertThat(journal.replay()).extracting(entry -> entry.record().name())
+					.containsExactly("Customer 0", "Customer 1");
+		}
+		assertThat(Files.size(newest)).isEqualTo(complete);
+	}
+
+	@Test
+	void truncatesRecordWithBadChecksumInNewestSegment() throws IOException {
+		try (PersistenceJournal journal = open()) {
+			journal.replay();
+			journal.append(record(0), entry -> {
+			});
+			journal.append(record(1), entry -> {
+			});
+		}
+		Path newest = segments().get(segments().size() - 1);
+		corruptLastByte(newest);
+
+		try (PersistenceJournal journal = open()) {
+			assertThat(journal.replay()).extracting(entry -> entry.record().name())
+					.containsExactly("Customer 0");
+		}
+	}
+
+	@Test
+	void failsOnCorruptionInOlderSegment() throws IOException {
+		try (PersistenceJournal journal = open()) {
+			journal.replay();
+			for (int i = 0; i < 40; i++) {
+				journal.append(record(i), entry -> {
+				});
+			}
+		}
+		List<Path> segments = segments();
+		assertThat(segments).hasSizeGreaterThan(1);
+		Path oldest = segments.get(0);
+		long size = Files.size(oldest);
+		corruptLastByte(oldest);
+
+		try (PersistenceJournal journal = open()) {
+			assertThatThrownBy(journal::replay)
+					.isInstanceOf(IOException.class)
+					.hasMessageContaining("Corrupt journal segment");
+		}
+		assertThat(Files.size(oldest)).isEqualTo(size);
+	}
+
+	@Test
+	void replaysOnlyRecordsAfterCheckpoint() throws IOException {
+		try (PersistenceJournal journal = open()) {
+			journal.replay();
+			PersistenceJournal.Entry checkpointed = null;
+			for (int i = 0; i < 40; i++) {
+				PersistenceJournal.Entry entry = journal.append(record(i), e -> {
+				});
+				if (i == 29) {
+					checkpointed = entry;
+				}
+			}
+			journal.checkpoint(checkpointed);
+			long checkpointSegment = checkpointed.segmentId();
+			assertThat(segments()).allSatisfy(path -> assertThat(segmentId(path))
+					.isGreaterThanOrEqualTo(checkpointSegment));
+		}
+
+		try (PersistenceJournal journal = open()) {
+			List<PersistenceJournal.Entry> pending = journal.replay();
+			assertThat(pending).extracting(entry -> entry.record().name())
+					.containsExactly("Customer 30", "Customer 31", "Customer 32", "Customer 33", "Customer 34",
+							"Customer 35", "Customer 36", "Customer 37", "Customer 38", "Customer 39");
+		}
+	}
+
+	@Test
+	void rejectsCorruptCheckpoint() throws IOException {
+		try (PersistenceJournal journal = open()) {
+			journal.replay();
+			journal.checkpoint(journal.append(record(0), entry -> {
+			}));
+		}
+		Path checkpoint = directory.resolve("checkpoint");
+		corruptLastByte(checkpoint);
+
+		try (PersistenceJournal journal = open()) {
+			assertThatThrownBy(journal::replay)
+					.isInstanceOf(IOException.class)
+					.hasMessageContaining("Corrupt journal checkpoint");
+		}
+	}
+
+	private PersistenceJournal open() throws IOException {
+		return new PersistenceJournal(directory, SEGMENT_SIZE);
+	}
+
+	private static JournalRecord record(int i) {
+		return new JournalRecord(1_700_000_000_000L + i, new byte[] { 0, 1, 2 }, new byte[] { 9, 8, 7 }, 2,
+				"Customer " + i, null, "customer" + i + "@example.com");
+	}
+
+	private List<Path> segments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(path -> path.getFileName().toString().startsWith("journal-"))
+					.filter(path -> path.toFile().length() > 0)
+					.sorted()
+					.toList();
+		}
+	}
+
+	private static long segmentId(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+	}
+
+	private static void appendBytes(Path file, byte[] bytes) throws IOException {
+		Files.write(file, bytes, StandardOpenOption.APPEND);
+	}
+
+	private static void corruptLastByte(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer last = ByteBuffer.allocate(1);
+			channel.read(last, channel.size() - 1);
+			last.put(0, (byte) (last.get(0) ^ 0xFF));
+			channel.write(last.rewind(), channel.size() - 1);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.rudsi.paymtool.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rudsi.paymtool.dto.CustomerContact;
+import com.rudsi.paymtool.dto.CustomerDetailsResponse;
+import com.rudsi.paymtool.dto.DecryptedCustomerDetailsRequest;
+import com.rudsi.paymtool.repository.CustomerDetailsRepository;
+
+class CustomerBatchLookupServiceTests {
+
+	private static final int MAX_LINE_LENGTH = 64;
+
+	private static final String REQUEST = "{\"encryptedData\":\"c2VjcmV0\"}";
+
+	private final CustomerDetailsService detailsService = mock(CustomerDetailsService.class);
+
+	private final BlindIndexService blindIndexService = mock(BlindIndexService.class);
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private CustomerBatchLookupService service;
+
+	@BeforeEach
+	void setUp() {
+		DecryptedCustomerDetailsRequest request = new DecryptedCustomerDetailsRequest("4539578763621486", null, null,
+				null);
+		CustomerContact contact = new CustomerContact("Jane Doe", null, null);
+		when(detailsService.decode(any(), eq("c2VjcmV0"))).thenReturn(request);
+		when(blindIndexService.compute(anyString())).thenReturn(new byte[32]);
+		when(detailsService.findInMemory(any())).thenReturn(contact);
+		when(detailsService.respond(request, contact))
+				.thenReturn(new CustomerDetailsResponse("APPROVED", null, "453957******1486", "Jane Doe", null, null));
+		service = new CustomerBatchLookupService(detailsService, blindIndexService,
+				mock(CustomerDetailsRepository.class), 2, MAX_LINE_LENGTH, 2);
+	}
+
+	@AfterEach
+	void tearDown() {
+		service.shutdown();
+	}
+
+	@Test
+	void answersLinesInOrderAndSkipsBlankLines() throws IOException {
+		List<CustomerDetailsResponse> responses = lookup(REQUEST + "\n\n" + REQUEST + "\r\n  \n" + REQUEST);
+
+		assertThat(responses).extracting(CustomerDetailsResponse::status)
+				.containsExactly("APPROVED", "APPROVED", "APPROVED");
+	}
+
+	@Test
+	void rejectsOverLongLineAndContinuesWithTheNext() throws IOException {
+		String longLine = "{\"encryptedData\":\"" + "A".repeat(MAX_LINE_LENGTH) + "\"}";
+
+		List<CustomerDetailsResponse> responses = lookup(REQUEST + "\n" + longLine + "\n" + REQUEST + "\n");
+
+		assertThat(responses).extracting(CustomerDetailsResponse::status)
+				.containsExactly("APPROVED", "FAILED", "APPROVED");
+		assertThat(responses.get(1).reasonCode()).isEqualTo("DATA_PROCESSING_FAILED");
+	}
+
+	@Test
+	void rejectsOverLongLineSpanningReadBuffersAtEndOfStream() throws IOException {
+		List<CustomerDetailsResponse> responses = lookup(REQUEST + "\n" + "A".repeat(50_000));
+
+		assertThat(responses).extracting(CustomerDetailsResponse::reasonCode)
+				.containsExactly(null, "DATA_PROCESSING_FAILED");
+	}
+
+	@Test
+	void acceptsLineOfExactlyTheMaximumLengthWithCarriageReturn() throws IOException {
+		String padded = REQUEST + " ".repeat(MAX_LINE_LENGTH - REQUEST.length());
+
+		List<CustomerDetailsResponse> responses = lookup(padded + "\r\n" + padded + " \n");
+
+		assertThat(responses).extracting(CustomerDetailsResponse::status).containsExactly("APPROVED", "FAILED");
+	}
+
+	private List<CustomerDetailsResponse> lookup(String body) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long lines = service.lookupStream(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), out);
+		List<CustomerDetailsResponse> responses = new ArrayList<>();
+		for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+			responses.add(mapper.readValue(line, CustomerDetailsResponse.class));
+		}
+		assertThat(responses).hasSize((int) lines);
+		return responses;
+	}
+}
@@ -0,0 +1,239 @@
+package com.rudsi.paymtool.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.rudsi.paymtool.error.InvalidCardNumberException;
+
+/**
+ * Runs twice in the build: with {@code jdk.incubator.vector} loaded, so batches
+ * go through {@link LuhnVectorKernel} where the hardware supports it, and
+ * without it, so they fall back to the scalar loop.
+ */
+class LunhValidationTests {
+
+	private static final boolean VECTOR_MODULE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+	/** Characters that are not ASCII digits but sit next to them or look like them. */
+	private static final char[] NON_DIGITS = { '\0', '/', ':', ' ', '-', 'a', '٣', '４', 'Ĵ', '¹' };
+
+	@Test
+	void acceptsValidCardNumbersOfEveryAllowedLength() {
+		assertThat(LunhValidation.isValid("4539578763621486")).isTrue();
+		assertThat(LunhValidation.isValid("378282246310005")).isTrue();
+		assertThat(LunhValidation.isValid("4222222222222")).isTrue();
+		for (int length = 12; length <= 19; length++) {
+			String cardNumber = withCheckDigit("4".repeat(length - 1));
+			assertThat(LunhValidation.isValid(cardNumber)).as(cardNumber).isTrue();
+		}
+	}
+
+	@Test
+	void rejectsWrongCheckDigit() {
+		assertThat(LunhValidation.isValid("4539578763621487")).isFalse();
+		for (int length = 12; length <= 19; length++) {
+			String cardNumber = withWrongCheckDigit("4".repeat(length - 1));
+			assertThat(LunhValidation.isValid(cardNumber)).as(cardNumber).isFalse();
+		}
+		assertThatThrownBy(() -> LunhValidation.validate("4539578763621487"))
+				.isInstanceOf(InvalidCardNumberException.class)
+				.hasMessageContaining("Luhn checksum");
+	}
+
+	@Test
+	void rejectsLengthsOutsideTwelveToNineteen() {
+		for (String cardNumber : List.of(withCheckDigit("4".repeat(10)), withCheckDigit("4".repeat(19)), "")) {
+			assertThatThrownBy(() -> LunhValidation.isValid(cardNumber))
+					.as(cardNumber)
+					.isInstanceOf(InvalidCardNumberException.class);
+			byte[] bytes = ascii(cardNumber);
+			assertThatThrownBy(() -> LunhValidation.isValid(bytes, 0, bytes.length))
+					.isInstanceOf(InvalidCardNumberException.class);
+			assertThatThrownBy(() -> LunhValidation.validate(cardNumber))
+					.isInstanceOf(InvalidCardNumberException.class)
+					.hasMessageContaining("between 12 and 19");
+		}
+		assertThatThrownBy(() -> LunhValidation.isValid(null)).isInstanceOf(InvalidCardNumberException.class);
+	}
+
+	@Test
+	void rejectsNonAsciiDigitsAndNulBytes() {
+		String valid = "4539578763621486";
+		for (char c : NON_DIGITS) {
+			String cardNumber = valid.substring(0, 15) + c;
+			assertThatThrownBy(() -> LunhValidation.isValid(cardNumber))
+					.as("U+%04X", (int) c)
+					.isInstanceOf(InvalidCardNumberException.class);
+			byte[] bytes = cardNumber.getBytes(StandardCharsets.UTF_8);
+			assertThatThrownBy(() -> LunhValidation.isValid(bytes, 0, bytes.length))
+					.as("U+%04X", (int) c)
+					.isInstanceOf(InvalidCardNumberException.class);
+		}
+		assertThatThrownBy(() -> LunhValidation.isValid("\0" + valid)).isInstanceOf(InvalidCardNumberException.class);
+	}
+
+	@Test
+	void validatesByteArrayRangeAtAnOffset() {
+		byte[] bytes = ascii("xx4539578763621486yy4539578763621487");
+
+		assertThat(LunhValidation.isValid(bytes, 2, 16)).isTrue();
+		assertThat(LunhValidation.isValid(bytes, 20, 16)).isFalse();
+		LunhValidation.validate(bytes, 2, 16);
+		assertThatThrownBy(() -> LunhValidation.isValid(bytes, 0, 16)).isInstanceOf(InvalidCardNumberException.class);
+	}
+
+	@Test
+	void validatesByteBufferRangeAtAnOffsetWithoutMovingIt() {
+		byte[] bytes = ascii("xx4539578763621486yy4539578763621487");
+		for (ByteBuffer buffer : List.of(ByteBuffer.wrap(bytes), ByteBuffer.allocateDirect(bytes.length).put(bytes))) {
+			buffer.limit(bytes.length).position(5);
+
+			assertThat(LunhValidation.isValid(buffer, 2, 16)).isTrue();
+			assertThat(LunhValidation.isValid(buffer, 20, 16)).isFalse();
+			assertThatThrownBy(() -> LunhValidation.validate(buffer, 20, 16))
+					.isInstanceOf(InvalidCardNumberException.class)
+					.hasMessageContaining("Luhn checksum");
+			assertThatThrownBy(() -> LunhValidation.isValid(buffer, 1, 16))
+					.isInstanceOf(InvalidCardNumberException.class);
+			assertThat(buffer.position()).isEqualTo(5);
+			assertThat(buffer.limit()).isEqualTo(bytes.length);
+		}
+	}
+
+	@Test
+	void batchAgreesWithSingleValidation() {
+		List<String> cardNumbers = sampleCardNumbers();
+
+		boolean[] results = LunhValidation.isValidBatch(cardNumbers);
+
+		for (int i = 0; i < cardNumbers.size(); i++) {
+			assertThat(results[i]).as(printable(cardNumbers.get(i))).isEqualTo(isValidOrFalse(cardNumbers.get(i)));
+		}
+	}
+
+	@Test
+	void vectorKernelAgreesWithSingleValidation() {
+		assumeTrue(VECTOR_MODULE, "jdk.incubator.vector is not loaded");
+		List<String> cardNumbers = sampleCardNumbers();
+		byte[] slots = new byte[cardNumbers.size() * LunhValidation.BATCH_SLOT_WIDTH];
+		for (int i = 0; i < cardNumbers.size(); i++) {
+			LunhValidation.packBatchSlot(cardNumbers.get(i), slots, i);
+		}
+		boolean[] results = new boolean[cardNumbers.size()];
+
+		LuhnVectorKernel.isValidBatch(slots, cardNumbers.size(), results);
+
+		for (int i = 0; i < cardNumbers.size(); i++) {
+			assertThat(results[i]).as(printable(cardNumbers.get(i))).isEqualTo(isValidOrFalse(cardNumbers.get(i)));
+		}
+	}
+
+	@Test
+	void vectorizesOnlyWithTheVectorModule() {
+		if (VECTOR_MODULE) {
+			assertThat(LunhValidation.isVectorized()).isEqualTo(LuhnVectorKernel.isSupported());
+		} else {
+			assertThat(LunhValidation.isVectorized()).isFalse();
+		}
+	}
+
+	@Test
+	void rejectsBatchSlotsWithBytesBetweenPaddingAndDigits() {
+		byte[] slots = new byte[3 * LunhValidation.BATCH_SLOT_WIDTH];
+		LunhValidation.packBatchSlot("4539578763621486", slots, 0);
+		LunhValidation.packBatchSlot("4539578763621486", slots, 1);
+		LunhValidation.packBatchSlot("4539578763621486", slots, 2);
+		// A NUL inside the digits, and a digit inside the padding.
+		slots[LunhValidation.BATCH_SLOT_WIDTH + 24] = 0;
+		slots[2 * LunhValidation.BATCH_SLOT_WIDTH + 3] = '0';
+		boolean[] results = new boolean[3];
+
+		LunhValidation.isValidBatch(slots, 3, results);
+
+		assertThat(results).containsExactly(true, false, false);
+	}
+
+	@Test
+	void packsUnrepresentableCardNumbersAsInvalidSlots() {
+		List<String> cardNumbers = new ArrayList<>();
+		// U+0136 would truncate to '6', which makes the number valid.
+		cardNumbers.add("453957876362148Ķ");
+		cardNumbers.add("\0\0" + "4539578763621486");
+		cardNumbers.add(null);
+		cardNumbers.add("4".repeat(LunhValidation.BATCH_SLOT_WIDTH + 1));
+
+		assertThat(LunhValidation.isValidBatch(cardNumbers)).containsExactly(false, false, false, false);
+		assertThat(LunhValidation.isValidBatch(List.of())).isEmpty();
+	}
+
+	/** Valid and invalid card numbers of 11 to 20 digits, some with a non-digit character. */
+	private static List<String> sampleCardNumbers() {
+		Random random = new Random(42);
+		List<String> cardNumbers = new ArrayList<>();
+		for (int length = 11; length <= 20; length++) {
+			for (int i = 0; i < 50; i++) {
+				StringBuilder payload = new StringBuilder();
+				for (int d = 0; d < length - 1; d++) {
+					payload.append((char) ('0' + random.nextInt(10)));
+				}
+				String valid = withCheckDigit(payload.toString());
+				cardNumbers.add(valid);
+				cardNumbers.add(withWrongCheckDigit(payload.toString()));
+				StringBuilder corrupted = new StringBuilder(valid);
+				corrupted.setCharAt(random.nextInt(length), NON_DIGITS[random.nextInt(NON_DIGITS.length)]);
+				cardNumbers.add(corrupted.toString());
+			}
+		}
+		return cardNumbers;
+	}
+
+	private static boolean isValidOrFalse(String cardNumber) {
+		try {
+			return LunhValidation.isValid(cardNumber);
+		} catch (InvalidCardNumberException e) {
+			return false;
+		}
+	}
+
+	private static String withCheckDigit(String payload) {
+		return payload + checkDigit(payload);
+	}
+
+	private static String withWrongCheckDigit(String payload) {
+		return payload + (checkDigit(payload) + 1) % 10;
+	}
+
+	/** Reference check digit: doubles every second digit counted from the right of the full number. */
+	private static int checkDigit(String payload) {
+		int sum = 0;
+		for (int i = 0; i < payload.length(); i++) {
+			int digit = payload.charAt(payload.length() - 1 - i) - '0';
+			if (i % 2 == 0) {
+				digit = digit * 2 > 9 ? digit * 2 - 9 : digit * 2;
+			}
+			sum += digit;
+		}
+		return (10 - sum % 10) % 10;
+	}
+
+	private static byte[] ascii(String value) {
+		return value.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static String printable(String value) {
+		StringBuilder result = new StringBuilder();
+		for (char c : value.toCharArray()) {
+			result.append(c >= 0x20 && c < 0x7f ? String.valueOf(c) : String.format("\\u%04X", (int) c));
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,92 @@
+package com.rudsi.paymtool.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.rudsi.paymtool.dto.DecryptedCustomerDetailsRequest;
+import com.rudsi.paymtool.error.DataProcessingException;
+
+class PayloadParserTests {
+
+	@Test
+	void readsCardNumberAmongOtherFields() {
+		byte[] payload = json("{\"name\":\"Jane\",\"tags\":{\"cardNumber\":\"1\",\"a\":[1,2]},"
+				+ "\"cardNumber\":\"4539578763621486\",\"email\":\"jane@example.com\"}");
+
+		assertThat(PayloadParser.readCardNumber(payload)).isEqualTo("4539578763621486");
+	}
+
+	@Test
+	void readsAbsentOrNullCardNumberAsNull() {
+		assertThat(PayloadParser.readCardNumber(json("{\"name\":\"Jane\"}"))).isNull();
+		assertThat(PayloadParser.readCardNumber(json("{\"cardNumber\":null}"))).isNull();
+	}
+
+	@Test
+	void rejectsNonScalarCardNumberAndNonObjectPayload() {
+		assertThatThrownBy(() -> PayloadParser.readCardNumber(json("{\"cardNumber\":[\"4539578763621486\"]}")))
+				.isInstanceOf(DataProcessingException.class);
+		assertThatThrownBy(() -> PayloadParser.readCardNumber(json("[\"4539578763621486\"]")))
+				.isInstanceOf(DataProcessingException.class);
+	}
+
+	@Test
+	void rejectsDuplicateCardNumberInJsonOnBothPaths() {
+		byte[] payload = json("{\"cardNumber\":\"4539578763621486\",\"name\":\"Jane\","
+				+ "\"cardNumber\":\"4111111111111111\"}");
+
+		assertThatThrownBy(() -> PayloadParser.readCardNumber(payload)).isInstanceOf(DataProcessingException.class);
+		assertThatThrownBy(() -> PayloadParser.readRequest(payload)).isInstanceOf(DataProcessingException.class);
+	}
+
+	@Test
+	void rejectsDuplicateCardNumberAfterNullInJsonOnBothPaths() {
+		byte[] payload = json("{\"cardNumber\":null,\"cardNumber\":\"4111111111111111\"}");
+
+		assertThatThrownBy(() -> PayloadParser.readCardNumber(payload)).isInstanceOf(DataProcessingException.class);
+		assertThatThrownBy(() -> PayloadParser.readRequest(payload)).isInstanceOf(DataProcessingException.class);
+	}
+
+	@Test
+	void rejectsDuplicateCardNumberInCborOnBothPaths() throws IOException {
+		byte[] payload = cbor("cardNumber", "4539578763621486", "name", "Jane", "cardNumber", "4111111111111111");
+
+		assertThatThrownBy(() -> PayloadParser.readCardNumberCbor(payload))
+				.isInstanceOf(DataProcessingException.class);
+		assertThatThrownBy(() -> PayloadParser.readRequestCbor(payload)).isInstanceOf(DataProcessingException.class);
+	}
+
+	@Test
+	void readsCborPayloadOnBothPaths() throws IOException {
+		byte[] payload = cbor("name", "Jane", "cardNumber", "4539578763621486");
+
+		assertThat(PayloadParser.readCardNumberCbor(payload)).isEqualTo("4539578763621486");
+		assertThat(PayloadParser.readRequestCbor(payload))
+				.isEqualTo(new DecryptedCustomerDetailsRequest("4539578763621486", "Jane", null, null));
+	}
+
+	private static byte[] json(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/** Writes a CBOR map of the given name/value pairs, repeated names included. */
+	private static byte[] cbor(String... fields) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (JsonGenerator generator = new CBORFactory().createGenerator(out)) {
+			generator.writeStartObject();
+			for (int i = 0; i < fields.length; i += 2) {
+				generator.writeStringField(fields[i], fields[i + 1]);
+			}
+			generator.writeEndObject();
+		}
+		return out.toByteArray();
+	}
+}